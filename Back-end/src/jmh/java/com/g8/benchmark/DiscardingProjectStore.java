@@ -0,0 +1,64 @@
+package com.g8.benchmark;
+
+import com.g8.storage.ProjectData;
+import com.g8.storage.ProjectStore;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Store that hands out project ids and forgets what it was given, so that end-to-end benchmarks measure
+// the analysis and serialization without the database, and repeated runs do not pile up on the heap
+public class DiscardingProjectStore implements ProjectStore {
+
+    private final AtomicLong nextId = new AtomicLong();
+
+    // Bytes handed to the store, read by the benchmarks so that the serialization cannot be optimized away
+    private final AtomicLong savedBytes = new AtomicLong();
+
+    @Override
+    public String saveProject(byte[] internalDependencies, List<Map<String, String>> externalDependencies, List<String> classList) {
+        savedBytes.addAndGet(internalDependencies.length);
+        return "project-" + nextId.incrementAndGet();
+    }
+
+    @Override
+    public ProjectData getProject(String projectId, Set<String> sections) {
+        return new ProjectData(null, null, null);
+    }
+
+    @Override
+    public void saveGraph(String projectId, String graphName, byte[] graph) {
+        savedBytes.addAndGet(graph.length);
+    }
+
+    @Override
+    public byte[] getGraph(String projectId, String graphName) {
+        return null;
+    }
+
+    @Override
+    public void addProjectToUser(String projectId, String userId) {
+    }
+
+    @Override
+    public List<Map<String, Object>> getUserProjects(String userId) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String createCustomView(String userId, String projectId, Map<String, Object> data) {
+        return "";
+    }
+
+    @Override
+    public Map<String, Object> getCustomView(String customViewId) {
+        return null;
+    }
+
+    public long getSavedBytes() {
+        return savedBytes.get();
+    }
+}
@@ -0,0 +1,190 @@
+package com.g8.benchmark;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/*
+ * Generates jars of user classes in org.example shaped like a layered Spring application, for the benchmarks.
+ *
+ * Every class extends the class before it in its package, implements Serializable, has a field typed with a
+ * class of another package and methods whose bodies call into other classes. The annotation density is the
+ * chance for each class, field and method to carry a Spring annotation with a value. Every tenth class has a
+ * chain of nested classes as deep as the nesting depth. The same parameters always give the same jar.
+ */
+public class SyntheticJar {
+
+    public static final String CLASS_CONTAINER = "org.example";
+
+    private static final int PACKAGES = 50;
+    private static final String[] CLASS_ANNOTATIONS = {
+            "Lorg/springframework/stereotype/Service;",
+            "Lorg/springframework/stereotype/Component;",
+            "Lorg/springframework/web/bind/annotation/RestController;"
+    };
+
+    private final int classCount;
+    private final int methodsPerClass;
+    private final double annotationDensity;
+    private final int nestingDepth;
+
+    public SyntheticJar(int classCount, int methodsPerClass, double annotationDensity, int nestingDepth) {
+        this.classCount = classCount;
+        this.methodsPerClass = methodsPerClass;
+        this.annotationDensity = annotationDensity;
+        this.nestingDepth = nestingDepth;
+    }
+
+    // Writes the jar to the path, with a pom.xml like the ones maven puts in META-INF
+    public Path write(Path path) throws Exception {
+        try (OutputStream outputStream = new FileOutputStream(path.toFile())) {
+            write(outputStream);
+        }
+        return path;
+    }
+
+    public byte[] toByteArray() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        write(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    // The class files of the jar in jar order, nested classes right after their outer class
+    public List<byte[]> classes() {
+        List<byte[]> classes = new ArrayList<>();
+        Random random = new Random(classCount);
+        for (int i = 0; i < classCount; i++) {
+            String name = className(i);
+            classes.add(writeClass(name, i, random));
+            if (i % 10 == 0) {
+                String outer = name;
+                for (int depth = 1; depth <= nestingDepth; depth++) {
+                    String inner = outer + "$Inner" + depth;
+                    classes.add(writeNestedClass(inner, outer));
+                    outer = inner;
+                }
+            }
+        }
+        return classes;
+    }
+
+    private void write(OutputStream outputStream) throws Exception {
+        try (JarOutputStream jar = new JarOutputStream(outputStream)) {
+            jar.putNextEntry(new JarEntry("META-INF/maven/org.example/synthetic/pom.xml"));
+            jar.write(POM.getBytes(StandardCharsets.UTF_8));
+            jar.closeEntry();
+            List<byte[]> classes = classes();
+            for (byte[] classBytes : classes) {
+                jar.putNextEntry(new JarEntry(internalName(classBytes) + ".class"));
+                jar.write(classBytes);
+                jar.closeEntry();
+            }
+        }
+    }
+
+    private String className(int i) {
+        return "org/example/pkg" + (i % PACKAGES) + "/Generated" + i;
+    }
+
+    private byte[] writeClass(String name, int i, Random random) {
+
+        // The class before it in the same package
+        String superName = i >= PACKAGES ? className(i - PACKAGES) : "java/lang/Object";
+        // A class of another package it depends on
+        String dependency = className((int) ((i * 31L + 7) % classCount));
+
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, superName, new String[]{"java/io/Serializable"});
+        if (random.nextDouble() < annotationDensity) {
+            AnnotationVisitor annotation = writer.visitAnnotation(CLASS_ANNOTATIONS[i % CLASS_ANNOTATIONS.length], true);
+            annotation.visit("value", "generated" + i);
+            annotation.visitEnd();
+        }
+
+        FieldVisitor field = writer.visitField(Opcodes.ACC_PRIVATE, "dependency", "L" + dependency + ";", null, null);
+        if (random.nextDouble() < annotationDensity) {
+            field.visitAnnotation("Lorg/springframework/beans/factory/annotation/Autowired;", true).visitEnd();
+        }
+        field.visitEnd();
+        writer.visitField(Opcodes.ACC_PRIVATE, "names", "Ljava/util/List;", "Ljava/util/List<Ljava/lang/String;>;", null).visitEnd();
+
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        for (int m = 0; m < methodsPerClass; m++) {
+            MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "method" + m, "(Ljava/lang/String;I)Ljava/lang/String;", null, null);
+            if (random.nextDouble() < annotationDensity) {
+                AnnotationVisitor annotation = method.visitAnnotation("Lorg/springframework/web/bind/annotation/GetMapping;", true);
+                AnnotationVisitor paths = annotation.visitArray("value");
+                paths.visit(null, "/generated" + i + "/" + m);
+                paths.visitEnd();
+                annotation.visitEnd();
+            }
+            // return dependency.method<m>(name.trim(), count + 1)
+            method.visitCode();
+            method.visitVarInsn(Opcodes.ALOAD, 0);
+            method.visitFieldInsn(Opcodes.GETFIELD, name, "dependency", "L" + dependency + ";");
+            method.visitVarInsn(Opcodes.ALOAD, 1);
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "trim", "()Ljava/lang/String;", false);
+            method.visitVarInsn(Opcodes.ILOAD, 2);
+            method.visitInsn(Opcodes.ICONST_1);
+            method.visitInsn(Opcodes.IADD);
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, dependency, "method" + m, "(Ljava/lang/String;I)Ljava/lang/String;", false);
+            method.visitInsn(Opcodes.ARETURN);
+            method.visitMaxs(0, 0);
+            method.visitEnd();
+        }
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private byte[] writeNestedClass(String name, String outer) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+        writer.visitField(Opcodes.ACC_PRIVATE, "outer", "L" + outer + ";", null, null).visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static String internalName(byte[] classBytes) {
+        return new ClassReader(classBytes).getClassName();
+    }
+
+    private static final String POM = """
+            <project>
+                <dependencies>
+                    <dependency>
+                        <groupId>org.springframework.boot</groupId>
+                        <artifactId>spring-boot-starter-web</artifactId>
+                        <version>3.3.4</version>
+                    </dependency>
+                    <dependency>
+                        <groupId>com.google.code.gson</groupId>
+                        <artifactId>gson</artifactId>
+                        <version>2.11.0</version>
+                        <scope>compile</scope>
+                    </dependency>
+                </dependencies>
+            </project>
+            """;
+}
@@ -0,0 +1,87 @@
+package com.g8.service;
+
+import com.g8.benchmark.DiscardingProjectStore;
+import com.g8.benchmark.SyntheticJar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * End-to-end analysis of synthetic jars: scanning a jar on disk, scanning an upload stream, and analyzeFile,
+ * which adds hashing, graph building and serialization for a store that discards the result.
+ *
+ * Scores are milliseconds per jar, classes per second is classCount * 1000 / score. Run with -prof gc for
+ * the allocation rate per jar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AnalysisBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int classCount;
+
+    @Param({"STRUCTURAL", "DEEP"})
+    private AnalysisDepth analysisDepth;
+
+    private Path jarPath;
+    private byte[] jarBytes;
+    private DiscardingProjectStore projectStore;
+    private AnalyzeProjectService analyzeProjectService;
+
+    @Setup
+    public void setUp() throws Exception {
+        jarPath = Files.createTempFile("synthetic", ".jar");
+        new SyntheticJar(classCount, 8, 0.5, 2).write(jarPath);
+        jarBytes = Files.readAllBytes(jarPath);
+
+        projectStore = new DiscardingProjectStore();
+        analyzeProjectService = new AnalyzeProjectService(new DependencyRetrievalService(projectStore));
+        analyzeProjectService.setAnalysisDepth(analysisDepth);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        analyzeProjectService.shutdownAnalysisPool();
+        Files.deleteIfExists(jarPath);
+    }
+
+    @Benchmark
+    public AnalysisSession scanJar() throws Exception {
+        AnalysisSession session = new AnalysisSession(SyntheticJar.CLASS_CONTAINER);
+        session.setFilePath(jarPath.toString());
+        analyzeProjectService.scanJar(session);
+        return session;
+    }
+
+    @Benchmark
+    public AnalysisSession scanStream() throws Exception {
+        AnalysisSession session = new AnalysisSession(SyntheticJar.CLASS_CONTAINER);
+        analyzeProjectService.scanStream(session, new ByteArrayInputStream(jarBytes));
+        return session;
+    }
+
+    @Benchmark
+    public String analyzeFile() throws Exception {
+        AnalysisSession session = new AnalysisSession(SyntheticJar.CLASS_CONTAINER);
+        session.setFilePath(jarPath.toString());
+        return analyzeProjectService.analyzeFile(session, "benchmark-user");
+    }
+}
@@ -0,0 +1,59 @@
+package com.g8.service;
+
+import com.g8.benchmark.DiscardingProjectStore;
+import com.g8.benchmark.SyntheticJar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of visiting one class file with ASM, the per-class part of every analysis. The class cache is off so
+ * that every call hashes and visits its class, cycling through a jar's worth of classes so that the JIT sees
+ * a realistic mix. Run with -prof gc for the bytes allocated per class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseClassBenchmark {
+
+    @Param({"STRUCTURAL", "DEEP"})
+    private AnalysisDepth analysisDepth;
+
+    @Param({"8", "32"})
+    private int methodsPerClass;
+
+    @Param({"0.1", "0.9"})
+    private double annotationDensity;
+
+    private List<byte[]> classes;
+    private AnalyzeProjectService analyzeProjectService;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        classes = new SyntheticJar(1000, methodsPerClass, annotationDensity, 2).classes();
+        analyzeProjectService = new AnalyzeProjectService(new DependencyRetrievalService(new DiscardingProjectStore()));
+        analyzeProjectService.setAnalysisDepth(analysisDepth);
+    }
+
+    @Benchmark
+    public AnalyzeProjectService.ParsedClass parseClass() {
+        byte[] classBytes = classes.get(next);
+        next = next + 1 == classes.size() ? 0 : next + 1;
+        return analyzeProjectService.parseClass(classBytes);
+    }
+}
@@ -0,0 +1,111 @@
+package com.g8.service;
+
+import com.g8.benchmark.DiscardingProjectStore;
+import com.g8.benchmark.SyntheticJar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The whole upload path of /analyze on a multipart file held in memory: either "file" ingestion (saveFile hashes
+ * the upload while copying it to a temp file, scanJar reads it back) or "stream" ingestion (scanStream reads the
+ * multipart stream once, hashing it on the way), and saving to a store that discards the result.
+ * hashUpload is a separate SHA-256 pass over the upload, the read both modes no longer pay.
+ *
+ * Scores are milliseconds per upload. After each iteration the bytes the process passed to write(2) per upload
+ * are printed, from wchar in /proc/self/io (Linux only), the file mode writes the jar once per upload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class UploadBenchmark {
+
+    private static final Path PROCESS_IO = Path.of("/proc/self/io");
+
+    @Param({"1000", "10000", "100000"})
+    private int classCount;
+
+    @Param({"file", "stream"})
+    private String ingestionMode;
+
+    private MockMultipartFile upload;
+    private AnalyzeProjectService analyzeProjectService;
+
+    private long writtenBefore;
+    private int uploads;
+
+    @Setup
+    public void setUp() throws Exception {
+        upload = new MockMultipartFile("file", "synthetic.jar", "application/java-archive",
+                new SyntheticJar(classCount, 8, 0.5, 2).toByteArray());
+
+        // The analysis cache is off, every upload is analysed again
+        analyzeProjectService = new AnalyzeProjectService(new DependencyRetrievalService(new DiscardingProjectStore()));
+        analyzeProjectService.setIngestionMode(ingestionMode);
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() throws Exception {
+        writtenBefore = writtenBytes();
+        uploads = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void finishIteration() throws Exception {
+        if (uploads > 0 && writtenBefore >= 0) {
+            System.out.printf("%n%s: %d bytes written per upload of %d bytes%n", ingestionMode,
+                    (writtenBytes() - writtenBefore) / uploads, upload.getSize());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        analyzeProjectService.shutdownAnalysisPool();
+    }
+
+    @Benchmark
+    public ResponseEntity<String> analyzeUploadedProject() throws Exception {
+        uploads++;
+        return analyzeProjectService.analyzeUploadedProject(upload, SyntheticJar.CLASS_CONTAINER, "benchmark-user");
+    }
+
+    @Benchmark
+    public String hashUpload() throws Exception {
+        try (InputStream inputStream = upload.getInputStream()) {
+            return AnalysisCache.sha256(inputStream);
+        }
+    }
+
+    // Bytes passed to write(2) by the process so far, -1 where /proc is not available
+    private static long writtenBytes() throws Exception {
+        if (!Files.isReadable(PROCESS_IO)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(PROCESS_IO)) {
+            if (line.startsWith("wchar:")) {
+                return Long.parseLong(line.substring("wchar:".length()).trim());
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,145 @@
+package com.g8.utils;
+
+import com.g8.benchmark.SyntheticJar;
+import com.g8.model.ClassInfo;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Work done on the analysed classes after parsing: encoding and decoding the stored internal dependencies,
+ * building and loading the dependency graph, and the graph structures behind the /graph endpoints.
+ * Scores are milliseconds per project.
+ *
+ * The *Gson benchmarks are the path before CompactGraphCodec: each class went through JSON into a Map for the
+ * project document, and reading it back serialized the maps again. The encoded bytes per class of both forms are
+ * printed at setup, run with -prof gc for the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class GraphBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int classCount;
+
+    private static final Gson gson = new Gson();
+    private static final Type CLASS_LIST_TYPE = new TypeToken<List<ClassInfo>>() {}.getType();
+
+    private List<ClassInfo> classes;
+    private byte[] encodedClasses;
+    private List<Map<String, Object>> classMaps;
+    private DependencyGraph graph;
+    private byte[] encodedGraph;
+    private StronglyConnectedComponents components;
+
+    @Setup
+    public void setUp() {
+        classes = new ArrayList<>();
+        for (byte[] classBytes : new SyntheticJar(classCount, 8, 0.5, 2).classes()) {
+            ClassVisitor visitor = new ClassVisitor(new HashMap<>());
+            new ClassReader(classBytes).accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            classes.add(visitor.getClassInfo());
+        }
+        encodedClasses = CompactGraphCodec.encode(classes);
+        classMaps = encodeClassesGson();
+        int jsonBytes = gson.toJson(classMaps).getBytes(StandardCharsets.UTF_8).length;
+        System.out.printf("%n%d classes: compact %.1f bytes per class, json %.1f bytes per class%n", classCount,
+                (double) encodedClasses.length / classCount, (double) jsonBytes / classCount);
+        graph = DependencyGraph.fromClasses(classes);
+        encodedGraph = graph.toByteArray();
+        components = StronglyConnectedComponents.compute(graph, DependencyGraph.ALL_EDGE_TYPES);
+    }
+
+    @Benchmark
+    public byte[] encodeClasses() {
+        return CompactGraphCodec.encode(classes);
+    }
+
+    @Benchmark
+    public List<ClassInfo> decodeClasses() {
+        return CompactGraphCodec.decode(encodedClasses);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> encodeClassesGson() {
+        List<Map<String, Object>> maps = new ArrayList<>(classes.size());
+        for (ClassInfo classInfo : classes) {
+            maps.add(gson.fromJson(gson.toJson(classInfo), Map.class));
+        }
+        return maps;
+    }
+
+    @Benchmark
+    public List<ClassInfo> decodeClassesGson() {
+        return gson.fromJson(gson.toJson(classMaps), CLASS_LIST_TYPE);
+    }
+
+    // The /intDep response body
+    @Benchmark
+    public String writeJson() throws IOException {
+        StringWriter output = new StringWriter();
+        CompactGraphCodec.writeJson(encodedClasses, gson, gson.newJsonWriter(output));
+        return output.toString();
+    }
+
+    @Benchmark
+    public String writeJsonGson() {
+        return gson.toJson(classMaps);
+    }
+
+    @Benchmark
+    public DependencyGraph buildGraph() {
+        return DependencyGraph.fromClasses(classes);
+    }
+
+    @Benchmark
+    public DependencyGraph loadGraph() {
+        return DependencyGraph.fromByteArray(encodedGraph);
+    }
+
+    @Benchmark
+    public StronglyConnectedComponents components() {
+        return StronglyConnectedComponents.compute(graph, DependencyGraph.ALL_EDGE_TYPES);
+    }
+
+    @Benchmark
+    public ReachabilityIndex reachabilityIndex() {
+        return ReachabilityIndex.build(graph, components, DependencyGraph.ALL_EDGE_TYPES, 32L << 20);
+    }
+
+    @Benchmark
+    public PackageRollup packageRollup() {
+        return PackageRollup.fromGraph(graph);
+    }
+
+    @Benchmark
+    public LayeredLayout layout() {
+        return LayeredLayout.compute(graph, DependencyGraph.ALL_EDGE_TYPES, node -> true);
+    }
+}
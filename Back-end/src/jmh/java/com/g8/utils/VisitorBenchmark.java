@@ -0,0 +1,50 @@
+package com.g8.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+// String work the visitors do for every field and annotation they meet, run with -prof gc for the garbage it makes
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisitorBenchmark {
+
+    // Descriptors as they come out of class files: a class, a primitive, arrays of both and a generic collection
+    private static final String[] DESCRIPTORS = {
+            "Lorg/example/pkg7/Generated1207;", "I", "[[J", "[Ljava/lang/String;", "Ljava/util/List;"
+    };
+
+    private final ClassVisitor classVisitor = new ClassVisitor(new HashMap<>());
+
+    @Benchmark
+    public void getFieldType(Blackhole blackhole) {
+        for (String descriptor : DESCRIPTORS) {
+            blackhole.consume(classVisitor.getFieldType(descriptor));
+        }
+    }
+
+    // @GetMapping(value = {"/projects"}, produces = "application/json") with a nested annotation and an enum
+    @Benchmark
+    public String getFullAnnotation() {
+        PrintAnnotationVisitor visitor = new PrintAnnotationVisitor("org.springframework.web.bind.annotation.GetMapping");
+        visitor.visit("value", "/projects");
+        visitor.visit("produces", "application/json");
+        visitor.visitEnum("method", "Lorg/springframework/web/bind/annotation/RequestMethod;", "GET");
+        visitor.visitAnnotation("cache", "Lorg/springframework/cache/annotation/Cacheable;");
+        return visitor.getFullAnnotation();
+    }
+}
@@ -0,0 +1,218 @@
+package com.g8;
+
+import com.g8.service.AnalysisDepth;
+import com.g8.service.AnalysisSession;
+import com.g8.service.AnalyzeProjectService;
+import com.g8.utils.CompactGraphCodec;
+import com.google.gson.Gson;
+
+import java.io.BufferedWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/*
+ * Command line analysis of jars for batch jobs such as nightly CI runs. Runs the same scanning and class visiting
+ * as uploads, without the web context, Firebase or a project store, and writes the results of every jar to
+ * files in the output directory:
+ *
+ *   <jar>.jsonl          one class per line, in the JSON form of the /intDep response (--format jsonl, default)
+ *   <jar>.graph          the classes in the compact binary form projects are stored in (--format compact)
+ *   <jar>.external.json  the dependencies of the POM files in the jar
+ *   <jar>.calls          the method call graph (--depth deep only)
+ *
+ * From the application jar, without starting Spring:
+ *   java -cp back-end.jar -Dloader.main=com.g8.BatchAnalyzer org.springframework.boot.loader.launch.PropertiesLauncher \
+ *        [options] <jar or directory>...
+ *
+ * Directories are searched for jars recursively. A few jars are analysed at a time (--jobs), their classes share
+ * one parsing pool (--threads), so memory stays bounded by the largest jars in flight and not by the whole batch.
+ * Exits with 1 if any jar failed and 2 on invalid arguments.
+ */
+public class BatchAnalyzer {
+
+    static final String USAGE = """
+            Usage: BatchAnalyzer [options] <jar or directory>...
+              --package <name>     package of the classes to analyse, all classes by default
+              --output <dir>       directory the results are written to (default: analysis)
+              --format <format>    jsonl or compact (default: jsonl)
+              --depth <depth>      structural or deep, deep also writes the method call graph (default: structural)
+              --jobs <n>           jars analysed at the same time (default: 2)
+              --threads <n>        class parsing threads shared by all jars, 0 for one per core (default: 0)
+              --nested <patterns>  comma separated globs of nested BOOT-INF/lib jars to analyse too, e.g. acme-*.jar""";
+
+    private static final Gson gson = new Gson();
+
+    private String classContainer = "";
+    private Path outputDirectory = Path.of("analysis");
+    private String format = "jsonl";
+    private AnalysisDepth analysisDepth = AnalysisDepth.STRUCTURAL;
+    private int jobs = 2;
+    private int threads = 0;
+    private List<String> nestedLibraries = List.of();
+    private final List<Path> inputs = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+
+        BatchAnalyzer batchAnalyzer;
+        try {
+            batchAnalyzer = fromArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        System.exit(batchAnalyzer.run(System.out, System.err) ? 0 : 1);
+    }
+
+    static BatchAnalyzer fromArguments(String[] args) {
+
+        BatchAnalyzer batchAnalyzer = new BatchAnalyzer();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                batchAnalyzer.inputs.add(Path.of(arg));
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--package" -> batchAnalyzer.classContainer = value;
+                case "--output" -> batchAnalyzer.outputDirectory = Path.of(value);
+                case "--format" -> {
+                    if (!value.equals("jsonl") && !value.equals("compact")) {
+                        throw new IllegalArgumentException("Unknown format " + value);
+                    }
+                    batchAnalyzer.format = value;
+                }
+                case "--depth" -> {
+                    try {
+                        batchAnalyzer.analysisDepth = AnalysisDepth.valueOf(value.toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown depth " + value);
+                    }
+                }
+                case "--jobs" -> batchAnalyzer.jobs = parseCount(arg, value, 1);
+                case "--threads" -> batchAnalyzer.threads = parseCount(arg, value, 0);
+                case "--nested" -> batchAnalyzer.nestedLibraries = List.of(value.split(","));
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (batchAnalyzer.inputs.isEmpty()) {
+            throw new IllegalArgumentException("No jars given");
+        }
+        return batchAnalyzer;
+    }
+
+    private static int parseCount(String option, String value, int min) {
+        try {
+            int count = Integer.parseInt(value);
+            if (count >= min) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(option + " must be a number of at least " + min);
+    }
+
+    // Analyses every jar of the inputs, returns false if an input is missing or a jar failed
+    boolean run(PrintStream out, PrintStream err) throws Exception {
+
+        boolean succeeded = true;
+        List<Path> jars = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> files = Files.walk(input)) {
+                    files.filter(file -> file.toString().endsWith(".jar") && Files.isRegularFile(file)).sorted().forEach(jars::add);
+                }
+            } else if (Files.isRegularFile(input)) {
+                jars.add(input);
+            } else {
+                err.println(input + ": no such file or directory");
+                succeeded = false;
+            }
+        }
+        Files.createDirectories(outputDirectory);
+
+        // The store is never used, scanning only fills the sessions
+        AnalyzeProjectService analyzeProjectService = new AnalyzeProjectService(null);
+        analyzeProjectService.setParallelism(threads);
+        analyzeProjectService.setAnalysisDepth(analysisDepth);
+        analyzeProjectService.setNestedLibraries(nestedLibraries);
+
+        ExecutorService executor = Executors.newFixedThreadPool(jobs);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            Set<String> outputNames = new HashSet<>();
+            for (Path jar : jars) {
+                String outputName = outputName(jar, outputNames);
+                results.add(executor.submit(() -> analyze(analyzeProjectService, jar, outputName)));
+            }
+            for (int i = 0; i < jars.size(); i++) {
+                try {
+                    out.println(results.get(i).get());
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    err.println(jars.get(i) + ": " + cause.getMessage());
+                    succeeded = false;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            analyzeProjectService.shutdownAnalysisPool();
+        }
+        return succeeded;
+    }
+
+    // Jars with the same file name in different directories get a number appended
+    private static String outputName(Path jar, Set<String> outputNames) {
+        String fileName = jar.getFileName().toString();
+        String name = fileName.substring(0, fileName.length() - ".jar".length());
+        String outputName = name;
+        for (int i = 2; !outputNames.add(outputName); i++) {
+            outputName = name + "-" + i;
+        }
+        return outputName;
+    }
+
+    private String analyze(AnalyzeProjectService analyzeProjectService, Path jar, String outputName) throws Exception {
+
+        long start = System.nanoTime();
+        AnalysisSession session = new AnalysisSession(classContainer);
+        session.setFilePath(jar.toString());
+        analyzeProjectService.scanJar(session);
+
+        byte[] classes = session.getInternalDependencies().toByteArray();
+        if (format.equals("compact")) {
+            Files.write(outputDirectory.resolve(outputName + ".graph"), classes);
+        } else {
+            try (BufferedWriter writer = Files.newBufferedWriter(outputDirectory.resolve(outputName + ".jsonl"), StandardCharsets.UTF_8)) {
+                CompactGraphCodec.Reader reader = new CompactGraphCodec.Reader(classes);
+                while (reader.hasNext()) {
+                    writer.write(gson.toJson(reader.next()));
+                    writer.newLine();
+                }
+            }
+        }
+        Files.writeString(outputDirectory.resolve(outputName + ".external.json"), gson.toJson(session.getExternalDependencies()));
+        if (session.getCallGraph() != null) {
+            Files.write(outputDirectory.resolve(outputName + ".calls"), session.getCallGraph().build().toByteArray());
+        }
+
+        return String.format("%s: %d classes, %d external dependencies in %d ms", jar, session.getClassList().size(),
+                session.getExternalDependencies().size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
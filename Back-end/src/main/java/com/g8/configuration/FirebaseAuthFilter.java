@@ -0,0 +1,42 @@
+package com.g8.configuration;
+
+import com.g8.service.AuthService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Resolves the user of the Authorization header once per request and stores the uid as a request attribute.
+// Requests without a valid token pass through without the attribute, the handlers decide whether they need it
+@Component
+public class FirebaseAuthFilter extends OncePerRequestFilter {
+
+    public static final String USER_ID = "uid";
+
+    private final AuthService authService;
+
+    public FirebaseAuthFilter(AuthService authService) {
+        this.authService = authService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+
+        String idToken = request.getHeader("Authorization");
+        if (idToken != null && !idToken.isEmpty()) {
+            try {
+                String userId = authService.getUserId(idToken);
+                if (userId != null) {
+                    request.setAttribute(USER_ID, userId);
+                }
+            } catch (RuntimeException e) {
+                // Invalid or expired token, the request stays unauthenticated
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -9,6 +9,7 @@ import com.google.firebase.cloud.FirestoreClient;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -50,7 +51,9 @@ public class FirebaseConfig {
         return null;
     }
 
+    // Only needed when projects are stored in Firestore, see storage.type
     @Bean
+    @ConditionalOnProperty(name = "storage.type", havingValue = "firestore", matchIfMissing = true)
     public Firestore getFirestore() {
         return FirestoreClient.getFirestore();
     }
@@ -0,0 +1,70 @@
+package com.g8.configuration;
+
+import com.g8.service.AnalysisCache;
+import com.g8.service.AnalysisJobService;
+import com.g8.service.AnalyzeProjectService;
+import com.g8.service.AuthService;
+import com.g8.service.GraphLayoutService;
+import com.g8.service.ProjectGraphCache;
+import com.g8.service.ProjectResponseCache;
+import com.g8.utils.LruCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Gauges over state the services already keep: the statistics of the in-memory caches and the work waiting
+// in the executors. They are read when /actuator/prometheus is scraped
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder cacheMetrics(AnalysisCache analysisCache, ProjectResponseCache responseCache,
+                                    ProjectGraphCache graphCache, AuthService authService) {
+        return registry -> {
+            bindCache(registry, "analysis.projects", analysisCache.getProjects());
+            bindCache(registry, "analysis.classes", analysisCache.getClasses());
+            bindCache(registry, "responses", responseCache.getResponses());
+            bindCache(registry, "graphs", graphCache.getGraphs());
+            bindCache(registry, "tokens", authService.getVerifiedTokens());
+        };
+    }
+
+    @Bean
+    public MeterBinder queueMetrics(AnalysisJobService analysisJobService, AnalyzeProjectService analyzeProjectService,
+                                    GraphLayoutService graphLayoutService) {
+        return registry -> {
+            Gauge.builder("analysis.jobs.queued", analysisJobService, AnalysisJobService::getQueueDepth)
+                    .description("Uploads waiting for an analysis worker")
+                    .register(registry);
+            Gauge.builder("analysis.pool.queued", analyzeProjectService, AnalyzeProjectService::getQueuedClassCount)
+                    .description("Classes waiting for a worker of the parsing pool")
+                    .register(registry);
+            Gauge.builder("graph.layout.pending", graphLayoutService, GraphLayoutService::getPendingCount)
+                    .description("Layouts queued or being computed")
+                    .register(registry);
+        };
+    }
+
+    // Same names as the cache meters Micrometer binds for Caffeine and friends, the weight is the cache's own unit
+    // (entries, bytes of responses or estimated bytes of graphs)
+    private static void bindCache(MeterRegistry registry, String name, LruCache<?, ?> cache) {
+        FunctionCounter.builder("cache.gets", cache, LruCache::getHits)
+                .tag("cache", name).tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", cache, LruCache::getMisses)
+                .tag("cache", name).tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", cache, LruCache::getEvictions)
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("cache.size", cache, LruCache::size)
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("cache.weight", cache, LruCache::getWeight)
+                .tag("cache", name)
+                .register(registry);
+    }
+}
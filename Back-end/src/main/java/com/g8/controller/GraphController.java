@@ -0,0 +1,282 @@
+package com.g8.controller;
+
+import com.g8.configuration.FirebaseAuthFilter;
+import com.g8.service.GraphLayoutService;
+import com.g8.service.ProjectGraphService;
+import com.g8.utils.DependencyGraph;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Queries on the class dependency graph of stored projects
+@RestController
+@RequestMapping("/graph")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class GraphController {
+
+    // Largest page the paginated endpoints return
+    private static final int MAX_PAGE_SIZE = 10000;
+
+    private final ProjectGraphService projectGraphService;
+    private final GraphLayoutService graphLayoutService;
+
+    @Autowired
+    public GraphController(ProjectGraphService projectGraphService, GraphLayoutService graphLayoutService) {
+        this.projectGraphService = projectGraphService;
+        this.graphLayoutService = graphLayoutService;
+    }
+
+    // Retrieves one page of the dependency cycles of a project, largest first.
+    // edgeTypes limits the edges followed, by default all of them
+    @GetMapping("/cycles")
+    public ResponseEntity<String> getCycles(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,
+                                            @RequestHeader("project_id") String projectId,
+                                            @RequestParam(value = "edgeTypes", required = false) List<String> edgeTypes,
+                                            @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
+        }
+
+        if(projectId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Project ID is empty. Cannot retrieve the cycles.");
+        }
+
+        int edgeTypeMask = edgeTypeMask(edgeTypes);
+        if (edgeTypeMask < 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(edgeTypesMessage());
+        }
+
+        if (offset < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Offset must not be negative and limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+
+        try {
+            CompletableFuture<String> response = projectGraphService.getCycles(projectId, edgeTypeMask, offset, limit);
+            response.join();
+            if (response.get() == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Project not found.");
+            }
+            return ResponseEntity.ok(response.get());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    // Retrieves the strongly connected component of a class, the classes it forms a cycle with
+    @GetMapping("/component")
+    public ResponseEntity<String> getComponent(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,
+                                               @RequestHeader("project_id") String projectId,
+                                               @RequestParam("className") String className,
+                                               @RequestParam(value = "edgeTypes", required = false) List<String> edgeTypes) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
+        }
+
+        if(projectId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Project ID is empty. Cannot retrieve the component.");
+        }
+
+        int edgeTypeMask = edgeTypeMask(edgeTypes);
+        if (edgeTypeMask < 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(edgeTypesMessage());
+        }
+
+        try {
+            CompletableFuture<String> response = projectGraphService.getComponent(projectId, className, edgeTypeMask);
+            response.join();
+            if (response.get() == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Class " + className + " not found in the project.");
+            }
+            return ResponseEntity.ok(response.get());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    // Retrieves one page of the classes that depend on a class (direction=dependents), or that the class depends on
+    // (direction=dependencies), directly or transitively. depth limits how many dependencies away they may be
+    @GetMapping("/impact")
+    public ResponseEntity<String> getImpact(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,
+                                            @RequestHeader("project_id") String projectId,
+                                            @RequestParam("className") String className,
+                                            @RequestParam(value = "direction", defaultValue = "dependents") String direction,
+                                            @RequestParam(value = "depth", defaultValue = "0") int depth,
+                                            @RequestParam(value = "edgeTypes", required = false) List<String> edgeTypes,
+                                            @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                            @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
+        }
+
+        if(projectId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Project ID is empty. Cannot retrieve the impact of the class.");
+        }
+
+        if (!direction.equals("dependents") && !direction.equals("dependencies")) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Direction must be dependents or dependencies.");
+        }
+
+        if (depth < 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Depth must not be negative, 0 means no limit.");
+        }
+
+        int edgeTypeMask = edgeTypeMask(edgeTypes);
+        if (edgeTypeMask < 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(edgeTypesMessage());
+        }
+
+        if (offset < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Offset must not be negative and limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+
+        try {
+            CompletableFuture<String> response = projectGraphService.getImpact(projectId, className, direction.equals("dependents"),
+                    depth, edgeTypeMask, offset, limit);
+            response.join();
+            if (response.get() == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Class " + className + " not found in the project.");
+            }
+            return ResponseEntity.ok(response.get());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    // Retrieves one page of the subgraph around a class: the classes within radius dependencies of it in either
+    // direction and the edges between them, optionally limited to a package. Pass the nextCursor of a page as
+    // cursor to get the next one
+    @GetMapping("/neighborhood")
+    public ResponseEntity<String> getNeighborhood(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,
+                                                  @RequestHeader("project_id") String projectId,
+                                                  @RequestParam("className") String className,
+                                                  @RequestParam(value = "radius", defaultValue = "1") int radius,
+                                                  @RequestParam(value = "edgeTypes", required = false) List<String> edgeTypes,
+                                                  @RequestParam(value = "package", required = false) String packageName,
+                                                  @RequestParam(value = "cursor", defaultValue = "0") String cursor,
+                                                  @RequestParam(value = "limit", defaultValue = "500") int limit) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
+        }
+
+        if(projectId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Project ID is empty. Cannot retrieve the neighborhood of the class.");
+        }
+
+        if (radius < 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Radius must not be negative.");
+        }
+
+        int edgeTypeMask = edgeTypeMask(edgeTypes);
+        if (edgeTypeMask < 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(edgeTypesMessage());
+        }
+
+        int position;
+        try {
+            position = Integer.parseInt(cursor);
+        } catch (NumberFormatException e) {
+            position = -1;
+        }
+        if (position < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Invalid cursor, or limit not between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+
+        try {
+            CompletableFuture<String> response = projectGraphService.getNeighborhood(projectId, className, radius, edgeTypeMask,
+                    packageName, position, limit);
+            response.join();
+            if (response.get() == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Class " + className + " not found in the project.");
+            }
+            return ResponseEntity.ok(response.get());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    // Retrieves one level of the package tree of a project, by default the top level, with the number of
+    // dependencies between its subpackages and classes
+    @GetMapping("/packages")
+    public ResponseEntity<String> getPackageView(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,
+                                                 @RequestHeader("project_id") String projectId,
+                                                 @RequestParam(value = "package", defaultValue = "") String packageName) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
+        }
+
+        if(projectId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Project ID is empty. Cannot retrieve the packages.");
+        }
+
+        try {
+            CompletableFuture<String> response = projectGraphService.getPackageView(projectId, packageName);
+            response.join();
+            if (response.get() == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Package " + packageName + " not found in the project.");
+            }
+            return ResponseEntity.ok(response.get());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    // Retrieves one page of the positions of the classes of a view, computed once per project and view by a
+    // background worker. Responds with 202 until the layout is ready
+    @GetMapping("/layout")
+    public ResponseEntity<String> getLayout(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,
+                                            @RequestHeader("project_id") String projectId,
+                                            @RequestParam(value = "edgeTypes", required = false) List<String> edgeTypes,
+                                            @RequestParam(value = "package", required = false) String packageName,
+                                            @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                            @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
+        }
+
+        if(projectId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Project ID is empty. Cannot retrieve the layout.");
+        }
+
+        int edgeTypeMask = edgeTypeMask(edgeTypes);
+        if (edgeTypeMask < 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(edgeTypesMessage());
+        }
+
+        if (offset < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Offset must not be negative and limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+
+        return graphLayoutService.getLayout(projectId, edgeTypeMask, packageName, offset, limit);
+    }
+
+    // All edge types if none are given, -1 if one of them is unknown
+    private static int edgeTypeMask(List<String> edgeTypes) {
+        if (edgeTypes == null || edgeTypes.isEmpty()) {
+            return DependencyGraph.ALL_EDGE_TYPES;
+        }
+        return DependencyGraph.edgeTypeMask(edgeTypes);
+    }
+
+    private static String edgeTypesMessage() {
+        return "Unknown edge type. Valid edge types are " + String.join(", ", DependencyGraph.EDGE_TYPES) + ".";
+    }
+}
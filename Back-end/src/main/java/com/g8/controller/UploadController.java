@@ -1,18 +1,27 @@
 package com.g8.controller;
 
+import com.g8.configuration.FirebaseAuthFilter;
+import com.g8.service.AnalysisJob;
+import com.g8.service.AnalysisJobService;
 import com.g8.service.AnalyzeProjectService;
-import com.g8.service.AuthService;
 import com.g8.service.DependencyRetrievalService;
+import com.g8.storage.ProjectData;
 import com.google.gson.Gson;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 @RestController
@@ -20,27 +29,29 @@ import java.util.concurrent.CompletableFuture;
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class UploadController {
 
+    // Largest page the paginated endpoints return
+    private static final int MAX_PAGE_SIZE = 10000;
+
     private final AnalyzeProjectService analyzeProjectService;
-    private final AuthService authService;
     private final DependencyRetrievalService dependencyRetrievalService;
+    private final AnalysisJobService analysisJobService;
 
     @Autowired
-    public UploadController(AnalyzeProjectService analyzeProjectService, AuthService authService, DependencyRetrievalService dependencyRetrievalService) {
+    public UploadController(AnalyzeProjectService analyzeProjectService, DependencyRetrievalService dependencyRetrievalService, AnalysisJobService analysisJobService) {
         this.analyzeProjectService = analyzeProjectService;
-        this.authService = authService;
         this.dependencyRetrievalService = dependencyRetrievalService;
+        this.analysisJobService = analysisJobService;
     }
 
     // Saves the uploaded file and analyzes it
     @PostMapping("/upload")
     public ResponseEntity<String> uploadProject(@RequestParam("file") MultipartFile file,
                                                 @RequestParam("classContainer") String classContainer,
-                                                @RequestHeader("Authorization") String idToken) {
-        if (!authService.verifyToken(idToken)) {
+                                                @RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId) {
+        if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
         }
 
-        String userId = authService.getUserId(idToken);
         // Validate input parameters
         if (file.isEmpty()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -57,11 +68,115 @@ public class UploadController {
         }
     }
 
+    // Saves the uploaded file and queues its analysis, the response only contains the job id
+    @PostMapping("/uploadAsync")
+    public ResponseEntity<String> uploadProjectAsync(@RequestParam("file") MultipartFile file,
+                                                     @RequestParam("classContainer") String classContainer,
+                                                     @RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
+        }
+
+        // Validate input parameters
+        if (file.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("File is empty. Please upload a valid file.");
+        }
+        if (classContainer == null || classContainer.trim().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Class container is required.");
+        }
+        try {
+            return analysisJobService.submitUpload(file, classContainer, userId);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    // Reports the progress of a queued analysis, contains the project id once it is completed
+    @GetMapping("/jobStatus")
+    public ResponseEntity<String> getJobStatus(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,
+                                               @RequestParam("jobId") String jobId) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
+        }
+
+        AnalysisJob job = analysisJobService.getJob(jobId, userId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Job not found.");
+        }
+        return ResponseEntity.ok(new Gson().toJson(job.toStatus()));
+    }
+
+    // Retrieves the project in one response, sections limits it to some of intDep, extDep and classList
+    @GetMapping("/project")
+    public ResponseEntity<String> getProject(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,
+                                             @RequestHeader("project_id") String projectId,
+                                             @RequestParam(value = "sections", required = false) List<String> sections) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
+        }
+
+        if(projectId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Project ID is empty. Cannot retrieve the project.");
+        }
+
+        Set<String> requestedSections = requestedSections(sections);
+        String unknownSection = findUnknownSection(requestedSections);
+        if (unknownSection != null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(unknownSectionMessage(unknownSection));
+        }
+
+        try {
+            CompletableFuture<String> response = dependencyRetrievalService.getProject(projectId, requestedSections);
+            response.join();
+            return ResponseEntity.ok(response.get());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    // Same as /project but the response is written while the project is read instead of being built in memory first,
+    // for projects too large to hold their whole JSON per request
+    @GetMapping(value = "/project", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamProject(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,
+                                                               @RequestHeader("project_id") String projectId,
+                                                               @RequestParam(value = "sections", required = false) List<String> sections) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(message("Unauthorized API access"));
+        }
+
+        if(projectId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(message("Project ID is empty. Cannot retrieve the project."));
+        }
+
+        Set<String> requestedSections = requestedSections(sections);
+        String unknownSection = findUnknownSection(requestedSections);
+        if (unknownSection != null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(message(unknownSectionMessage(unknownSection)));
+        }
+
+        // Once streaming has started the status is sent, so a failure can only abort the response
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> {
+                    try {
+                        dependencyRetrievalService.writeProject(projectId, requestedSections, outputStream);
+                    } catch (IOException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IOException("Error retrieving project", e);
+                    }
+                });
+    }
+
     // Retrieves internal dependencies
     @GetMapping("/intDep")
-    public ResponseEntity<String> getInternalDependencies(@RequestHeader("Authorization") String idToken,
+    public ResponseEntity<String> getInternalDependencies(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,
                                                           @RequestHeader("project_id") String projectId) {
-        if (!authService.verifyToken(idToken)) {
+        if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
         }
 
@@ -81,11 +196,70 @@ public class UploadController {
         }
     }
 
+    // Streaming variant of /intDep, see /project?stream=true
+    @GetMapping(value = "/intDep", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamInternalDependencies(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,
+                                                                            @RequestHeader("project_id") String projectId) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(message("Unauthorized API access"));
+        }
+
+        if(projectId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(message("Project ID is empty. Cannot retrieve the internal dependency."));
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> {
+                    try {
+                        dependencyRetrievalService.writeInternalDependencies(projectId, outputStream);
+                    } catch (IOException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IOException("Error retrieving internal dependencies", e);
+                    }
+                });
+    }
+
+    // Retrieves one page of the method call graph of a project analysed with analysis.depth=deep.
+    // Methods are paged in id order, the calls of a method are the ids of the methods it calls
+    @GetMapping("/callGraph")
+    public ResponseEntity<String> getCallGraph(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,
+                                               @RequestHeader("project_id") String projectId,
+                                               @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                               @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
+        }
+
+        if(projectId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Project ID is empty. Cannot retrieve the call graph.");
+        }
+
+        if (offset < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Offset must not be negative and limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+
+        try {
+            CompletableFuture<String> response = dependencyRetrievalService.getCallGraph(projectId, offset, limit);
+            response.join();
+            if (response.get() == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("The project has no call graph.");
+            }
+            return ResponseEntity.ok(response.get());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
     // Retrieves external dependencies
     @GetMapping("/extDep")
-    public ResponseEntity<String> getExternalDependencies(@RequestHeader("Authorization") String idToken,
+    public ResponseEntity<String> getExternalDependencies(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,
                                                           @RequestHeader("project_id") String projectId) {
-        if (!authService.verifyToken(idToken)) {
+        if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
         }
 
@@ -106,9 +280,9 @@ public class UploadController {
 
     // Retrieves all the class names
     @GetMapping("/classList")
-    public ResponseEntity<String> getClasses(@RequestHeader("Authorization") String idToken,
+    public ResponseEntity<String> getClasses(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,
                                              @RequestHeader("project_id") String projectId) {
-        if (!authService.verifyToken(idToken)) {
+        if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
         }
 
@@ -128,14 +302,9 @@ public class UploadController {
     }
 
     @GetMapping("/userProjects")
-    public ResponseEntity<String> getUserProjects(@RequestHeader("Authorization") String idToken) {
-        if (!authService.verifyToken(idToken)) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
-        }
-
-        String userId = authService.getUserId(idToken);
+    public ResponseEntity<String> getUserProjects(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId) {
         if (userId == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid user");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
         }
 
         try {
@@ -148,14 +317,10 @@ public class UploadController {
     }
 
     @PostMapping("/createCustomView")
-    public ResponseEntity<String> createCustomView(@RequestHeader("Authorization") String idToken,@RequestBody Map<String, Object> data) {
+    public ResponseEntity<String> createCustomView(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId,@RequestBody Map<String, Object> data) {
         String projectId = data.get("projectId").toString();
-        if (!authService.verifyToken(idToken)) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
-        }
-        String userId = authService.getUserId(idToken);
         if (userId == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid user");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
         }
 
         try {
@@ -168,8 +333,8 @@ public class UploadController {
     }
 
     @GetMapping("/getCustomView")
-    public ResponseEntity<String> getCustomView(@RequestHeader("Authorization") String idToken, @RequestParam("customViewId") String customViewId) {
-        if(!authService.verifyToken(idToken)) {
+    public ResponseEntity<String> getCustomView(@RequestAttribute(value = FirebaseAuthFilter.USER_ID, required = false) String userId, @RequestParam("customViewId") String customViewId) {
+        if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized API access");
         }
         try {
@@ -180,4 +345,26 @@ public class UploadController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
         }
     }
+
+    private static Set<String> requestedSections(List<String> sections) {
+        return new LinkedHashSet<>(sections == null || sections.isEmpty() ? ProjectData.SECTIONS : sections);
+    }
+
+    // Returns the first section that is not one of ProjectData.SECTIONS, null if all are known
+    private static String findUnknownSection(Set<String> sections) {
+        for (String section : sections) {
+            if (!ProjectData.SECTIONS.contains(section)) {
+                return section;
+            }
+        }
+        return null;
+    }
+
+    private static String unknownSectionMessage(String section) {
+        return "Unknown section: " + section + ". Supported sections are " + String.join(", ", ProjectData.SECTIONS) + ".";
+    }
+
+    private static StreamingResponseBody message(String message) {
+        return outputStream -> outputStream.write(message.getBytes(StandardCharsets.UTF_8));
+    }
 }
@@ -0,0 +1,102 @@
+package com.g8.service;
+
+import com.g8.model.ClassInfo;
+import com.g8.utils.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Content addressed caches for the analysis: whole jars map to the project they produced,
+// single class files map to their parsed result so unchanged classes skip ASM on re-uploads.
+// Both are keyed by the analysis depth too, a DEEP analysis never gets the results of a STRUCTURAL one
+@Component
+public class AnalysisCache {
+
+    // "<jar hash>:<package prefix>:<analysis depth>" -> project id
+    private final LruCache<String, String> projects;
+
+    // "<analysis depth>:<class file hash>" -> parsed class
+    private final LruCache<String, AnalyzeProjectService.ParsedClass> classes;
+
+    public AnalysisCache(@Value("${analysis.cache.max-projects:1000}") int maxProjects,
+                         @Value("${analysis.cache.max-classes:200000}") int maxClasses) {
+        this.projects = new LruCache<>(maxProjects);
+        this.classes = new LruCache<>(maxClasses);
+    }
+
+    public String getProject(String jarHash, String userPackagePrefix, AnalysisDepth analysisDepth) {
+        return projects.get(jarHash + ":" + userPackagePrefix + ":" + analysisDepth);
+    }
+
+    public void putProject(String jarHash, String userPackagePrefix, AnalysisDepth analysisDepth, String projectId) {
+        projects.put(jarHash + ":" + userPackagePrefix + ":" + analysisDepth, projectId);
+    }
+
+    // Every caller gets its own ClassInfo because the session links nested classes into it,
+    // the cached one is never handed out
+    AnalyzeProjectService.ParsedClass getClass(String classHash, AnalysisDepth analysisDepth) {
+        AnalyzeProjectService.ParsedClass cached = classes.get(analysisDepth + ":" + classHash);
+        if (cached == null) {
+            return null;
+        }
+        return new AnalyzeProjectService.ParsedClass(copyOf(cached.classInfo()), cached.nestedClasses(), cached.methodCalls());
+    }
+
+    void putClass(String classHash, AnalysisDepth analysisDepth, AnalyzeProjectService.ParsedClass parsedClass) {
+        classes.put(analysisDepth + ":" + classHash, new AnalyzeProjectService.ParsedClass(copyOf(parsedClass.classInfo()), parsedClass.nestedClasses(), parsedClass.methodCalls()));
+    }
+
+    public LruCache<String, String> getProjects() {
+        return projects;
+    }
+
+    public LruCache<String, AnalyzeProjectService.ParsedClass> getClasses() {
+        return classes;
+    }
+
+    public static String sha256(byte[] bytes) {
+        return hex(newDigest().digest(bytes));
+    }
+
+    public static String sha256(InputStream inputStream) throws Exception {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, bytesRead);
+        }
+        return hex(digest.digest());
+    }
+
+    static String hex(byte[] digest) {
+        return HexFormat.of().formatHex(digest);
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Shallow copy, the lists are never modified after parsing, only replaced
+    private static ClassInfo copyOf(ClassInfo classInfo) {
+        ClassInfo copy = new ClassInfo();
+        copy.setName(classInfo.getName());
+        copy.setInherits(classInfo.getInherits());
+        copy.setClassType(classInfo.getClassType());
+        copy.setVariableList(classInfo.getVariableList());
+        copy.setMethodList(classInfo.getMethodList());
+        copy.setNested(classInfo.isNested());
+        copy.setControllerClass(classInfo.isControllerClass());
+        copy.setNestedClassesList(classInfo.getNestedClassesList());
+        copy.setAnnotations(classInfo.getAnnotations());
+        copy.setImplementationList(classInfo.getImplementationList());
+        return copy;
+    }
+}
@@ -0,0 +1,25 @@
+package com.g8.service;
+
+import org.objectweb.asm.ClassReader;
+
+// How much of each class file ASM decodes, set with the analysis.depth property
+public enum AnalysisDepth {
+
+    // Class, field and method signatures with their annotations, which is all the dependency graph uses.
+    // Method bodies, debug attributes and stack map frames are skipped without being decoded
+    STRUCTURAL(ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES),
+
+    // Everything including the bytecode of method bodies, for analyses that look inside methods
+    DEEP(0);
+
+    private final int parsingOptions;
+
+    AnalysisDepth(int parsingOptions) {
+        this.parsingOptions = parsingOptions;
+    }
+
+    // Flags for ClassReader.accept
+    public int getParsingOptions() {
+        return parsingOptions;
+    }
+}
@@ -0,0 +1,82 @@
+package com.g8.service;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// An upload that is analyzed in the background, the client polls its status with the job id
+@Getter
+public class AnalysisJob {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private final String jobId;
+    private final String userId;
+
+    // Only held until the job finishes, the analysis results are large and already saved by then
+    private volatile AnalysisSession session;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile String projectId;
+    private volatile String error;
+
+    // Progress of the analysis as it was when the job finished
+    private volatile String phase;
+    private volatile int entriesScanned;
+    private volatile int totalEntries;
+
+    // Time the job finished, used to drop old jobs from memory
+    private volatile long finishedAt;
+
+    public AnalysisJob(String jobId, String userId, AnalysisSession session) {
+        this.jobId = jobId;
+        this.userId = userId;
+        this.session = session;
+    }
+
+    void start() {
+        status = Status.RUNNING;
+    }
+
+    void complete(String projectId) {
+        this.projectId = projectId;
+        finish("completed", Status.COMPLETED);
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finish("failed", Status.FAILED);
+    }
+
+    // Keeps the progress counters and lets go of the session
+    private void finish(String phase, Status status) {
+        AnalysisSession finishedSession = session;
+        if (finishedSession != null) {
+            this.entriesScanned = finishedSession.getEntriesScanned();
+            this.totalEntries = finishedSession.getTotalEntries();
+        }
+        this.phase = phase;
+        this.session = null;
+        this.finishedAt = System.currentTimeMillis();
+        this.status = status;
+    }
+
+    boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    // Status response sent to the client
+    public Map<String, Object> toStatus() {
+        AnalysisSession runningSession = session;
+        Map<String, Object> response = new HashMap<>();
+        response.put("jobId", jobId);
+        response.put("status", status.name());
+        response.put("phase", runningSession != null ? runningSession.getPhase() : phase);
+        response.put("entriesScanned", runningSession != null ? runningSession.getEntriesScanned() : entriesScanned);
+        response.put("totalEntries", runningSession != null ? runningSession.getTotalEntries() : totalEntries);
+        response.put("projectId", projectId);
+        response.put("error", error);
+        return response;
+    }
+}
@@ -0,0 +1,142 @@
+package com.g8.service;
+
+import com.google.gson.Gson;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Runs uploaded project analyses in the background so the upload request can return right away
+@Service
+public class AnalysisJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisJobService.class);
+    private static final Gson gson = new Gson();
+
+    private final AnalyzeProjectService analyzeProjectService;
+
+    // Fixed number of workers with a bounded backlog, uploads beyond the backlog are rejected
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+
+    // Drops expired jobs even when no uploads come in
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "analysis-job-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // How long finished jobs can still be polled
+    private final long retentionMillis;
+
+    public AnalysisJobService(AnalyzeProjectService analyzeProjectService,
+                              @Value("${analysis.jobs.workers:2}") int workers,
+                              @Value("${analysis.jobs.queue-capacity:20}") int queueCapacity,
+                              @Value("${analysis.jobs.retention-minutes:60}") long retentionMinutes) {
+        this.analyzeProjectService = analyzeProjectService;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.AbortPolicy());
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        cleaner.scheduleWithFixedDelay(this::removeExpiredJobs, 1, 1, TimeUnit.MINUTES);
+    }
+
+    // Stores the upload and queues its analysis, responds with the job id
+    public ResponseEntity<String> submitUpload(MultipartFile file, String classContainer, String userId) throws Exception {
+
+        String fileName = file.getOriginalFilename();
+        if (fileName == null || !fileName.endsWith(".jar")) {
+            return new ResponseEntity<>("Unsupported file", HttpStatus.BAD_REQUEST);
+        }
+
+        // Rejected before the upload is copied, a full backlog must not fill the disk. A job can still be rejected
+        // below when another upload takes the last slot in the meantime
+        if (executor.getQueue().remainingCapacity() == 0) {
+            return queueFull();
+        }
+
+        // The multipart body is gone once the request ends, so the job works on its own copy
+        AnalysisSession session = new AnalysisSession(classContainer);
+        Path jarPath = Files.createTempFile("upload-", ".jar");
+        session.setFilePath(jarPath.toString());
+        try {
+            file.transferTo(jarPath);
+        } catch (Exception e) {
+            Files.deleteIfExists(jarPath);
+            throw e;
+        }
+
+        AnalysisJob job = new AnalysisJob(UUID.randomUUID().toString(), userId, session);
+        jobs.put(job.getJobId(), job);
+
+        try {
+            executor.execute(() -> runJob(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getJobId());
+            analyzeProjectService.deleteFile(session);
+            return queueFull();
+        }
+
+        return new ResponseEntity<>(gson.toJson(Map.of("jobId", job.getJobId())), HttpStatus.ACCEPTED);
+    }
+
+    private static ResponseEntity<String> queueFull() {
+        return new ResponseEntity<>("Analysis queue is full. Please try again later.", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    // Returns the job if it exists and belongs to the user
+    public AnalysisJob getJob(String jobId, String userId) {
+        AnalysisJob job = jobs.get(jobId);
+        if (job == null || !job.getUserId().equals(userId)) {
+            return null;
+        }
+        return job;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private void runJob(AnalysisJob job) {
+
+        AnalysisSession session = job.getSession();
+        job.start();
+        try {
+            String projectId = analyzeProjectService.analyzeFile(session, job.getUserId());
+            job.complete(projectId);
+        } catch (Exception e) {
+            // The cause is only logged, the job status shown to the client keeps a fixed message
+            logger.error("Analysis job " + job.getJobId() + " failed", e);
+            job.fail("Error while analyzing the project");
+        } finally {
+            analyzeProjectService.deleteFile(session);
+        }
+    }
+
+    void removeExpiredJobs() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> job.isFinished() && now - job.getFinishedAt() > retentionMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        cleaner.shutdownNow();
+    }
+}
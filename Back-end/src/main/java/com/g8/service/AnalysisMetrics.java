@@ -0,0 +1,94 @@
+package com.g8.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Meters of the upload analysis and of the store calls it makes, published on /actuator/prometheus.
+// Phases are the steps of an analysis (saveFile, hash, scanning, pom, parsing, saveData, saveGraph, saveProjectToUser),
+// storage operations are the ProjectStore methods
+@Component
+public class AnalysisMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Counter classesParsed;
+    private final Counter entriesSkipped;
+    private final Counter bytesRead;
+    // ASM visit of a single class, runs on the analysis pool in parallel with the scanning
+    private final Timer classVisits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Map<String, Timer> phases = new ConcurrentHashMap<>();
+    private final Map<String, Timer> storageOperations = new ConcurrentHashMap<>();
+
+    // Meters that are kept but not published, for services created outside of Spring
+    public AnalysisMetrics() {
+        this(new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public AnalysisMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.classesParsed = Counter.builder("analysis.classes.parsed")
+                .description("Class files visited by ASM, classes found in the class cache are not counted")
+                .register(registry);
+        this.entriesSkipped = Counter.builder("analysis.entries.skipped")
+                .description("Jar entries that are neither user classes nor POM files")
+                .register(registry);
+        this.bytesRead = Counter.builder("analysis.bytes.read")
+                .description("Bytes of class and POM entries read from uploaded jars")
+                .baseUnit("bytes")
+                .register(registry);
+        this.classVisits = Timer.builder("analysis.class.visit")
+                .description("ASM visit of a single class file")
+                .register(registry);
+        registry.gauge("analysis.inflight", inFlight);
+    }
+
+    public Timer phase(String phase) {
+        return phases.computeIfAbsent(phase, name -> Timer.builder("analysis.phase")
+                .description("Time spent in a step of an analysis")
+                .tag("phase", name)
+                .register(registry));
+    }
+
+    public Timer storage(String operation) {
+        return storageOperations.computeIfAbsent(operation, name -> Timer.builder("storage.calls")
+                .description("Calls to the project store")
+                .tag("operation", name)
+                .register(registry));
+    }
+
+    public Counter getClassesParsed() {
+        return classesParsed;
+    }
+
+    public Counter getEntriesSkipped() {
+        return entriesSkipped;
+    }
+
+    public Counter getBytesRead() {
+        return bytesRead;
+    }
+
+    public Timer getClassVisits() {
+        return classVisits;
+    }
+
+    // Analyses that started and did not finish yet
+    public AtomicInteger getInFlight() {
+        return inFlight;
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+}
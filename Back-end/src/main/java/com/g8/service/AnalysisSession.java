@@ -0,0 +1,145 @@
+package com.g8.service;
+
+import com.g8.model.ClassInfo;
+import com.g8.utils.CallGraph;
+import com.g8.utils.CompactGraphCodec;
+import com.g8.utils.DependencyGraph;
+import com.g8.utils.MethodCalls;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Holds everything a single project analysis produces, a new session is created for every upload
+// so that concurrent analyses never share state
+@Getter
+public class AnalysisSession {
+
+    // Stores the package name that has all the user classes
+    private final String userPackagePrefix;
+
+    // Location of the uploaded JAR file on disk
+    @Setter
+    private String filePath;
+
+    // SHA-256 of the uploaded JAR, identifies identical uploads
+    @Setter
+    private String jarHash;
+
+    // Collection of information of all the classes, encoded as they are added
+    private final CompactGraphCodec.Writer internalDependencies = new CompactGraphCodec.Writer();
+
+    private final List<Map<String, String>> externalDependencies = new ArrayList<>();
+
+    // To retrieve classInfo object by searching for its name
+    private final Map<String, ClassInfo> classInfoMap = new HashMap<>();
+
+    // Stores nested class relationship
+    private final Map<String, List<String>> parentClassToNestedClassesMap = new HashMap<>();
+
+    private final List<String> classList = new ArrayList<>();
+
+    // Method call graph, only built when the classes are parsed with AnalysisDepth.DEEP
+    private CallGraph.Builder callGraph;
+
+    // Same content as classList, used for constant time duplicate checks
+    private final Set<String> classNames = new HashSet<>();
+
+    // Progress of the analysis, read by status requests while the analysis is running
+    @Setter
+    private volatile String phase = "queued";
+    private final AtomicInteger entriesScanned = new AtomicInteger();
+    // Number of entries in the jar, -1 while it is unknown (e.g. when reading from a stream)
+    @Setter
+    private volatile int totalEntries = -1;
+
+    public AnalysisSession(String classContainer) {
+        this.userPackagePrefix = classContainer.replace(".", "/");
+    }
+
+    // Filtering valid user defined classes, anonymous classes are skipped. Classes of Spring Boot fat jars are found
+    // under BOOT-INF/classes by the same check, the launcher classes Boot adds at the top of the jar are not user classes
+    public boolean isUserClassEntry(String entryName) {
+        return entryName.endsWith(".class") && entryName.contains(userPackagePrefix) && !entryName.matches(".*\\$[0-9]+\\.class$")
+                && !entryName.startsWith("org/springframework/boot/loader/");
+    }
+
+    // Adds a visited class to the results, must be called in jar order to keep the output deterministic
+    public void addClass(ClassInfo classInfo, Map<String, List<String>> nestedClasses) {
+
+        classInfoMap.put(classInfo.getName(), classInfo);
+
+        nestedClasses.forEach((parent, nested) ->
+                parentClassToNestedClassesMap.computeIfAbsent(parent, k -> new ArrayList<>()).addAll(nested));
+
+        internalDependencies.write(classInfo);
+        if (classNames.add(classInfo.getName()))
+            classList.add(classInfo.getName());
+    }
+
+    // Starts collecting method calls, at most maxCalls of them are kept
+    public void startCallGraph(int maxCalls) {
+        callGraph = new CallGraph.Builder(maxCalls);
+    }
+
+    // Adds the calls of a visited class in jar order. Like the class graph, the call graph only covers
+    // the user classes, calls into libraries and the JDK are left out
+    public void addMethodCalls(MethodCalls methodCalls) {
+
+        if (callGraph == null || methodCalls == null) {
+            return;
+        }
+
+        // Class local method id -> project wide id, -1 until the method takes part in a kept call
+        int[] methodIds = new int[methodCalls.getMethodCount()];
+        Arrays.fill(methodIds, -1);
+        methodCalls.forEachCall((caller, callee) -> {
+            // Methods are only interned for calls that are kept, past maxCalls the method table stops growing
+            if (methodCalls.getOwner(callee).contains(userPackagePrefix) && callGraph.acceptsCall()) {
+                callGraph.addCall(internMethod(methodCalls, methodIds, caller), internMethod(methodCalls, methodIds, callee));
+            }
+        });
+    }
+
+    private int internMethod(MethodCalls methodCalls, int[] methodIds, int method) {
+        if (methodIds[method] < 0) {
+            methodIds[method] = callGraph.intern(methodCalls.getMethodName(method));
+        }
+        return methodIds[method];
+    }
+
+    public void entryScanned() {
+        entriesScanned.incrementAndGet();
+    }
+
+    public int getEntriesScanned() {
+        return entriesScanned.get();
+    }
+
+    public void addExternalDependency(Map<String, String> dependency) {
+        externalDependencies.add(dependency);
+    }
+
+    // Class graph for the graph queries, built from the classes in class list order once the nested classes are linked
+    public DependencyGraph buildDependencyGraph() {
+        List<ClassInfo> classes = new ArrayList<>(classList.size());
+        for (String className : classList) {
+            classes.add(classInfoMap.get(className));
+        }
+        return DependencyGraph.fromClasses(classes);
+    }
+
+    // Filling nested class information once all the classes have been visited
+    public void linkNestedClasses() {
+        for (Map.Entry<String, List<String>> entry : parentClassToNestedClassesMap.entrySet()) {
+            classInfoMap.get(entry.getKey()).setNestedClassesList(entry.getValue());
+        }
+    }
+}
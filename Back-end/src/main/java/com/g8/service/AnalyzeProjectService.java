@@ -1,69 +1,117 @@
 package com.g8.service;
 
 import com.g8.model.ClassInfo;
+import com.g8.utils.CallGraph;
 import com.g8.utils.ClassVisitor;
-import com.g8.props.FileProps;
-import com.google.gson.Gson;
+import com.g8.utils.DependencyGraph;
+import com.g8.utils.MethodCalls;
+import com.g8.utils.PackageRollup;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import io.micrometer.core.instrument.Timer;
 import org.objectweb.asm.ClassReader;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.zip.ZipException;
 
 @Service
 public class AnalyzeProjectService {
 
-    // Stores the package name that has all the user classes
-    private String USER_PACKAGE_PREFIX;
+    private static final Logger logger = LoggerFactory.getLogger(AnalyzeProjectService.class);
 
-    // Collection of information of all the classes
-    private List<Map<String, Object>> internalDependencies;
+    // Where Spring Boot fat jars and wars keep their dependencies as nested jars
+    private static final List<String> NESTED_LIBRARY_DIRECTORIES = List.of("BOOT-INF/lib/", "WEB-INF/lib/");
 
-    private List<Map<String, String>> externalDependencies;
+    // Classes a scan may have read but not parsed yet, per worker of the pool. Reading waits when they are all taken,
+    // so a fast disk or stream cannot queue the bytes of a whole jar in the heap
+    private static final int IN_FLIGHT_CLASSES_PER_WORKER = 4;
 
-    // To retrieve classInfo object by searching for its name
-    private Map<String, ClassInfo> classInfoMap;
+    @Autowired
+    private DependencyRetrievalService dependencyRetrievalService;
 
-    // Stores nested class relationship
-    private Map<String, List<String>> parentClassToNestedClassesMap;
+    private final AnalysisCache analysisCache;
 
-    private List<String> classList;
+    private final AnalysisMetrics metrics;
 
-    @Autowired
-    private DependencyRetrievalService dependencyRetrievalService;
+    // Number of worker threads used to parse class files, 0 means one per available core
+    @Value("${analysis.parallelism:0}")
+    private int parallelism;
+
+    // "stream" parses uploads straight from the request body, "file" saves them to disk first
+    @Value("${analysis.ingestion-mode:stream}")
+    private String ingestionMode = "stream";
+
+    // "structural" only decodes signatures and annotations, "deep" also decodes method bodies
+    @Value("${analysis.depth:structural}")
+    private AnalysisDepth analysisDepth = AnalysisDepth.STRUCTURAL;
+
+    // Upper bound for the calls kept in the call graph of a deep analysis, about 12 bytes of heap per call while analysing
+    @Value("${analysis.call-graph.max-calls:5000000}")
+    private int maxCalls = 5_000_000;
+
+    // Glob patterns of the nested library jars (e.g. "acme-*.jar") whose classes are analysed with the application's,
+    // the other libraries of a fat jar are skipped without being read
+    @Value("${analysis.nested-libraries:}")
+    private List<String> nestedLibraries = List.of();
 
-    private Gson gson;
+    // Work-stealing pool that runs the ASM visitors, created on first use
+    private ForkJoinPool analysisPool;
 
     public AnalyzeProjectService(DependencyRetrievalService dependencyRetrievalService) {
-        this.internalDependencies = new ArrayList<>();
-        this.classInfoMap = new HashMap<>();
-        this.parentClassToNestedClassesMap = new HashMap<>();
-        this.externalDependencies = new ArrayList<>();
-        this.classList = new ArrayList<>();
+        this(dependencyRetrievalService, new AnalysisCache(0, 0));
+    }
+
+    public AnalyzeProjectService(DependencyRetrievalService dependencyRetrievalService, AnalysisCache analysisCache) {
+        this(dependencyRetrievalService, analysisCache, new AnalysisMetrics());
+    }
+
+    @Autowired
+    public AnalyzeProjectService(DependencyRetrievalService dependencyRetrievalService, AnalysisCache analysisCache, AnalysisMetrics metrics) {
         this.dependencyRetrievalService = dependencyRetrievalService;
-        gson = new Gson();
+        this.analysisCache = analysisCache;
+        this.metrics = metrics;
     }
 
-    // Saves user uploaded JAR file in the system
-    protected void saveFile(MultipartFile file, String jarFilePath) throws Exception {
+    // Saves user uploaded JAR file in the system, returns the SHA-256 of the saved bytes
+    protected String saveFile(MultipartFile file, String jarFilePath) throws Exception {
 
-        // Save the uploaded JAR file to this project's folder
-        try (InputStream fileInputStream = file.getInputStream();
+        // Save the uploaded JAR file to the given path, it is hashed while it is copied
+        MessageDigest digest = AnalysisCache.newDigest();
+        try (InputStream fileInputStream = new DigestInputStream(file.getInputStream(), digest);
              FileOutputStream outputStream = new FileOutputStream(jarFilePath)) {
 
             byte[] buffer = new byte[1024];
@@ -74,111 +122,401 @@ public class AnalyzeProjectService {
                 outputStream.write(buffer, 0, bytesRead);
             }
         }
+        return AnalysisCache.hex(digest.digest());
     }
 
-    // Extracts internal and external dependencies
-    public String analyzeFile(String jarFilePath, String userId) throws Exception {
+    // Extracts internal and external dependencies and stores them as a new project of the user
+    public String analyzeFile(AnalysisSession session, String userId) throws Exception {
+
+        JarAnalysisEvent event = new JarAnalysisEvent("file", new File(session.getFilePath()).length());
+        event.begin();
+        metrics.getInFlight().incrementAndGet();
+        try {
+            try (InputStream inputStream = new FileInputStream(session.getFilePath())) {
+                session.setJarHash(metrics.phase("hash").recordCallable(() -> AnalysisCache.sha256(inputStream)));
+            }
+            String cachedProjectId = findCachedProject(session, userId);
+            if (cachedProjectId != null) {
+                return event.finish(session, cachedProjectId, true);
+            }
+
+            scanJar(session);
+            return event.finish(session, saveProject(session, userId), false);
+        } finally {
+            metrics.getInFlight().decrementAndGet();
+            event.commit();
+        }
+    }
+
+    // An identical jar analyzed with the same class container and depth already has a project, it is linked to the user and reused
+    String findCachedProject(AnalysisSession session, String userId) throws Exception {
+
+        String projectId = analysisCache.getProject(session.getJarHash(), session.getUserPackagePrefix(), analysisDepth);
+        if (projectId == null) {
+            return null;
+        }
+
+        session.setPhase("saving");
+        metrics.phase("saveProjectToUser").record(() -> dependencyRetrievalService.saveProjectToUser(projectId, userId).join());
+        return projectId;
+    }
+
+    // Stores the results of a finished session and links the new project to the user
+    String saveProject(AnalysisSession session, String userId) throws Exception {
+
+        session.setPhase("saving");
+
+        // Create a new document in the Firestore collection "projects" with an auto-generated ID
+        Timer.Sample saveData = Timer.start();
+        CompletableFuture<String> documentId = dependencyRetrievalService.saveData(session.getInternalDependencies().toByteArray(), session.getExternalDependencies(), session.getClassList());
+        documentId.join();
+        saveData.stop(metrics.phase("saveData"));
+
+        Timer.Sample saveGraph = Timer.start();
+        DependencyGraph dependencyGraph = session.buildDependencyGraph();
+        dependencyRetrievalService.saveGraph(documentId.get(), DependencyGraph.NAME, dependencyGraph.toByteArray()).join();
+        dependencyRetrievalService.saveGraph(documentId.get(), PackageRollup.NAME, PackageRollup.fromGraph(dependencyGraph).toByteArray()).join();
+        if (session.getCallGraph() != null) {
+            dependencyRetrievalService.saveGraph(documentId.get(), CallGraph.NAME, session.getCallGraph().build().toByteArray()).join();
+        }
+        saveGraph.stop(metrics.phase("saveGraph"));
+
+        Timer.Sample saveProjectToUser = Timer.start();
+        dependencyRetrievalService.saveProjectToUser(documentId.get(), userId).join();
+        saveProjectToUser.stop(metrics.phase("saveProjectToUser"));
 
-        try (JarFile jarFile = new JarFile(jarFilePath)) {
+        if (session.getJarHash() != null) {
+            analysisCache.putProject(session.getJarHash(), session.getUserPackagePrefix(), analysisDepth, documentId.get());
+        }
+        return documentId.get();
+    }
+
+    // Fills the session with the dependencies of the JAR file at the session's file path
+    public void scanJar(AnalysisSession session) throws Exception {
+
+        // Parsing results in the order the classes appear in the jar, a nested jar gives all its classes at once
+        List<ForkJoinTask<List<ParsedClass>>> parsedClasses = new ArrayList<>();
+        Semaphore inFlightClasses = newInFlightLimit();
+
+        session.setPhase("scanning");
+        Timer.Sample scanning = Timer.start();
+
+        try (JarFile jarFile = new JarFile(session.getFilePath())) {
+            session.setTotalEntries(jarFile.size());
             jarFile.stream()
                 .forEach(entry -> {
+                    session.entryScanned();
 
                     // Filtering valid user defined classes to extract their dependencies
-                    boolean isValidEntry = entry.getName().contains(USER_PACKAGE_PREFIX) && !entry.getName().matches(".*\\$[0-9]+\\.class$");
-                    if (entry.getName().endsWith(".class") && isValidEntry) {
+                    if (session.isUserClassEntry(entry.getName())) {
                         try {
-                            processClassEntry(jarFile, entry);
+                            // Bytes are read on this thread, the visiting happens on the pool
+                            inFlightClasses.acquire();
+                            parsedClasses.add(submitClass(readEntry(jarFile, entry), inFlightClasses));
                         } catch (Exception e) {
                             throw new RuntimeException("Error while processing class entry: " + e.getMessage());
                         }
-                    }
-
-                    // POM file has external dependencies
-                    if (entry.getName().endsWith("pom.xml")) {
+                    } else if (entry.getName().endsWith("pom.xml")) {
+                        // POM file has external dependencies
                         try {
-                            analyzePomDependencies(entry, jarFile);
+                            metrics.getBytesRead().increment(Math.max(entry.getSize(), 0));
+                            analyzePomDependencies(entry, jarFile, session);
                         } catch (Exception e) {
                             throw new RuntimeException("Error while processing POM: " + e.getMessage());
                         }
+                    } else if (isSelectedLibrary(entry.getName())) {
+                        // Read straight from the outer jar on the pool, several libraries at a time
+                        parsedClasses.add(getAnalysisPool().submit(() -> parseNestedJar(jarFile.getInputStream(entry), session)));
+                    } else {
+                        metrics.getEntriesSkipped().increment();
                     }
                 });
+            scanning.stop(metrics.phase("scanning"));
+
+            // Nested jars are still being read, the jar file stays open until they are merged
+            mergeParsedClasses(session, parsedClasses);
+        }
+    }
+
+    // Fills the session from a JAR that is still arriving, each class is handed to the pool as soon as its bytes are read
+    public void scanStream(AnalysisSession session, InputStream inputStream) throws Exception {
+
+        List<ForkJoinTask<List<ParsedClass>>> parsedClasses = new ArrayList<>();
+        Semaphore inFlightClasses = newInFlightLimit();
+
+        session.setPhase("scanning");
+        Timer.Sample scanning = Timer.start();
+
+        try (JarInputStream jarInputStream = new JarInputStream(inputStream, false)) {
+            JarEntry entry;
+            while ((entry = jarInputStream.getNextJarEntry()) != null) {
+                session.entryScanned();
+
+                if (session.isUserClassEntry(entry.getName())) {
+                    inFlightClasses.acquire();
+                    byte[] classBytes = jarInputStream.readAllBytes();
+                    metrics.getBytesRead().increment(classBytes.length);
+                    parsedClasses.add(submitClass(classBytes, inFlightClasses));
+                } else if (entry.getName().endsWith("pom.xml")) {
+                    try {
+                        // Reading the entry first, the POM reader must not close the jar stream
+                        byte[] pomBytes = jarInputStream.readAllBytes();
+                        metrics.getBytesRead().increment(pomBytes.length);
+                        analyzePomDependencies(new ByteArrayInputStream(pomBytes), session);
+                    } catch (Exception e) {
+                        throw new RuntimeException("Error while processing POM: " + e.getMessage());
+                    }
+                } else if (isSelectedLibrary(entry.getName())) {
+                    // A nested jar arrives as part of the stream, its classes are handed to the pool as they are read.
+                    // The nested stream is not closed, that would close the upload
+                    JarInputStream nestedJar = new JarInputStream(jarInputStream, false);
+                    JarEntry nestedEntry;
+                    while ((nestedEntry = nestedJar.getNextJarEntry()) != null) {
+                        if (session.isUserClassEntry(nestedEntry.getName())) {
+                            inFlightClasses.acquire();
+                            byte[] classBytes = nestedJar.readAllBytes();
+                            metrics.getBytesRead().increment(classBytes.length);
+                            parsedClasses.add(submitClass(classBytes, inFlightClasses));
+                        }
+                    }
+                } else {
+                    metrics.getEntriesSkipped().increment();
+                }
+            }
+        }
+        // A body that is not a zip has no entries instead of failing, it is left to the central directory of JarFile
+        if (session.getEntriesScanned() == 0) {
+            throw new ZipException("No entries found in the jar stream");
         }
+        scanning.stop(metrics.phase("scanning"));
+
+        mergeParsedClasses(session, parsedClasses);
+    }
+
+    private Semaphore newInFlightLimit() {
+        return new Semaphore(IN_FLIGHT_CLASSES_PER_WORKER * getAnalysisPool().getParallelism());
+    }
 
-        // Filling nested class information
-        for(Map.Entry<String, List<String>> entry : parentClassToNestedClassesMap.entrySet()) {
-            classInfoMap.get(entry.getKey()).setNestedClassesList(entry.getValue());
+    // The caller holds a permit of inFlightClasses, it is given back once the class is parsed
+    private ForkJoinTask<List<ParsedClass>> submitClass(byte[] classBytes, Semaphore inFlightClasses) {
+        return getAnalysisPool().submit(new ClassParseTask(classBytes, inFlightClasses));
+    }
+
+    // Parsing of one class. Unlike a submitted lambda it lets go of the class bytes once done, the finished tasks
+    // stay in the scan's list until they are merged
+    private final class ClassParseTask extends RecursiveTask<List<ParsedClass>> {
+
+        private byte[] classBytes;
+        private final Semaphore inFlightClasses;
+
+        ClassParseTask(byte[] classBytes, Semaphore inFlightClasses) {
+            this.classBytes = classBytes;
+            this.inFlightClasses = inFlightClasses;
         }
-        
-        // Create a new document in the Firestore collection "projects" with an auto-generated ID
-        CompletableFuture<String> documentId = dependencyRetrievalService.saveData(internalDependencies, externalDependencies, classList);
-        documentId.join();
-        CompletableFuture<Void> saveProjectToUser = dependencyRetrievalService.saveProjectToUser(documentId.get(), userId);
-        saveProjectToUser.join();
-        return documentId.get();
+
+        @Override
+        protected List<ParsedClass> compute() {
+            byte[] bytes = classBytes;
+            classBytes = null;
+            try {
+                return List.of(parseClass(bytes));
+            } finally {
+                inFlightClasses.release();
+            }
+        }
+    }
+
+    // Nested library jars in a fat jar whose names match one of the nestedLibraries patterns
+    boolean isSelectedLibrary(String entryName) {
+
+        if (nestedLibraries.isEmpty() || !entryName.endsWith(".jar")
+                || NESTED_LIBRARY_DIRECTORIES.stream().noneMatch(directory -> entryName.startsWith(directory) && entryName.indexOf('/', directory.length()) < 0)) {
+            return false;
+        }
+        Path fileName = Path.of(entryName.substring(entryName.lastIndexOf('/') + 1));
+        return nestedLibraries.stream().anyMatch(pattern -> FileSystems.getDefault().getPathMatcher("glob:" + pattern).matches(fileName));
     }
 
+    // Parses the user classes of a nested jar one entry at a time, the nested jar is never extracted or held in memory.
+    // Nested jars inside it and its POM files are ignored
+    private List<ParsedClass> parseNestedJar(InputStream inputStream, AnalysisSession session) throws Exception {
+
+        List<ParsedClass> parsedClasses = new ArrayList<>();
+        try (JarInputStream nestedJar = new JarInputStream(inputStream, false)) {
+            JarEntry entry;
+            while ((entry = nestedJar.getNextJarEntry()) != null) {
+                if (session.isUserClassEntry(entry.getName())) {
+                    byte[] classBytes = nestedJar.readAllBytes();
+                    metrics.getBytesRead().increment(classBytes.length);
+                    parsedClasses.add(parseClass(classBytes));
+                }
+            }
+        }
+        return parsedClasses;
+    }
 
-    // Visiting a class and storing the retrieved information in the list
-    void processClassEntry(JarFile jarFile, JarEntry entry) throws Exception {
+    // Merging in jar order so the result is identical to a sequential scan
+    private void mergeParsedClasses(AnalysisSession session, List<ForkJoinTask<List<ParsedClass>>> parsedClasses) {
 
+        session.setPhase("parsing");
+        Timer.Sample parsing = Timer.start();
+
+        if (analysisDepth == AnalysisDepth.DEEP) {
+            session.startCallGraph(maxCalls);
+        }
+
+        for (ForkJoinTask<List<ParsedClass>> parsed : parsedClasses) {
+            for (ParsedClass result : parsed.join()) {
+                session.addClass(result.classInfo(), result.nestedClasses());
+                session.addMethodCalls(result.methodCalls());
+            }
+        }
+
+        session.linkNestedClasses();
+        parsing.stop(metrics.phase("parsing"));
+    }
+
+    // Runs the ASM visitor on a single class, only touches state local to the call so it is safe to run in parallel
+    ParsedClass parseClass(byte[] classBytes) {
+
+        // Classes that did not change since an earlier upload are not visited again
+        String classHash = AnalysisCache.sha256(classBytes);
+        ParsedClass cached = analysisCache.getClass(classHash, analysisDepth);
+        if (cached != null) {
+            return cached;
+        }
+
+        ClassParseEvent event = new ClassParseEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            Map<String, List<String>> nestedClasses = new HashMap<>();
+            ClassReader classReader = new ClassReader(classBytes);
+            MethodCalls methodCalls = analysisDepth == AnalysisDepth.DEEP ? new MethodCalls() : null;
+            ClassVisitor visitor = new ClassVisitor(nestedClasses, methodCalls);
+            classReader.accept(visitor, analysisDepth.getParsingOptions());
+
+            ParsedClass parsedClass = new ParsedClass(visitor.getClassInfo(), nestedClasses, methodCalls);
+            metrics.getClassVisits().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            event.end();
+            if (event.shouldCommit()) {
+                event.className = parsedClass.classInfo().getName();
+                event.classBytes = classBytes.length;
+                event.commit();
+            }
+            metrics.getClassesParsed().increment();
+            analysisCache.putClass(classHash, analysisDepth, parsedClass);
+            return parsedClass;
+        } catch (Exception e) {
+            throw new RuntimeException("Error while processing class entry: " + e.getMessage());
+        }
+    }
+
+    private byte[] readEntry(JarFile jarFile, JarEntry entry) throws Exception {
         try (InputStream inputStream = jarFile.getInputStream(entry)) {
-            ClassReader classReader = new ClassReader(inputStream);
-            ClassVisitor visitor = new ClassVisitor(parentClassToNestedClassesMap);
-            classReader.accept(visitor, 0);
+            byte[] bytes = inputStream.readAllBytes();
+            metrics.getBytesRead().increment(bytes.length);
+            return bytes;
+        }
+    }
 
-            ClassInfo classInfo = visitor.getClassInfo();
-            classInfoMap.put(classInfo.getName(), classInfo);
+    private synchronized ForkJoinPool getAnalysisPool() {
+        if (analysisPool == null) {
+            analysisPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        }
+        return analysisPool;
+    }
 
-            Map<String, Object> classInfoMap = gson.fromJson(gson.toJson(classInfo), Map.class);
-            internalDependencies.add(classInfoMap);
-            if(!classList.contains(classInfo.getName()))
-                classList.add(classInfo.getName());
+    // Classes read from jars that wait for a worker of the analysis pool
+    public synchronized long getQueuedClassCount() {
+        return analysisPool != null ? analysisPool.getQueuedSubmissionCount() + analysisPool.getQueuedTaskCount() : 0;
+    }
+
+    @PreDestroy
+    public synchronized void shutdownAnalysisPool() {
+        if (analysisPool != null) {
+            analysisPool.shutdown();
         }
     }
 
     // Gives response to a user's request
     public ResponseEntity<String> analyzeUploadedProject(MultipartFile file, String classContainer, String userId) throws Exception {
 
-        // clears previous project results
-        internalDependencies.clear();
-        externalDependencies.clear();
-        classList.clear();
-
-        USER_PACKAGE_PREFIX = classContainer.replace(".", "/");
-
         if (!file.getOriginalFilename().endsWith(".jar")) {
             return new ResponseEntity<>("Unsupported file", HttpStatus.BAD_REQUEST);
         }
 
-        // Get current project directory
-        String projectDir = System.getProperty("user.dir");
-
-        // Use the original filename from the uploaded file
-        String jarFilePath = projectDir + File.separator + file.getOriginalFilename();
+        JarAnalysisEvent event = new JarAnalysisEvent(ingestionMode, file.getSize());
+        event.begin();
+        metrics.getInFlight().incrementAndGet();
+        try {
+            return analyzeUpload(file, classContainer, userId, event);
+        } finally {
+            metrics.getInFlight().decrementAndGet();
+            event.commit();
+        }
+    }
 
-        FileProps.setFilePath(jarFilePath);
+    private ResponseEntity<String> analyzeUpload(MultipartFile file, String classContainer, String userId, JarAnalysisEvent event) throws Exception {
 
-        // Saving the file
-        saveFile(file, jarFilePath);
+        // Every upload gets its own session, so parallel uploads don't interfere
+        AnalysisSession session = new AnalysisSession(classContainer);
 
-        // Analyzing the file
-        String projectId = analyzeFile(jarFilePath,userId);
+        // The upload is read once, it is hashed while it is scanned or saved. In stream mode an identical jar is
+        // only recognised after the scan, it is still linked to the existing project instead of being saved again
+        if ("stream".equals(ingestionMode)) {
+            MessageDigest digest = AnalysisCache.newDigest();
+            try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+                scanStream(session, new FilterInputStream(inputStream) {
+                    @Override
+                    public void close() {
+                        // Left open, the rest of the upload is still read for the hash
+                    }
+                });
+                // The jar stream stops before the central directory, the hash covers the whole upload
+                inputStream.transferTo(OutputStream.nullOutputStream());
+                session.setJarHash(AnalysisCache.hex(digest.digest()));
 
-        boolean isFileDeleted = deleteFile();
-        if(isFileDeleted) {
-            System.out.println("File deleted!");
-        } else {
-            System.out.println("Error while deleting the user file.");
+                String cachedProjectId = findCachedProject(session, userId);
+                if (cachedProjectId != null) {
+                    return new ResponseEntity<>(event.finish(session, cachedProjectId, true), HttpStatus.OK);
+                }
+                return new ResponseEntity<>(event.finish(session, saveProject(session, userId), false), HttpStatus.OK);
+            } catch (ZipException e) {
+                // Some archives can only be read through the central directory, those need the file on disk
+                session = new AnalysisSession(classContainer);
+                event.ingestion = "file";
+            }
         }
 
-        return new ResponseEntity<>(projectId, HttpStatus.OK);
+        session.setFilePath(Files.createTempFile("upload-", ".jar").toString());
+        try {
+            // Saving the file
+            Timer.Sample saving = Timer.start();
+            session.setJarHash(saveFile(file, session.getFilePath()));
+            saving.stop(metrics.phase("saveFile"));
+
+            String cachedProjectId = findCachedProject(session, userId);
+            if (cachedProjectId != null) {
+                return new ResponseEntity<>(event.finish(session, cachedProjectId, true), HttpStatus.OK);
+            }
+
+            // Analyzing the file
+            scanJar(session);
+            String projectId = saveProject(session, userId);
+            return new ResponseEntity<>(event.finish(session, projectId, false), HttpStatus.OK);
+        } finally {
+            if (!deleteFile(session)) {
+                logger.warn("Error while deleting the user file " + session.getFilePath());
+            }
+        }
     }
 
-    private boolean deleteFile() {
+    boolean deleteFile(AnalysisSession session) {
 
-        if(FileProps.getFilePath() != null) {
+        if(session.getFilePath() != null) {
             try {
-                File file = new File(FileProps.getFilePath());
+                File file = new File(session.getFilePath());
                 if (file.exists()) {
                     return file.delete();
                 }
@@ -190,38 +528,57 @@ public class AnalyzeProjectService {
     }
 
     // Analyzes in external dependencies
-    public void analyzePomDependencies(JarEntry entry, JarFile jar) throws Exception {
+    public void analyzePomDependencies(JarEntry entry, JarFile jar, AnalysisSession session) throws Exception {
 
         if (entry != null) {
             try (InputStream pomInputStream = jar.getInputStream(entry)) {
-                MavenXpp3Reader reader = new MavenXpp3Reader();
-                Model model = reader.read(pomInputStream);
+                analyzePomDependencies(pomInputStream, session);
+            }
+        }
+    }
 
-                // Extract dependencies
-                for (Dependency dependency : model.getDependencies()) {
+    void analyzePomDependencies(InputStream pomInputStream, AnalysisSession session) throws Exception {
 
-                    Map<String, String> dependencyMap = new HashMap<>();
+        Timer.Sample parsing = Timer.start();
+        MavenXpp3Reader reader = new MavenXpp3Reader();
+        Model model = reader.read(pomInputStream);
 
-                    dependencyMap.put("groupId", dependency.getGroupId());
-                    dependencyMap.put("artifactId", dependency.getArtifactId());
-                    dependencyMap.put("version", dependency.getVersion() != null ? dependency.getVersion() : "");
-                    dependencyMap.put("scope", dependency.getScope() != null ? dependency.getScope() : "");
+        // Extract dependencies
+        for (Dependency dependency : model.getDependencies()) {
 
-                    externalDependencies.add(dependencyMap);
-                }
-            }
+            Map<String, String> dependencyMap = new HashMap<>();
+
+            dependencyMap.put("groupId", dependency.getGroupId());
+            dependencyMap.put("artifactId", dependency.getArtifactId());
+            dependencyMap.put("version", dependency.getVersion() != null ? dependency.getVersion() : "");
+            dependencyMap.put("scope", dependency.getScope() != null ? dependency.getScope() : "");
+
+            session.addExternalDependency(dependencyMap);
         }
+        parsing.stop(metrics.phase("pom"));
     }
 
-    public void setUSER_PACKAGE_PREFIX(String val) {
-        this.USER_PACKAGE_PREFIX = val;
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
     }
 
-    public List<Map<String, Object>> getInternalForTest() {
-        return internalDependencies;
-     }
+    public void setIngestionMode(String ingestionMode) {
+        this.ingestionMode = ingestionMode;
+    }
+
+    public void setAnalysisDepth(AnalysisDepth analysisDepth) {
+        this.analysisDepth = analysisDepth;
+    }
+
+    public void setMaxCalls(int maxCalls) {
+        this.maxCalls = maxCalls;
+    }
+
+    public void setNestedLibraries(List<String> nestedLibraries) {
+        this.nestedLibraries = nestedLibraries;
+    }
 
-    public List<Map<String, String>> getExternalForTest() {
-        return externalDependencies;
+    // Result of visiting one class file, methodCalls is null unless the class was parsed with AnalysisDepth.DEEP
+    record ParsedClass(ClassInfo classInfo, Map<String, List<String>> nestedClasses, MethodCalls methodCalls) {
     }
 }
@@ -5,11 +5,13 @@ import com.google.firebase.auth.FirebaseAuthException;
 import com.google.firebase.auth.FirebaseToken;
 import com.google.firebase.auth.UserRecord;
 import com.google.firebase.auth.UserRecord.CreateRequest;
+import com.g8.utils.LruCache;
 import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,7 +20,14 @@ public class AuthService {
     private final FirebaseAuth firebaseAuth;
     private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
     private static final Gson gson = new Gson();
-    
+
+    // SHA-256 of a verified token -> its user, so a token is verified once and not on every request
+    private static final int MAX_CACHED_TOKENS = 10000;
+    private final LruCache<String, VerifiedToken> verifiedTokens = new LruCache<>(MAX_CACHED_TOKENS);
+
+    private record VerifiedToken(String uid, long expiresAtMillis) {
+    }
+
     public AuthService(FirebaseAuth firebaseAuth) {
         this.firebaseAuth = firebaseAuth;
     }
@@ -41,8 +50,8 @@ public class AuthService {
 
     public boolean verifyToken(String idToken) throws RuntimeException {
         try {
-            FirebaseToken decodedToken = firebaseAuth.verifyIdToken(idToken);
-            logger.info("User " + decodedToken.getUid() + " is authenticated.");
+            String uid = verify(idToken);
+            logger.info("User " + uid + " is authenticated.");
             return true;
         } catch (FirebaseAuthException e) {
             logger.error("Error verifying token: " + e.getMessage());
@@ -53,11 +62,35 @@ public class AuthService {
     public String getUserId(String idToken) throws RuntimeException {
 
         try {
-            FirebaseToken decodedToken = firebaseAuth.verifyIdToken(idToken);
-            return decodedToken.getUid();
+            return verify(idToken);
         } catch (FirebaseAuthException e) {
             logger.error("Error verifying token: " + e.getMessage());
             throw new RuntimeException("Error while retrieving user Id for verification");
         }
     }
+
+    public LruCache<String, ?> getVerifiedTokens() {
+        return verifiedTokens;
+    }
+
+    // Verifies the token signature once and remembers the user until the token expires
+    private String verify(String idToken) throws FirebaseAuthException {
+
+        String tokenHash = AnalysisCache.sha256(idToken.getBytes(StandardCharsets.UTF_8));
+        VerifiedToken verified = verifiedTokens.get(tokenHash);
+        if (verified != null && System.currentTimeMillis() < verified.expiresAtMillis()) {
+            return verified.uid();
+        }
+
+        FirebaseToken decodedToken = firebaseAuth.verifyIdToken(idToken);
+
+        // "exp" is in seconds, tokens without it are not cached
+        Object expiresAt = decodedToken.getClaims() != null ? decodedToken.getClaims().get("exp") : null;
+        if (expiresAt instanceof Number exp) {
+            verifiedTokens.put(tokenHash, new VerifiedToken(decodedToken.getUid(), exp.longValue() * 1000));
+        } else {
+            verifiedTokens.remove(tokenHash);
+        }
+        return decodedToken.getUid();
+    }
 }
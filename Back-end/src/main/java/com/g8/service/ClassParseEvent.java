@@ -0,0 +1,28 @@
+package com.g8.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// Flight recorder event for the ASM visit of a single class file. Only visits slower than the threshold are
+// recorded, so that an always-on recording shows the outliers of a large jar and not every class
+@Name("com.g8.ClassParse")
+@Label("Class Parse")
+@Description("ASM visit of a class file that took longer than the threshold")
+@Category({"Dependency Resolver", "Analysis"})
+@Threshold("5 ms")
+@StackTrace(false)
+class ClassParseEvent extends Event {
+
+    @Label("Class Name")
+    String className;
+
+    @Label("Class File Size")
+    @DataAmount
+    int classBytes;
+}
@@ -2,59 +2,89 @@ package com.g8.service;
 
 import com.g8.model.ClassInfo;
 import com.g8.model.ExternalDependencyInfo;
-import com.google.api.core.ApiFuture;
-import com.google.cloud.firestore.*;
+import com.g8.storage.ProjectData;
+import com.g8.storage.ProjectStore;
+import com.g8.utils.CallGraph;
+import com.g8.utils.CompactGraphCodec;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
 public class DependencyRetrievalService {
 
-    private final CollectionReference projectCollectionReference;
-    private final CollectionReference userProjectsCollection;
-    private final CollectionReference customViewsCollection;
+    private final ProjectStore projectStore;
+    private final ProjectResponseCache responseCache;
+    private final ProjectGraphCache graphCache;
+    private final AnalysisMetrics metrics;
     private final Logger logger;
     private static final Gson gson = new Gson();
+    private static final Type EXTERNAL_DEPENDENCIES_TYPE = new TypeToken<List<ExternalDependencyInfo>>() {}.getType();
 
-    public DependencyRetrievalService(Firestore firestore) {
-        this.projectCollectionReference = firestore.collection("projects");
-        this.userProjectsCollection = firestore.collection("user_projects");
-        this.customViewsCollection = firestore.collection("custom_views");
-        logger = LoggerFactory.getLogger(DependencyRetrievalService.class);
+    public DependencyRetrievalService(ProjectStore projectStore) {
+        this(projectStore, new ProjectResponseCache(0, 0));
     }
 
-    @Async
-    public CompletableFuture<String> getInternalDependencies(String projectId) {
+    public DependencyRetrievalService(ProjectStore projectStore, ProjectResponseCache responseCache) {
+        this(projectStore, responseCache, new ProjectGraphCache(0));
+    }
 
-        try {
+    public DependencyRetrievalService(ProjectStore projectStore, ProjectResponseCache responseCache, ProjectGraphCache graphCache) {
+        this(projectStore, responseCache, graphCache, new AnalysisMetrics());
+    }
 
-            // Retrieve the collection with the name `projectId`
-            DocumentSnapshot projectCollection = projectCollectionReference.document(projectId).get().get();
+    @Autowired
+    public DependencyRetrievalService(ProjectStore projectStore, ProjectResponseCache responseCache, ProjectGraphCache graphCache, AnalysisMetrics metrics) {
+        this.projectStore = projectStore;
+        this.responseCache = responseCache;
+        this.graphCache = graphCache;
+        this.metrics = metrics;
+        logger = LoggerFactory.getLogger(DependencyRetrievalService.class);
+    }
 
-            List<Map<String, Object>> projects = (List<Map<String, Object>>) projectCollection.get("intDep");
+    @Async
+    public CompletableFuture<String> getInternalDependencies(String projectId) {
 
-            if (projects != null && !projects.isEmpty()) {
+        String cached = responseCache.get(projectId, ProjectData.INTERNAL_DEPENDENCIES);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
 
-                Type type = new TypeToken<List<ClassInfo>>() {}.getType();
+        try {
 
-                List<ClassInfo> dependencies = gson.fromJson(gson.toJson(projects), type);
+            List<byte[]> chunks = callStore("getInternalDependencies", projectId, 0, () -> projectStore.getInternalDependencies(projectId));
 
-                // Convert the list of ClassInfo objects to JSON
-                String jsonOutput = gson.toJson(dependencies);
-                return CompletableFuture.completedFuture(jsonOutput);
+            // The stored classes are decoded chunk after chunk straight into the JSON output
+            if (hasClasses(chunks)) {
+                StringWriter jsonOutput = new StringWriter();
+                CompactGraphCodec.writeJson(chunks, gson, gson.newJsonWriter(jsonOutput));
+                responseCache.put(projectId, ProjectData.INTERNAL_DEPENDENCIES, jsonOutput.toString());
+                return CompletableFuture.completedFuture(jsonOutput.toString());
             }
 
             return CompletableFuture.completedFuture(null);
@@ -65,18 +95,41 @@ public class DependencyRetrievalService {
         }
     }
     
+    // Streaming variant of getInternalDependencies: the classes are written to the output one at a time while
+    // the chunks are read, so the response is never built in memory. Writes nothing if the project has no classes
+    public void writeInternalDependencies(String projectId, OutputStream outputStream) throws Exception {
+
+        Writer output = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        String cached = responseCache.get(projectId, ProjectData.INTERNAL_DEPENDENCIES);
+        if (cached != null) {
+            output.write(cached);
+            output.flush();
+            return;
+        }
+
+        JsonWriter jsonWriter = gson.newJsonWriter(output);
+        ClassArrayWriter classArray = new ClassArrayWriter(jsonWriter, null);
+        callStore("streamProject", projectId, 0, () -> projectStore.streamProject(projectId, Set.of(ProjectData.INTERNAL_DEPENDENCIES), classArray::write));
+        classArray.finish();
+        jsonWriter.flush();
+    }
+
     @Async
     public CompletableFuture<String> getClassList(String projectId) {
 
-        try {
+        String cached = responseCache.get(projectId, ProjectData.CLASS_LIST);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
 
-            // Retrieve the collection with the name `projectId`
-            DocumentSnapshot projectCollection = projectCollectionReference.document(projectId).get().get();
+        try {
 
-            List<String> classList = (List<String>) projectCollection.get("classList");
+            List<String> classList = callStore("getClassList", projectId, 0, () -> projectStore.getClassList(projectId));
 
             if (classList != null && !classList.isEmpty()) {
-                return CompletableFuture.completedFuture(gson.toJson(classList));
+                String response = gson.toJson(classList);
+                responseCache.put(projectId, ProjectData.CLASS_LIST, response);
+                return CompletableFuture.completedFuture(response);
             }
             return CompletableFuture.completedFuture(null);
 
@@ -89,20 +142,21 @@ public class DependencyRetrievalService {
     @Async
     public CompletableFuture<String> getExternalDependencies(String projectId) {
 
+        String cached = responseCache.get(projectId, ProjectData.EXTERNAL_DEPENDENCIES);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
         try {
-            // Retrieve the collection with the name `projectId`
-            DocumentSnapshot projectCollection = projectCollectionReference.document(projectId).get().get();
 
-            List<Map<String, Object>> projects = (List<Map<String, Object>>) projectCollection.get("extDep");
+            List<Map<String, Object>> projects = callStore("getExternalDependencies", projectId, 0, () -> projectStore.getExternalDependencies(projectId));
 
             if (projects != null && !projects.isEmpty()) {
 
-                Type type = new TypeToken<List<ExternalDependencyInfo>>() {}.getType();
-
-                List<ExternalDependencyInfo> dependencies = gson.fromJson(gson.toJson(projects), type);
-
                 // Convert the list of ClassInfo objects to JSON
-                return CompletableFuture.completedFuture(gson.toJson(dependencies));
+                String response = gson.toJson(toExternalDependencyInfo(projects));
+                responseCache.put(projectId, ProjectData.EXTERNAL_DEPENDENCIES, response);
+                return CompletableFuture.completedFuture(response);
             }
 
             return CompletableFuture.completedFuture(null);
@@ -113,50 +167,158 @@ public class DependencyRetrievalService {
         }
     }
 
+    // Loads the requested sections of a project with one store read and returns them as a single JSON object,
+    // sections without data are left out like the single section endpoints respond without a body
     @Async
-    public CompletableFuture<String> saveData(List<Map<String, Object>> internalDependencies, List<Map<String, String>> externalDependencies, List<String> classList) {
+    public CompletableFuture<String> getProject(String projectId, Set<String> sections) {
+
+        String cacheSection = projectCacheSection(sections);
+        String cached = responseCache.get(projectId, cacheSection);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
 
         try {
-            DocumentReference documentReference = projectCollectionReference.document();
 
-            // Prepare data for both internal and external dependencies
-            Map<String, Object> dependenciesData = new HashMap<>();
-            dependenciesData.put("intDep", internalDependencies);
-            dependenciesData.put("extDep", externalDependencies);
-            dependenciesData.put("classList", classList);
+            ProjectData project = callStore("getProject", projectId, 0, () -> projectStore.getProject(projectId, sections));
 
-            // Save the data into the Firestore document
-            documentReference.set(dependenciesData).get();
+            StringWriter jsonOutput = new StringWriter();
+            JsonWriter jsonWriter = gson.newJsonWriter(jsonOutput);
+            jsonWriter.beginObject();
+            boolean hasData = hasClasses(project.internalDependencies());
+            if (hasData) {
+                jsonWriter.name(ProjectData.INTERNAL_DEPENDENCIES);
+                CompactGraphCodec.writeJson(project.internalDependencies(), gson, jsonWriter);
+            }
+            hasData |= writeExternalDependenciesAndClassList(project, jsonWriter);
+            jsonWriter.endObject();
+            jsonWriter.flush();
 
-            // Retrieve the generated document ID
-            return CompletableFuture.completedFuture(documentReference.getId());
+            // Missing and empty projects are not cached, like the single section responses
+            if (hasData) {
+                responseCache.put(projectId, cacheSection, jsonOutput.toString());
+            }
+            return CompletableFuture.completedFuture(jsonOutput.toString());
+
+        } catch (Exception e) {
+            logger.info(e.getMessage());
+            throw new RuntimeException("Error retrieving project");
+        }
+    }
+
+    // Streaming variant of getProject, writes the same JSON object without holding it in memory.
+    // Streamed responses are not cached, a cached response from getProject is written as it is
+    public void writeProject(String projectId, Set<String> sections, OutputStream outputStream) throws Exception {
+
+        Writer output = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        String cached = responseCache.get(projectId, projectCacheSection(sections));
+        if (cached != null) {
+            output.write(cached);
+            output.flush();
+            return;
+        }
+
+        JsonWriter jsonWriter = gson.newJsonWriter(output);
+        jsonWriter.beginObject();
+        ClassArrayWriter classArray = new ClassArrayWriter(jsonWriter, ProjectData.INTERNAL_DEPENDENCIES);
+        ProjectData project = callStore("streamProject", projectId, 0, () -> projectStore.streamProject(projectId, sections, classArray::write));
+        classArray.finish();
+        writeExternalDependenciesAndClassList(project, jsonWriter);
+        jsonWriter.endObject();
+        jsonWriter.flush();
+    }
+
+    @Async
+    public CompletableFuture<String> saveData(byte[] internalDependencies, List<Map<String, String>> externalDependencies, List<String> classList) {
+
+        try {
+            return CompletableFuture.completedFuture(callStore("saveProject", null, internalDependencies.length, () -> projectStore.saveProject(internalDependencies, externalDependencies, classList)));
         } catch (Exception e) {
             logger.info(e.getMessage());
-            throw new RuntimeException("Error while saving the project data in firestore");
+            throw new RuntimeException("Error while saving the project data");
+        }
+    }
+
+    @Async
+    public CompletableFuture<Void> saveGraph(String projectId, String graphName, byte[] graph) {
+        try {
+            callStore("saveGraph", projectId, graph.length, () -> {
+                projectStore.saveGraph(projectId, graphName, graph);
+                return null;
+            });
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            logger.info(e.getMessage());
+            throw new RuntimeException("Error while saving the " + graphName);
+        }
+    }
+
+    // Stored graph data of a project, null if it has no graph of that name
+    public byte[] getGraph(String projectId, String graphName) throws Exception {
+        return callStore("getGraph", projectId, 0, () -> projectStore.getGraph(projectId, graphName));
+    }
+
+    // One page of the call graph: the methods with ids offset .. offset + limit - 1 and the ids of the methods they call.
+    // Returns null if the project has no call graph
+    @Async
+    public CompletableFuture<String> getCallGraph(String projectId, int offset, int limit) {
+
+        try {
+
+            CallGraph callGraph = graphCache.get(projectId, CallGraph.NAME, CallGraph.class);
+            if (callGraph == null) {
+                byte[] data = getGraph(projectId, CallGraph.NAME);
+                if (data == null) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                callGraph = CallGraph.fromByteArray(data);
+                graphCache.put(projectId, CallGraph.NAME, callGraph, callGraph.getMemoryBytes());
+            }
+
+            int end = (int) Math.min((long) offset + limit, callGraph.getMethodCount());
+            StringWriter jsonOutput = new StringWriter();
+            JsonWriter jsonWriter = gson.newJsonWriter(jsonOutput);
+            jsonWriter.beginObject();
+            jsonWriter.name("methodCount").value(callGraph.getMethodCount());
+            jsonWriter.name("callCount").value(callGraph.getCallCount());
+            jsonWriter.name("truncated").value(callGraph.isTruncated());
+            jsonWriter.name("offset").value(offset);
+            if (end < callGraph.getMethodCount()) {
+                jsonWriter.name("nextOffset").value(end);
+            }
+            jsonWriter.name("methods").beginArray();
+            for (int method = offset; method < end; method++) {
+                jsonWriter.beginObject();
+                jsonWriter.name("id").value(method);
+                jsonWriter.name("name").value(callGraph.getMethod(method));
+                jsonWriter.name("calls").beginArray();
+                for (int callee : callGraph.getCalls(method)) {
+                    jsonWriter.value(callee);
+                }
+                jsonWriter.endArray();
+                jsonWriter.endObject();
+            }
+            jsonWriter.endArray();
+            jsonWriter.endObject();
+            jsonWriter.flush();
+
+            return CompletableFuture.completedFuture(jsonOutput.toString());
+
+        } catch (Exception e) {
+            logger.info(e.getMessage());
+            throw new RuntimeException("Error retrieving call graph");
         }
     }
 
     @Async
     public CompletableFuture<Void> saveProjectToUser(String projectId, String userId) {
-        DocumentReference userDocRef = userProjectsCollection.document(userId);
-        Map<String, Object> projectInfo = new HashMap<>();
-        projectInfo.put("projectId", projectId);
-        projectInfo.put("custom_view", "");
 
         return CompletableFuture.runAsync(() -> {
             try {
-                // Get the document snapshot
-                DocumentSnapshot snapshot = userDocRef.get().get();
-    
-                if (snapshot.exists()) {
-                    // Document exists, update the projects array
-                    userDocRef.update("projects", FieldValue.arrayUnion(projectInfo)).get();
-                } else {
-                    // Document does not exist, create a new one
-                    Map<String, Object> userData = new HashMap<>();
-                    userData.put("projects", Collections.singletonList(projectInfo));
-                    userDocRef.set(userData, SetOptions.merge()).get();
-                }
+                callStore("addProjectToUser", projectId, 0, () -> {
+                    projectStore.addProjectToUser(projectId, userId);
+                    return null;
+                });
             } catch (Exception e) {
                 logger.info(e.getMessage());
                 throw new RuntimeException("Error while saving project to user");
@@ -169,12 +331,7 @@ public class DependencyRetrievalService {
     public CompletableFuture<List<Map<String, Object>>> getUserProjects(String userId) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                DocumentSnapshot snapshot = userProjectsCollection.document(userId).get().get();
-                if (snapshot.exists()) {
-                    List<Map<String, Object>> projects = (List<Map<String, Object>>) snapshot.get("projects");
-                    return projects != null ? projects : Collections.emptyList();
-                }
-                return Collections.emptyList();
+                return callStore("getUserProjects", null, 0, () -> projectStore.getUserProjects(userId));
             } catch (Exception e) {
                 logger.info(e.getMessage());
                 throw new RuntimeException("Error retrieving user projects: " + e.getMessage(), e);
@@ -186,42 +343,11 @@ public class DependencyRetrievalService {
     public CompletableFuture<String> createCustomView(String userId, String projectId, Map<String, Object> data) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                // Create a new custom view document
-                DocumentReference customViewDocRef = customViewsCollection.document();
-                Map<String, Object> customViewData = new HashMap<>();
-                customViewData.put("data", data);
-
-                customViewDocRef.set(customViewData).get(); // Synchronous set operation to ensure completion
-
-                // Update the user document with the custom view ID
-                DocumentReference userDocRef = userProjectsCollection.document(userId);
-                ApiFuture<DocumentSnapshot> userDocFuture = userDocRef.get();
-                DocumentSnapshot userDocSnapshot = userDocFuture.get();
-
-                if (userDocSnapshot.exists()) {
-                    // Retrieve the list of projects
-                    List<Map<String, Object>> projects = (List<Map<String, Object>>) userDocSnapshot.get("projects");
-                    if (projects != null) {
-                        // Update the custom_view field of the matching project
-                        for (Map<String, Object> project : projects) {
-                            if (projectId.equals(project.get("projectId"))) {
-                                project.put("custom_view", customViewDocRef.getId());
-                                break;
-                            }
-                        }
-
-                        // Update the document with the modified projects array
-                        userDocRef.update("projects", projects).get();
-                    }
-
-                    // Return the ID of the created custom view
-                    return customViewDocRef.getId();
-                } else {
-                    System.out.println("User document does not exist");
-                    return "";
-                }
+                String customViewId = callStore("createCustomView", projectId, 0, () -> projectStore.createCustomView(userId, projectId, data));
+                responseCache.invalidate(projectId);
+                return customViewId;
             } catch (Exception e) {
-                System.out.println("Error creating custom view: " + e.getMessage());
+                logger.info("Error creating custom view: " + e.getMessage());
                 return "";
             }
         });
@@ -231,10 +357,10 @@ public class DependencyRetrievalService {
     public CompletableFuture<Map<String,Object>> getCustomViewData(String customViewId) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                DocumentSnapshot snapshot = customViewsCollection.document(customViewId).get().get();
-                if (snapshot.exists()) {
+                Map<String, Object> customView = callStore("getCustomView", null, 0, () -> projectStore.getCustomView(customViewId));
+                if (customView != null) {
                     Map<String, Object> result = new HashMap<>();
-                    result.put("data", snapshot.getData());
+                    result.put("data", customView);
                     return result;
                 }
                 return Collections.emptyMap();
@@ -244,4 +370,118 @@ public class DependencyRetrievalService {
         });
     }
 
-}
\ No newline at end of file
+    // Sorted so that the same selection in a different order shares the cache entry
+    private static String projectCacheSection(Set<String> sections) {
+        return "project[" + String.join(",", new TreeSet<>(sections)) + "]";
+    }
+
+    // Returns whether one of the two sections had data
+    private static boolean writeExternalDependenciesAndClassList(ProjectData project, JsonWriter jsonWriter) throws IOException {
+        boolean written = false;
+        if (project.externalDependencies() != null && !project.externalDependencies().isEmpty()) {
+            jsonWriter.name(ProjectData.EXTERNAL_DEPENDENCIES);
+            gson.toJson(toExternalDependencyInfo(project.externalDependencies()), EXTERNAL_DEPENDENCIES_TYPE, jsonWriter);
+            written = true;
+        }
+        if (project.classList() != null && !project.classList().isEmpty()) {
+            jsonWriter.name(ProjectData.CLASS_LIST);
+            gson.toJson(project.classList(), List.class, jsonWriter);
+            written = true;
+        }
+        return written;
+    }
+
+    // Calls the store under the storage.calls timer and a StorageCall flight recorder event. payloadSize is the
+    // project data sent with the call, the project data it returns is added to it
+    private <T> T callStore(String operation, String projectId, long payloadSize, Callable<T> call) throws Exception {
+
+        StorageCallEvent event = new StorageCallEvent();
+        event.begin();
+        Timer.Sample sample = Timer.start();
+        T result = null;
+        try {
+            result = call.call();
+            return result;
+        } finally {
+            sample.stop(metrics.storage(operation));
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                // saveProject only learns the id of its project from the store
+                event.projectId = projectId == null && result instanceof String id ? id : projectId;
+                event.payloadSize = payloadSize + payloadSize(result);
+                event.commit();
+            }
+        }
+    }
+
+    // Bytes of compact graph data in a store result
+    @SuppressWarnings("unchecked")
+    private static long payloadSize(Object result) {
+        List<byte[]> chunks = null;
+        if (result instanceof byte[] data) {
+            return data.length;
+        } else if (result instanceof ProjectData project) {
+            chunks = project.internalDependencies();
+        } else if (result instanceof List<?> list && !list.isEmpty() && list.get(0) instanceof byte[]) {
+            chunks = (List<byte[]>) list;
+        }
+        long size = 0;
+        if (chunks != null) {
+            for (byte[] chunk : chunks) {
+                size += chunk.length;
+            }
+        }
+        return size;
+    }
+
+    // Writes the classes of the chunks it is given as one JSON array. The array (and its name inside an object)
+    // is only opened with the first class, so a project without classes leaves no trace in the output
+    private static class ClassArrayWriter {
+
+        private final JsonWriter jsonWriter;
+        private final String name;
+        private boolean started;
+
+        ClassArrayWriter(JsonWriter jsonWriter, String name) {
+            this.jsonWriter = jsonWriter;
+            this.name = name;
+        }
+
+        void write(byte[] chunk) throws IOException {
+            CompactGraphCodec.Reader reader = new CompactGraphCodec.Reader(chunk);
+            while (reader.hasNext()) {
+                if (!started) {
+                    if (name != null) {
+                        jsonWriter.name(name);
+                    }
+                    jsonWriter.beginArray();
+                    started = true;
+                }
+                gson.toJson(reader.next(), ClassInfo.class, jsonWriter);
+            }
+        }
+
+        void finish() throws IOException {
+            if (started) {
+                jsonWriter.endArray();
+            }
+        }
+    }
+
+    private static boolean hasClasses(List<byte[]> chunks) {
+        if (chunks != null) {
+            for (byte[] chunk : chunks) {
+                if (new CompactGraphCodec.Reader(chunk).hasNext()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<ExternalDependencyInfo> toExternalDependencyInfo(List<Map<String, Object>> externalDependencies) {
+        return gson.fromJson(gson.toJson(externalDependencies), EXTERNAL_DEPENDENCIES_TYPE);
+    }
+
+}
@@ -0,0 +1,182 @@
+package com.g8.service;
+
+import com.g8.utils.DependencyGraph;
+import com.g8.utils.LayeredLayout;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+// Layered layouts of project views, computed once by background workers and stored next to the project.
+// A view is the classes of a package (all classes by default) and the edge types drawn between them
+@Service
+public class GraphLayoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphLayoutService.class);
+    private static final Gson gson = new Gson();
+
+    private final DependencyRetrievalService dependencyRetrievalService;
+    private final ProjectGraphService projectGraphService;
+    private final ProjectGraphCache graphCache;
+    private final ExecutorService executor;
+
+    // "<project id>:<layout name>" of the layouts being computed, so that a view is only queued once
+    private final Map<String, Boolean> pending = new ConcurrentHashMap<>();
+
+    public GraphLayoutService(DependencyRetrievalService dependencyRetrievalService, ProjectGraphService projectGraphService, ProjectGraphCache graphCache,
+                              @Value("${graph.layout.workers:1}") int workers) {
+        this.dependencyRetrievalService = dependencyRetrievalService;
+        this.projectGraphService = projectGraphService;
+        this.graphCache = graphCache;
+        this.executor = Executors.newFixedThreadPool(workers);
+    }
+
+    // Name the layout of a view is stored and cached under
+    public static String layoutName(int edgeTypes, String packageName) {
+        return "layout-" + edgeTypes + "-" + (packageName == null || packageName.isEmpty() ? "all" : packageName);
+    }
+
+    // Retrieves one page of the laid out classes of a view, top layer first, with the edges leaving them.
+    // Responds with 202 while the layout is computed in the background, poll again to get it
+    public ResponseEntity<String> getLayout(String projectId, int edgeTypes, String packageName, int offset, int limit) {
+
+        try {
+
+            DependencyGraph graph = projectGraphService.getDependencyGraph(projectId);
+            if (graph == null) {
+                return new ResponseEntity<>("Project not found.", HttpStatus.NOT_FOUND);
+            }
+            if (packageName != null && !packageName.isEmpty() && projectGraphService.getPackageRollup(projectId).getPackage(packageName) < 0) {
+                return new ResponseEntity<>("Package " + packageName + " not found in the project.", HttpStatus.NOT_FOUND);
+            }
+
+            String name = layoutName(edgeTypes, packageName);
+            LayeredLayout layout = findLayout(projectId, name);
+            if (layout == null) {
+                return scheduleLayout(projectId, name, graph, edgeTypes, packageName);
+            }
+
+            int end = (int) Math.min((long) offset + limit, layout.size());
+            StringWriter jsonOutput = new StringWriter();
+            JsonWriter jsonWriter = gson.newJsonWriter(jsonOutput);
+            jsonWriter.beginObject();
+            jsonWriter.name("status").value("done");
+            jsonWriter.name("nodeCount").value(layout.size());
+            jsonWriter.name("nodeWidth").value(LayeredLayout.NODE_WIDTH);
+            jsonWriter.name("nodeHeight").value(LayeredLayout.NODE_HEIGHT);
+            jsonWriter.name("offset").value(offset);
+            if (end < layout.size()) {
+                jsonWriter.name("nextOffset").value(end);
+            }
+            jsonWriter.name("nodes").beginArray();
+            for (int index = offset; index < end; index++) {
+                jsonWriter.beginObject();
+                jsonWriter.name("id").value(layout.getNode(index));
+                jsonWriter.name("name").value(graph.getName(layout.getNode(index)));
+                jsonWriter.name("x").value(layout.getX(index));
+                jsonWriter.name("y").value(layout.getY(index));
+                jsonWriter.endObject();
+            }
+            jsonWriter.endArray();
+            jsonWriter.name("edges").beginArray();
+            // Classes of the view, to leave out edges to classes outside of it
+            boolean[] inView = new boolean[graph.getNodeCount()];
+            for (int index = 0; index < layout.size(); index++) {
+                inView[layout.getNode(index)] = true;
+            }
+            for (int index = offset; index < end; index++) {
+                int node = layout.getNode(index);
+                for (int edge = graph.firstOut(node); edge < graph.endOut(node); edge++) {
+                    if ((edgeTypes & 1 << graph.outType(edge)) != 0 && inView[graph.outTarget(edge)]) {
+                        jsonWriter.beginObject();
+                        jsonWriter.name("source").value(node);
+                        jsonWriter.name("target").value(graph.outTarget(edge));
+                        jsonWriter.name("type").value(DependencyGraph.EDGE_TYPES.get(graph.outType(edge)));
+                        jsonWriter.endObject();
+                    }
+                }
+            }
+            jsonWriter.endArray();
+            jsonWriter.endObject();
+            jsonWriter.flush();
+
+            return ResponseEntity.ok(jsonOutput.toString());
+
+        } catch (Exception e) {
+            logger.info(e.getMessage());
+            return new ResponseEntity<>("Error retrieving the layout", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Cached or stored layout, null if there is none or it was stored by another version of the layout
+    private LayeredLayout findLayout(String projectId, String name) throws Exception {
+
+        LayeredLayout layout = graphCache.get(projectId, name, LayeredLayout.class);
+        if (layout != null) {
+            return layout;
+        }
+        byte[] data = dependencyRetrievalService.getGraph(projectId, name);
+        if (data == null) {
+            return null;
+        }
+        try {
+            layout = LayeredLayout.fromByteArray(data);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        graphCache.put(projectId, name, layout, layout.getMemoryBytes());
+        return layout;
+    }
+
+    private ResponseEntity<String> scheduleLayout(String projectId, String name, DependencyGraph graph, int edgeTypes, String packageName) {
+
+        String key = projectId + ":" + name;
+        if (pending.putIfAbsent(key, Boolean.TRUE) == null) {
+            try {
+                executor.execute(() -> computeLayout(projectId, name, graph, edgeTypes, packageName));
+            } catch (RejectedExecutionException e) {
+                pending.remove(key);
+                return new ResponseEntity<>("Layout workers are shut down.", HttpStatus.SERVICE_UNAVAILABLE);
+            }
+        }
+        return new ResponseEntity<>(gson.toJson(Map.of("status", "computing")), HttpStatus.ACCEPTED);
+    }
+
+    private void computeLayout(String projectId, String name, DependencyGraph graph, int edgeTypes, String packageName) {
+
+        try {
+            String packagePrefix = packageName == null || packageName.isEmpty() ? "" : packageName + ".";
+            LayeredLayout layout = LayeredLayout.compute(graph, edgeTypes, node -> graph.getName(node).startsWith(packagePrefix));
+            dependencyRetrievalService.saveGraph(projectId, name, layout.toByteArray()).join();
+            // Replaces an outdated layout in the cache
+            graphCache.put(projectId, name, layout, layout.getMemoryBytes());
+        } catch (Exception e) {
+            // The next request queues the layout again
+            logger.error("Layout " + name + " of project " + projectId + " failed: " + e.getMessage());
+        } finally {
+            pending.remove(projectId + ":" + name);
+        }
+    }
+
+    // Layouts queued or being computed
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,54 @@
+package com.g8.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight recorder event spanning the analysis of one jar, from hashing the upload to saving the project.
+// Failed analyses are recorded too, without a project id
+@Name("com.g8.JarAnalysis")
+@Label("Jar Analysis")
+@Description("Analysis of an uploaded jar")
+@Category({"Dependency Resolver", "Analysis"})
+@StackTrace(false)
+class JarAnalysisEvent extends Event {
+
+    // "file" or "stream"
+    @Label("Ingestion")
+    String ingestion;
+
+    @Label("Jar Size")
+    @DataAmount
+    long jarSize;
+
+    @Label("Entries Scanned")
+    int entryCount;
+
+    @Label("Classes")
+    int classCount;
+
+    @Label("Project Id")
+    String projectId;
+
+    // The jar was analyzed before and its project reused
+    @Label("Cached")
+    boolean cached;
+
+    JarAnalysisEvent(String ingestion, long jarSize) {
+        this.ingestion = ingestion;
+        this.jarSize = jarSize;
+    }
+
+    // Takes the outcome of a finished analysis, the event is committed by the caller
+    String finish(AnalysisSession session, String projectId, boolean cached) {
+        this.entryCount = session.getEntriesScanned();
+        this.classCount = session.getClassList().size();
+        this.projectId = projectId;
+        this.cached = cached;
+        return projectId;
+    }
+}
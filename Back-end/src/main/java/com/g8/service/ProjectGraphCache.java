@@ -0,0 +1,35 @@
+package com.g8.service;
+
+import com.g8.utils.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Decoded graphs of stored projects, so that queries and pages of a graph do not read and decode it every time.
+// Bounded by the heap the graphs take
+@Component
+public class ProjectGraphCache {
+
+    private record CachedGraph(Object graph, long memoryBytes) {
+    }
+
+    // "<project id>:<graph name>" -> graph
+    private final LruCache<String, CachedGraph> graphs;
+
+    public ProjectGraphCache(@Value("${storage.graph-cache.max-mb:128}") long maxMegabytes) {
+        this.graphs = new LruCache<>(maxMegabytes * 1024 * 1024, CachedGraph::memoryBytes, 0);
+    }
+
+    // Returns null if the graph is not cached
+    public <T> T get(String projectId, String graphName, Class<T> type) {
+        CachedGraph cached = graphs.get(projectId + ":" + graphName);
+        return cached != null ? type.cast(cached.graph()) : null;
+    }
+
+    public void put(String projectId, String graphName, Object graph, long memoryBytes) {
+        graphs.put(projectId + ":" + graphName, new CachedGraph(graph, memoryBytes));
+    }
+
+    public LruCache<String, ?> getGraphs() {
+        return graphs;
+    }
+}
@@ -0,0 +1,446 @@
+package com.g8.service;
+
+import com.g8.model.ClassInfo;
+import com.g8.storage.ProjectStore;
+import com.g8.utils.CompactGraphCodec;
+import com.g8.utils.DependencyGraph;
+import com.g8.utils.Neighborhood;
+import com.g8.utils.PackageRollup;
+import com.g8.utils.ReachabilityIndex;
+import com.g8.utils.StronglyConnectedComponents;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Graph queries on stored projects. The dependency graph of a project is loaded once and shared by all queries
+@Service
+public class ProjectGraphService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectGraphService.class);
+    private static final Gson gson = new Gson();
+
+    private final ProjectStore projectStore;
+    private final ProjectGraphCache graphCache;
+
+    // Bitsets of a reachability index per direction, past this the queries walk the condensed graph
+    @Value("${graph.reachability.max-mb:32}")
+    private long reachabilityMaxMegabytes = 32;
+
+    // Largest neighborhood collected around a class, larger ones are cut off and marked as truncated
+    @Value("${graph.neighborhood.max-nodes:50000}")
+    private int neighborhoodMaxNodes = 50_000;
+
+    public ProjectGraphService(ProjectStore projectStore) {
+        this(projectStore, new ProjectGraphCache(0));
+    }
+
+    @Autowired
+    public ProjectGraphService(ProjectStore projectStore, ProjectGraphCache graphCache) {
+        this.projectStore = projectStore;
+        this.graphCache = graphCache;
+    }
+
+    // Returns null if the project does not exist or has no classes
+    public DependencyGraph getDependencyGraph(String projectId) throws Exception {
+
+        DependencyGraph graph = graphCache.get(projectId, DependencyGraph.NAME, DependencyGraph.class);
+        if (graph != null) {
+            return graph;
+        }
+
+        byte[] data = projectStore.getGraph(projectId, DependencyGraph.NAME);
+        if (data != null) {
+            graph = DependencyGraph.fromByteArray(data);
+        } else {
+            // Projects analysed before the graph was stored. Their stored classes do not list their
+            // nested classes, so the graph has no nesting edges
+            List<ClassInfo> classes = new ArrayList<>();
+            for (byte[] chunk : projectStore.getInternalDependencies(projectId)) {
+                classes.addAll(CompactGraphCodec.decode(chunk));
+            }
+            if (classes.isEmpty()) {
+                return null;
+            }
+            graph = DependencyGraph.fromClasses(classes);
+        }
+
+        graphCache.put(projectId, DependencyGraph.NAME, graph, graph.getMemoryBytes());
+        return graph;
+    }
+
+    // Returns null if the project does not exist or has no classes
+    public PackageRollup getPackageRollup(String projectId) throws Exception {
+
+        PackageRollup rollup = graphCache.get(projectId, PackageRollup.NAME, PackageRollup.class);
+        if (rollup != null) {
+            return rollup;
+        }
+
+        byte[] data = projectStore.getGraph(projectId, PackageRollup.NAME);
+        if (data != null) {
+            rollup = PackageRollup.fromByteArray(data);
+        } else {
+            // Projects analysed before the rollup was stored
+            DependencyGraph graph = getDependencyGraph(projectId);
+            if (graph == null) {
+                return null;
+            }
+            rollup = PackageRollup.fromGraph(graph);
+        }
+
+        graphCache.put(projectId, PackageRollup.NAME, rollup, rollup.getMemoryBytes());
+        return rollup;
+    }
+
+    // Strongly connected components over the given edge types, cached per mask next to the graph
+    public StronglyConnectedComponents getComponents(String projectId, DependencyGraph graph, int edgeTypes) {
+
+        String name = "components:" + edgeTypes;
+        StronglyConnectedComponents components = graphCache.get(projectId, name, StronglyConnectedComponents.class);
+        if (components == null) {
+            components = StronglyConnectedComponents.compute(graph, edgeTypes);
+            graphCache.put(projectId, name, components, components.getMemoryBytes());
+        }
+        return components;
+    }
+
+    // Reachability index over the given edge types, cached per mask next to the graph
+    public ReachabilityIndex getReachabilityIndex(String projectId, DependencyGraph graph, int edgeTypes) {
+
+        String name = "reachability:" + edgeTypes;
+        ReachabilityIndex index = graphCache.get(projectId, name, ReachabilityIndex.class);
+        if (index == null) {
+            index = ReachabilityIndex.build(graph, getComponents(projectId, graph, edgeTypes), edgeTypes, reachabilityMaxMegabytes * 1024 * 1024);
+            graphCache.put(projectId, name, index, index.getMemoryBytes());
+        }
+        return index;
+    }
+
+    // Retrieves one page of the dependency cycles of a project, a cycle being a strongly connected component
+    // of more than one class. Largest cycles come first. Returns null if the project does not exist
+    public CompletableFuture<String> getCycles(String projectId, int edgeTypes, int offset, int limit) {
+
+        try {
+
+            DependencyGraph graph = getDependencyGraph(projectId);
+            if (graph == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            StronglyConnectedComponents components = getComponents(projectId, graph, edgeTypes);
+
+            int cycleCount = 0;
+            int classesInCycles = 0;
+            for (int component = 0; component < components.getComponentCount(); component++) {
+                if (components.getSize(component) > 1) {
+                    cycleCount++;
+                    classesInCycles += components.getSize(component);
+                }
+            }
+            // Sort keys of the cycles: size in the high bits, component id in the low bits
+            long[] cycles = new long[cycleCount];
+            int cycle = 0;
+            for (int component = 0; component < components.getComponentCount(); component++) {
+                if (components.getSize(component) > 1) {
+                    cycles[cycle++] = (long) -components.getSize(component) << 32 | component;
+                }
+            }
+            Arrays.sort(cycles);
+
+            int end = (int) Math.min((long) offset + limit, cycleCount);
+            StringWriter jsonOutput = new StringWriter();
+            JsonWriter jsonWriter = gson.newJsonWriter(jsonOutput);
+            jsonWriter.beginObject();
+            jsonWriter.name("classCount").value(graph.getNodeCount());
+            jsonWriter.name("componentCount").value(components.getComponentCount());
+            jsonWriter.name("cycleCount").value(cycleCount);
+            jsonWriter.name("classesInCycles").value(classesInCycles);
+            jsonWriter.name("offset").value(offset);
+            if (end < cycleCount) {
+                jsonWriter.name("nextOffset").value(end);
+            }
+            jsonWriter.name("cycles").beginArray();
+            for (int i = offset; i < end; i++) {
+                writeComponent(jsonWriter, graph, components, (int) cycles[i]);
+            }
+            jsonWriter.endArray();
+            jsonWriter.endObject();
+            jsonWriter.flush();
+
+            return CompletableFuture.completedFuture(jsonOutput.toString());
+
+        } catch (Exception e) {
+            logger.info(e.getMessage());
+            throw new RuntimeException("Error retrieving dependency cycles");
+        }
+    }
+
+    // Retrieves the strongly connected component a class belongs to.
+    // Returns null if the project does not exist or the class is not part of it
+    public CompletableFuture<String> getComponent(String projectId, String className, int edgeTypes) {
+
+        try {
+
+            DependencyGraph graph = getDependencyGraph(projectId);
+            int node = graph != null ? graph.getNode(className) : -1;
+            if (node < 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            StronglyConnectedComponents components = getComponents(projectId, graph, edgeTypes);
+
+            StringWriter jsonOutput = new StringWriter();
+            JsonWriter jsonWriter = gson.newJsonWriter(jsonOutput);
+            writeComponent(jsonWriter, graph, components, components.getComponent(node));
+            jsonWriter.flush();
+
+            return CompletableFuture.completedFuture(jsonOutput.toString());
+
+        } catch (Exception e) {
+            logger.info(e.getMessage());
+            throw new RuntimeException("Error retrieving the component of " + className);
+        }
+    }
+
+    // Retrieves one page of the classes a class depends on, or of the classes that depend on it, directly or
+    // transitively. maxDepth limits the number of dependencies between them, 0 for no limit.
+    // Returns null if the project does not exist or the class is not part of it
+    public CompletableFuture<String> getImpact(String projectId, String className, boolean dependents, int maxDepth,
+                                               int edgeTypes, int offset, int limit) {
+
+        try {
+
+            DependencyGraph graph = getDependencyGraph(projectId);
+            int node = graph != null ? graph.getNode(className) : -1;
+            if (node < 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            ReachabilityIndex index = getReachabilityIndex(projectId, graph, edgeTypes);
+            int[] classes = maxDepth > 0 ? index.reachable(node, dependents, maxDepth) : index.reachable(node, dependents);
+
+            int end = (int) Math.min((long) offset + limit, classes.length);
+            StringWriter jsonOutput = new StringWriter();
+            JsonWriter jsonWriter = gson.newJsonWriter(jsonOutput);
+            jsonWriter.beginObject();
+            jsonWriter.name("className").value(className);
+            jsonWriter.name("direction").value(dependents ? "dependents" : "dependencies");
+            if (maxDepth > 0) {
+                jsonWriter.name("maxDepth").value(maxDepth);
+            }
+            jsonWriter.name("count").value(classes.length);
+            jsonWriter.name("offset").value(offset);
+            if (end < classes.length) {
+                jsonWriter.name("nextOffset").value(end);
+            }
+            jsonWriter.name("classes").beginArray();
+            for (int i = offset; i < end; i++) {
+                jsonWriter.value(graph.getName(classes[i]));
+            }
+            jsonWriter.endArray();
+            jsonWriter.endObject();
+            jsonWriter.flush();
+
+            return CompletableFuture.completedFuture(jsonOutput.toString());
+
+        } catch (Exception e) {
+            logger.info(e.getMessage());
+            throw new RuntimeException("Error retrieving the " + (dependents ? "dependents" : "dependencies") + " of " + className);
+        }
+    }
+
+    // Retrieves one page of the classes within radius dependencies of a class in either direction, and the edges
+    // between them. Classes outside packageName are left out, null or empty for all packages. A page holds limit
+    // classes starting at the cursor, with the edges that connect them to the classes of the pages before.
+    // Returns null if the project does not exist or the class is not part of it
+    public CompletableFuture<String> getNeighborhood(String projectId, String className, int radius, int edgeTypes,
+                                                     String packageName, int cursor, int limit) {
+
+        try {
+
+            DependencyGraph graph = getDependencyGraph(projectId);
+            int focus = graph != null ? graph.getNode(className) : -1;
+            if (focus < 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            // Pages of a neighborhood are served from the cache instead of walking the graph again
+            String packagePrefix = packageName == null || packageName.isEmpty() ? "" : packageName + ".";
+            String name = "neighborhood:" + edgeTypes + ":" + radius + ":" + packagePrefix + ":" + className;
+            Neighborhood neighborhood = graphCache.get(projectId, name, Neighborhood.class);
+            if (neighborhood == null) {
+                neighborhood = Neighborhood.collect(graph, focus, radius, edgeTypes,
+                        node -> graph.getName(node).startsWith(packagePrefix), neighborhoodMaxNodes);
+                graphCache.put(projectId, name, neighborhood, neighborhood.getMemoryBytes());
+            }
+
+            int start = Math.min(cursor, neighborhood.size());
+            int end = (int) Math.min((long) start + limit, neighborhood.size());
+            StringWriter jsonOutput = new StringWriter();
+            JsonWriter jsonWriter = gson.newJsonWriter(jsonOutput);
+            jsonWriter.beginObject();
+            jsonWriter.name("focus").value(focus);
+            jsonWriter.name("radius").value(radius);
+            jsonWriter.name("nodeCount").value(neighborhood.size());
+            jsonWriter.name("truncated").value(neighborhood.isTruncated());
+            if (end < neighborhood.size()) {
+                jsonWriter.name("nextCursor").value(String.valueOf(end));
+            }
+            jsonWriter.name("nodes").beginArray();
+            for (int position = start; position < end; position++) {
+                jsonWriter.beginObject();
+                jsonWriter.name("id").value(neighborhood.getNode(position));
+                jsonWriter.name("name").value(graph.getName(neighborhood.getNode(position)));
+                jsonWriter.name("distance").value(neighborhood.getDistance(position));
+                jsonWriter.endObject();
+            }
+            jsonWriter.endArray();
+            jsonWriter.name("edges").beginArray();
+            for (int position = start; position < end; position++) {
+                neighborhood.forEachEdge(position, (source, target, type) -> {
+                    jsonWriter.beginObject();
+                    jsonWriter.name("source").value(source);
+                    jsonWriter.name("target").value(target);
+                    jsonWriter.name("type").value(DependencyGraph.EDGE_TYPES.get(type));
+                    jsonWriter.endObject();
+                });
+            }
+            jsonWriter.endArray();
+            jsonWriter.endObject();
+            jsonWriter.flush();
+
+            return CompletableFuture.completedFuture(jsonOutput.toString());
+
+        } catch (Exception e) {
+            logger.info(e.getMessage());
+            throw new RuntimeException("Error retrieving the neighborhood of " + className);
+        }
+    }
+
+    // Retrieves one level of the package tree: the subpackages and classes of a package ("" for the top level),
+    // and the number of class dependencies between them. A dependency on a class in a subpackage counts for the
+    // subpackage. Returns null if the project or the package does not exist
+    public CompletableFuture<String> getPackageView(String projectId, String packageName) {
+
+        try {
+
+            PackageRollup rollup = getPackageRollup(projectId);
+            int parent = rollup != null ? rollup.getPackage(packageName) : -1;
+            if (parent < 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            // Items of the view are its subpackages (package id) and its classes (package count + class node)
+            int packageCount = rollup.getPackageCount();
+            Map<Long, Integer> edgeCounts = new HashMap<>();
+            for (int edge = 0; edge < rollup.getEdgeCount(); edge++) {
+                int source = rollup.getChildOf(parent, rollup.getEdgeSource(edge));
+                int target = rollup.getChildOf(parent, rollup.getEdgeTarget(edge));
+                if (source >= 0 && target >= 0 && source != target) {
+                    edgeCounts.merge((long) source << 32 | target, rollup.getEdgeWeight(edge), Integer::sum);
+                }
+            }
+            DependencyGraph graph = null;
+            if (rollup.firstClass(parent) < rollup.endClass(parent)) {
+                graph = getDependencyGraph(projectId);
+                for (int position = rollup.firstClass(parent); position < rollup.endClass(parent); position++) {
+                    int node = rollup.getClass(position);
+                    for (int edge = graph.firstOut(node); edge < graph.endOut(node); edge++) {
+                        int target = viewItem(rollup, parent, graph.outTarget(edge));
+                        if (target >= 0) {
+                            edgeCounts.merge((long) (packageCount + node) << 32 | target, 1, Integer::sum);
+                        }
+                    }
+                    for (int edge = graph.firstIn(node); edge < graph.endIn(node); edge++) {
+                        // Edges from classes of the package itself are counted as their outgoing edges
+                        int source = rollup.getChildOf(parent, rollup.getClassPackage(graph.inSource(edge)));
+                        if (source >= 0) {
+                            edgeCounts.merge((long) source << 32 | (packageCount + node), 1, Integer::sum);
+                        }
+                    }
+                }
+            }
+
+            StringWriter jsonOutput = new StringWriter();
+            JsonWriter jsonWriter = gson.newJsonWriter(jsonOutput);
+            jsonWriter.beginObject();
+            jsonWriter.name("package").value(packageName);
+            jsonWriter.name("classCount").value(rollup.getTotalClassCount(parent));
+            jsonWriter.name("packages").beginArray();
+            for (int position = rollup.firstChild(parent); position < rollup.endChild(parent); position++) {
+                int child = rollup.getChild(position);
+                jsonWriter.beginObject();
+                jsonWriter.name("name").value(rollup.getName(child));
+                jsonWriter.name("classCount").value(rollup.getTotalClassCount(child));
+                jsonWriter.name("packageCount").value(rollup.endChild(child) - rollup.firstChild(child));
+                jsonWriter.endObject();
+            }
+            jsonWriter.endArray();
+            jsonWriter.name("classes").beginArray();
+            for (int position = rollup.firstClass(parent); position < rollup.endClass(parent); position++) {
+                jsonWriter.value(graph.getName(rollup.getClass(position)));
+            }
+            jsonWriter.endArray();
+            jsonWriter.name("edges").beginArray();
+            List<Long> edges = new ArrayList<>(edgeCounts.keySet());
+            edges.sort(null);
+            for (long edge : edges) {
+                jsonWriter.beginObject();
+                jsonWriter.name("source").value(viewItemName(rollup, graph, (int) (edge >>> 32)));
+                jsonWriter.name("target").value(viewItemName(rollup, graph, (int) edge));
+                jsonWriter.name("count").value(edgeCounts.get(edge));
+                jsonWriter.endObject();
+            }
+            jsonWriter.endArray();
+            jsonWriter.endObject();
+            jsonWriter.flush();
+
+            return CompletableFuture.completedFuture(jsonOutput.toString());
+
+        } catch (Exception e) {
+            logger.info(e.getMessage());
+            throw new RuntimeException("Error retrieving package " + packageName);
+        }
+    }
+
+    public void setNeighborhoodMaxNodes(int neighborhoodMaxNodes) {
+        this.neighborhoodMaxNodes = neighborhoodMaxNodes;
+    }
+
+    public void setReachabilityMaxMegabytes(long reachabilityMaxMegabytes) {
+        this.reachabilityMaxMegabytes = reachabilityMaxMegabytes;
+    }
+
+    // Item of the package view a class belongs to, -1 if the class is outside the package
+    private static int viewItem(PackageRollup rollup, int parent, int node) {
+        int classPackage = rollup.getClassPackage(node);
+        return classPackage == parent ? rollup.getPackageCount() + node : rollup.getChildOf(parent, classPackage);
+    }
+
+    private static String viewItemName(PackageRollup rollup, DependencyGraph graph, int item) {
+        return item < rollup.getPackageCount() ? rollup.getName(item) : graph.getName(item - rollup.getPackageCount());
+    }
+
+    private static void writeComponent(JsonWriter jsonWriter, DependencyGraph graph, StronglyConnectedComponents components, int component) throws IOException {
+        jsonWriter.beginObject();
+        jsonWriter.name("component").value(component);
+        jsonWriter.name("size").value(components.getSize(component));
+        jsonWriter.name("classes").beginArray();
+        int first = components.firstNode(component);
+        for (int position = first; position < first + components.getSize(component); position++) {
+            jsonWriter.value(graph.getName(components.getNode(position)));
+        }
+        jsonWriter.endArray();
+        jsonWriter.endObject();
+    }
+}
@@ -0,0 +1,42 @@
+package com.g8.service;
+
+import com.g8.utils.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// Serialized project responses, a stored project never changes so a response can be served again as is.
+// Bounded by the total size of the cached JSON, entries also expire so the memory goes back once a project is closed
+@Component
+public class ProjectResponseCache {
+
+    // "<project id>:<section>" -> JSON response
+    private final LruCache<String, String> responses;
+
+    public ProjectResponseCache(@Value("${storage.response-cache.max-mb:64}") long maxMegabytes,
+                                @Value("${storage.response-cache.ttl-minutes:60}") long ttlMinutes) {
+        // Project JSON is mostly ASCII, which Java stores with one byte per character
+        this.responses = new LruCache<>(maxMegabytes * 1024 * 1024, String::length, TimeUnit.MINUTES.toMillis(ttlMinutes));
+    }
+
+    public String get(String projectId, String section) {
+        return responses.get(projectId + ":" + section);
+    }
+
+    public void put(String projectId, String section, String response) {
+        if (response != null) {
+            responses.put(projectId + ":" + section, response);
+        }
+    }
+
+    // Drops every cached response of the project
+    public void invalidate(String projectId) {
+        String prefix = projectId + ":";
+        responses.removeIf(key -> key.startsWith(prefix));
+    }
+
+    public LruCache<String, String> getResponses() {
+        return responses;
+    }
+}
@@ -0,0 +1,31 @@
+package com.g8.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight recorder event for a call to the project store, the duration of the event is the round-trip
+@Name("com.g8.StorageCall")
+@Label("Storage Call")
+@Description("Call to the project store")
+@Category({"Dependency Resolver", "Storage"})
+@StackTrace(false)
+class StorageCallEvent extends Event {
+
+    // ProjectStore method
+    @Label("Operation")
+    String operation;
+
+    // Null for calls that are not about a single project (user project lists, custom views)
+    @Label("Project Id")
+    String projectId;
+
+    // Project data sent to the store or returned by it, 0 for calls that do not move project data
+    @Label("Payload Size")
+    @DataAmount
+    long payloadSize;
+}
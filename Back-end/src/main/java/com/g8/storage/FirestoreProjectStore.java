@@ -0,0 +1,384 @@
+package com.g8.storage;
+
+import com.g8.model.ClassInfo;
+import com.g8.utils.CompactGraphCodec;
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.*;
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Stores projects in the Firestore collections "projects", "user_projects" and "custom_views"
+@Component
+@ConditionalOnProperty(name = "storage.type", havingValue = "firestore", matchIfMissing = true)
+public class FirestoreProjectStore implements ProjectStore {
+
+    private static final Gson gson = new Gson();
+
+    private final Firestore firestore;
+    private final CollectionReference projectCollectionReference;
+    private final CollectionReference userProjectsCollection;
+    private final CollectionReference customViewsCollection;
+
+    // Firestore rejects documents larger than 1 MiB
+    private static final int MAX_DOCUMENT_BYTES = 1_048_576;
+
+    // Internal dependencies are split into chunk documents of at most this many classes, a single document
+    // limits a project to a few thousand classes
+    @Value("${storage.chunk-size:2000}")
+    private int chunkSize = 2000;
+
+    // Compact data per chunk document, chunks are cut earlier when their classes are large. The classList slice of
+    // a chunk is never larger, its names are also in the chunk's string table, and 16 KiB is left for the field and
+    // document names
+    private int chunkBytes = (MAX_DOCUMENT_BYTES - 16_384) / 2;
+
+    // Chunk documents written per batch commit, all batches of a project are committed in parallel
+    @Value("${storage.chunks-per-batch:8}")
+    private int chunksPerBatch = 8;
+
+    // Chunk documents requested ahead of the one being streamed, bounds the memory of a streamed project
+    @Value("${storage.chunk-read-ahead:4}")
+    private int chunkReadAhead = 4;
+
+    // Graphs are split into documents of this many bytes, below the 1 MiB document limit
+    private int graphPartSize = 1_000_000;
+
+    public FirestoreProjectStore(Firestore firestore) {
+        this.firestore = firestore;
+        this.projectCollectionReference = firestore.collection("projects");
+        this.userProjectsCollection = firestore.collection("user_projects");
+        this.customViewsCollection = firestore.collection("custom_views");
+    }
+
+    @Override
+    public String saveProject(byte[] internalDependencies, List<Map<String, String>> externalDependencies, List<String> classList) throws Exception {
+
+        DocumentReference documentReference = projectCollectionReference.document();
+
+        // The classes and their names are spread over chunk documents so no document goes over the size limit
+        List<byte[]> chunks = CompactGraphCodec.split(internalDependencies, chunkSize, chunkBytes);
+        List<List<String>> classLists = new ArrayList<>();
+        int classListStart = 0;
+        for (byte[] chunk : chunks) {
+            int classCount = new CompactGraphCodec.Reader(chunk).getRemaining();
+            classLists.add(classList.subList(Math.min(classListStart, classList.size()), Math.min(classListStart + classCount, classList.size())));
+            classListStart += classCount;
+        }
+        // Names without a class record, not expected from an analysis
+        for (; classListStart < classList.size(); classListStart += chunkSize) {
+            classLists.add(classList.subList(classListStart, Math.min(classListStart + chunkSize, classList.size())));
+        }
+        int chunkCount = classLists.size();
+
+        List<ApiFuture<List<WriteResult>>> commits = new ArrayList<>();
+        WriteBatch batch = firestore.batch();
+        for (int i = 0; i < chunkCount; i++) {
+            Map<String, Object> chunkData = new HashMap<>();
+            chunkData.put("intDepCompact", Blob.fromBytes(i < chunks.size() ? chunks.get(i) : CompactGraphCodec.encode(List.of())));
+            chunkData.put("classList", new ArrayList<>(classLists.get(i)));
+            batch.set(documentReference.collection("chunks").document(String.valueOf(i)), chunkData);
+
+            if ((i + 1) % chunksPerBatch == 0 || i == chunkCount - 1) {
+                commits.add(batch.commit());
+                batch = firestore.batch();
+            }
+        }
+        for (ApiFuture<List<WriteResult>> commit : commits) {
+            commit.get();
+        }
+
+        // The project document goes last, so a project is never visible with missing chunks
+        Map<String, Object> dependenciesData = new HashMap<>();
+        dependenciesData.put("chunkCount", chunkCount);
+        dependenciesData.put("extDep", externalDependencies);
+
+        // Save the data into the Firestore document
+        documentReference.set(dependenciesData).get();
+
+        // Retrieve the generated document ID
+        return documentReference.getId();
+    }
+
+    @Override
+    public ProjectData getProject(String projectId, Set<String> sections) throws Exception {
+
+        // Retrieve the collection with the name `projectId`
+        DocumentSnapshot projectCollection = projectCollectionReference.document(projectId).get().get();
+
+        List<byte[]> internalDependencies = null;
+        List<String> classList = null;
+        boolean withInternalDependencies = sections.contains(ProjectData.INTERNAL_DEPENDENCIES);
+        boolean withClassList = sections.contains(ProjectData.CLASS_LIST);
+
+        if (projectCollection.contains("chunkCount")) {
+            // Classes and class names share the chunk documents, so they are read once for both sections
+            if (withInternalDependencies || withClassList) {
+                List<DocumentSnapshot> chunks = getChunks(projectId, projectCollection);
+                if (withInternalDependencies) {
+                    internalDependencies = new ArrayList<>();
+                    for (DocumentSnapshot chunk : chunks) {
+                        internalDependencies.add(chunk.getBlob("intDepCompact").toBytes());
+                    }
+                }
+                if (withClassList) {
+                    classList = new ArrayList<>();
+                    for (DocumentSnapshot chunk : chunks) {
+                        classList.addAll((List<String>) chunk.get("classList"));
+                    }
+                }
+            }
+        } else {
+            // Projects saved before chunking hold everything in the project document
+            if (withInternalDependencies) {
+                internalDependencies = getLegacyInternalDependencies(projectCollection);
+            }
+            if (withClassList) {
+                classList = (List<String>) projectCollection.get("classList");
+            }
+        }
+
+        List<Map<String, Object>> externalDependencies = sections.contains(ProjectData.EXTERNAL_DEPENDENCIES)
+                ? (List<Map<String, Object>>) projectCollection.get("extDep") : null;
+
+        return new ProjectData(internalDependencies, externalDependencies, classList);
+    }
+
+    @Override
+    public ProjectData streamProject(String projectId, Set<String> sections, ChunkConsumer consumer) throws Exception {
+
+        DocumentSnapshot projectCollection = projectCollectionReference.document(projectId).get().get();
+        if (!projectCollection.contains("chunkCount")) {
+            // Projects saved before chunking are a single document anyway
+            return ProjectStore.super.streamProject(projectId, sections, consumer);
+        }
+
+        List<String> classList = null;
+        boolean withInternalDependencies = sections.contains(ProjectData.INTERNAL_DEPENDENCIES);
+        boolean withClassList = sections.contains(ProjectData.CLASS_LIST);
+
+        if (withInternalDependencies || withClassList) {
+            int chunkCount = projectCollection.getLong("chunkCount").intValue();
+            CollectionReference chunkCollection = projectCollectionReference.document(projectId).collection("chunks");
+            classList = withClassList ? new ArrayList<>() : null;
+
+            // Only the chunk being consumed and the next chunkReadAhead reads are held at any time
+            Deque<ApiFuture<DocumentSnapshot>> reads = new ArrayDeque<>();
+            int nextChunk = 0;
+            while (nextChunk < chunkCount || !reads.isEmpty()) {
+                while (nextChunk < chunkCount && reads.size() <= chunkReadAhead) {
+                    reads.add(chunkCollection.document(String.valueOf(nextChunk++)).get());
+                }
+                DocumentSnapshot chunk = reads.poll().get();
+                if (withInternalDependencies) {
+                    consumer.accept(chunk.getBlob("intDepCompact").toBytes());
+                }
+                if (withClassList) {
+                    classList.addAll((List<String>) chunk.get("classList"));
+                }
+            }
+        }
+
+        List<Map<String, Object>> externalDependencies = sections.contains(ProjectData.EXTERNAL_DEPENDENCIES)
+                ? (List<Map<String, Object>>) projectCollection.get("extDep") : null;
+
+        return new ProjectData(null, externalDependencies, classList);
+    }
+
+    @Override
+    public void saveGraph(String projectId, String graphName, byte[] graph) throws Exception {
+
+        // The parts of a graph are the documents of the sub-collection named after it
+        DocumentReference documentReference = projectCollectionReference.document(projectId);
+        int partCount = Math.max(1, (graph.length + graphPartSize - 1) / graphPartSize);
+
+        List<ApiFuture<List<WriteResult>>> commits = new ArrayList<>();
+        WriteBatch batch = firestore.batch();
+        for (int i = 0; i < partCount; i++) {
+            byte[] part = Arrays.copyOfRange(graph, i * graphPartSize, Math.min((i + 1) * graphPartSize, graph.length));
+            batch.set(documentReference.collection(graphName).document(String.valueOf(i)), Map.of("data", Blob.fromBytes(part)));
+
+            if ((i + 1) % chunksPerBatch == 0 || i == partCount - 1) {
+                commits.add(batch.commit());
+                batch = firestore.batch();
+            }
+        }
+        for (ApiFuture<List<WriteResult>> commit : commits) {
+            commit.get();
+        }
+
+        // Like the chunks, the parts only become visible once all of them are written
+        documentReference.update(graphName + "Parts", partCount).get();
+    }
+
+    @Override
+    public byte[] getGraph(String projectId, String graphName) throws Exception {
+
+        DocumentSnapshot projectCollection = projectCollectionReference.document(projectId).get().get();
+        if (!projectCollection.contains(graphName + "Parts")) {
+            return null;
+        }
+
+        int partCount = projectCollection.getLong(graphName + "Parts").intValue();
+        CollectionReference partCollection = projectCollectionReference.document(projectId).collection(graphName);
+        List<ApiFuture<DocumentSnapshot>> reads = new ArrayList<>();
+        for (int i = 0; i < partCount; i++) {
+            reads.add(partCollection.document(String.valueOf(i)).get());
+        }
+
+        ByteArrayOutputStream graph = new ByteArrayOutputStream();
+        for (ApiFuture<DocumentSnapshot> read : reads) {
+            graph.writeBytes(read.get().getBlob("data").toBytes());
+        }
+        return graph.toByteArray();
+    }
+
+    private List<byte[]> getLegacyInternalDependencies(DocumentSnapshot projectCollection) {
+
+        Blob compactDependencies = projectCollection.getBlob("intDepCompact");
+        if (compactDependencies != null) {
+            return List.of(compactDependencies.toBytes());
+        }
+
+        List<Map<String, Object>> projects = (List<Map<String, Object>>) projectCollection.get("intDep");
+        if (projects != null && !projects.isEmpty()) {
+            Type type = new TypeToken<List<ClassInfo>>() {}.getType();
+            List<ClassInfo> dependencies = gson.fromJson(gson.toJson(projects), type);
+            return List.of(CompactGraphCodec.encode(dependencies));
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void addProjectToUser(String projectId, String userId) throws Exception {
+
+        DocumentReference userDocRef = userProjectsCollection.document(userId);
+        Map<String, Object> projectInfo = new HashMap<>();
+        projectInfo.put("projectId", projectId);
+        projectInfo.put("custom_view", "");
+
+        // Get the document snapshot
+        DocumentSnapshot snapshot = userDocRef.get().get();
+
+        if (snapshot.exists()) {
+            // A project linked again, e.g. a reused analysis, may have a custom view by now. arrayUnion only
+            // skips identical entries, so it would be added a second time
+            List<Map<String, Object>> projects = (List<Map<String, Object>>) snapshot.get("projects");
+            if (projects != null && projects.stream().anyMatch(project -> projectId.equals(project.get("projectId")))) {
+                return;
+            }
+            // Document exists, update the projects array
+            userDocRef.update("projects", FieldValue.arrayUnion(projectInfo)).get();
+        } else {
+            // Document does not exist, create a new one
+            Map<String, Object> userData = new HashMap<>();
+            userData.put("projects", Collections.singletonList(projectInfo));
+            userDocRef.set(userData, SetOptions.merge()).get();
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> getUserProjects(String userId) throws Exception {
+
+        DocumentSnapshot snapshot = userProjectsCollection.document(userId).get().get();
+        if (snapshot.exists()) {
+            List<Map<String, Object>> projects = (List<Map<String, Object>>) snapshot.get("projects");
+            return projects != null ? projects : Collections.emptyList();
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String createCustomView(String userId, String projectId, Map<String, Object> data) throws Exception {
+
+        // Create a new custom view document
+        DocumentReference customViewDocRef = customViewsCollection.document();
+        Map<String, Object> customViewData = new HashMap<>();
+        customViewData.put("data", data);
+
+        customViewDocRef.set(customViewData).get(); // Synchronous set operation to ensure completion
+
+        // Update the user document with the custom view ID
+        DocumentReference userDocRef = userProjectsCollection.document(userId);
+        ApiFuture<DocumentSnapshot> userDocFuture = userDocRef.get();
+        DocumentSnapshot userDocSnapshot = userDocFuture.get();
+
+        if (userDocSnapshot.exists()) {
+            // Retrieve the list of projects
+            List<Map<String, Object>> projects = (List<Map<String, Object>>) userDocSnapshot.get("projects");
+            if (projects != null) {
+                // Update the custom_view field of the matching project
+                for (Map<String, Object> project : projects) {
+                    if (projectId.equals(project.get("projectId"))) {
+                        project.put("custom_view", customViewDocRef.getId());
+                        break;
+                    }
+                }
+
+                // Update the document with the modified projects array
+                userDocRef.update("projects", projects).get();
+            }
+
+            // Return the ID of the created custom view
+            return customViewDocRef.getId();
+        } else {
+            System.out.println("User document does not exist");
+            return "";
+        }
+    }
+
+    @Override
+    public Map<String, Object> getCustomView(String customViewId) throws Exception {
+
+        DocumentSnapshot snapshot = customViewsCollection.document(customViewId).get().get();
+        return snapshot.exists() ? snapshot.getData() : null;
+    }
+
+    // Requests all chunk documents of a project at once and returns them in order
+    private List<DocumentSnapshot> getChunks(String projectId, DocumentSnapshot projectCollection) throws Exception {
+
+        int chunkCount = projectCollection.getLong("chunkCount").intValue();
+        CollectionReference chunkCollection = projectCollectionReference.document(projectId).collection("chunks");
+
+        List<ApiFuture<DocumentSnapshot>> reads = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            reads.add(chunkCollection.document(String.valueOf(i)).get());
+        }
+
+        List<DocumentSnapshot> chunks = new ArrayList<>();
+        for (ApiFuture<DocumentSnapshot> read : reads) {
+            chunks.add(read.get());
+        }
+        return chunks;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public void setChunksPerBatch(int chunksPerBatch) {
+        this.chunksPerBatch = chunksPerBatch;
+    }
+
+    public void setChunkReadAhead(int chunkReadAhead) {
+        this.chunkReadAhead = chunkReadAhead;
+    }
+
+    public void setGraphPartSize(int graphPartSize) {
+        this.graphPartSize = graphPartSize;
+    }
+}
@@ -0,0 +1,286 @@
+package com.g8.storage;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/*
+ * Embedded store for running on a single node without Firestore.
+ *
+ * Everything is kept in one append-only log file. Each write appends a frame (length, CRC32, entries)
+ * holding all the key/value pairs of one operation, so an operation is either fully stored or not at all.
+ * On startup the log is replayed into an in-memory index of key -> value position, a torn frame at the
+ * end of the log (crash while writing) is cut off. Reads are a single positional read from the file.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.type", havingValue = "local")
+public class LocalProjectStore implements ProjectStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalProjectStore.class);
+    private static final Gson gson = new Gson();
+    private static final Type MAP_LIST_TYPE = new TypeToken<List<Map<String, Object>>>() {}.getType();
+    private static final Type STRING_LIST_TYPE = new TypeToken<List<String>>() {}.getType();
+    private static final Type MAP_TYPE = new TypeToken<Map<String, Object>>() {}.getType();
+
+    // Frame header: payload length and CRC32 of the payload
+    private static final int HEADER_SIZE = 8;
+
+    private final FileChannel log;
+
+    // key -> position and length of the latest value in the log
+    private final Map<String, ValueLocation> index = new ConcurrentHashMap<>();
+
+    private record ValueLocation(long position, int length) {
+    }
+
+    public LocalProjectStore(@Value("${storage.local.directory:data}") String directory) throws IOException {
+        Path logPath = Path.of(directory).resolve("projects.log");
+        Files.createDirectories(logPath.getParent());
+        this.log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replay();
+    }
+
+    @Override
+    public String saveProject(byte[] internalDependencies, List<Map<String, String>> externalDependencies, List<String> classList) throws IOException {
+
+        // There is no document size limit here, so the internal dependencies are kept as a single chunk
+        String projectId = UUID.randomUUID().toString().replace("-", "");
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("project/" + projectId + "/intDep", internalDependencies);
+        entries.put("project/" + projectId + "/extDep", toJson(externalDependencies));
+        entries.put("project/" + projectId + "/classList", toJson(classList));
+        append(entries);
+        return projectId;
+    }
+
+    @Override
+    public ProjectData getProject(String projectId, Set<String> sections) throws IOException {
+
+        List<byte[]> internalDependencies = null;
+        if (sections.contains(ProjectData.INTERNAL_DEPENDENCIES)) {
+            byte[] data = read("project/" + projectId + "/intDep");
+            internalDependencies = data != null ? List.of(data) : null;
+        }
+        List<Map<String, Object>> externalDependencies = sections.contains(ProjectData.EXTERNAL_DEPENDENCIES)
+                ? fromJson(read("project/" + projectId + "/extDep"), MAP_LIST_TYPE) : null;
+        List<String> classList = sections.contains(ProjectData.CLASS_LIST)
+                ? fromJson(read("project/" + projectId + "/classList"), STRING_LIST_TYPE) : null;
+
+        return new ProjectData(internalDependencies, externalDependencies, classList);
+    }
+
+    @Override
+    public void saveGraph(String projectId, String graphName, byte[] graph) throws IOException {
+        append(Map.of("project/" + projectId + "/graph/" + graphName, graph));
+    }
+
+    @Override
+    public byte[] getGraph(String projectId, String graphName) throws IOException {
+        return read("project/" + projectId + "/graph/" + graphName);
+    }
+
+    // User entries are read, changed and written back, so these updates are serialized
+    @Override
+    public synchronized void addProjectToUser(String projectId, String userId) throws IOException {
+
+        Map<String, Object> projectInfo = new HashMap<>();
+        projectInfo.put("projectId", projectId);
+        projectInfo.put("custom_view", "");
+
+        List<Map<String, Object>> projects = new ArrayList<>(getUserProjects(userId));
+        if (projects.stream().anyMatch(project -> projectId.equals(project.get("projectId")))) {
+            return;
+        }
+        projects.add(projectInfo);
+        append(Map.of("user/" + userId, toJson(projects)));
+    }
+
+    @Override
+    public List<Map<String, Object>> getUserProjects(String userId) throws IOException {
+        List<Map<String, Object>> projects = fromJson(read("user/" + userId), MAP_LIST_TYPE);
+        return projects != null ? projects : Collections.emptyList();
+    }
+
+    @Override
+    public synchronized String createCustomView(String userId, String projectId, Map<String, Object> data) throws IOException {
+
+        String customViewId = UUID.randomUUID().toString().replace("-", "");
+        Map<String, Object> customViewData = new HashMap<>();
+        customViewData.put("data", data);
+
+        List<Map<String, Object>> projects = fromJson(read("user/" + userId), MAP_LIST_TYPE);
+        if (projects == null) {
+            append(Map.of("view/" + customViewId, toJson(customViewData)));
+            return "";
+        }
+
+        // Update the custom_view field of the matching project
+        for (Map<String, Object> project : projects) {
+            if (projectId.equals(project.get("projectId"))) {
+                project.put("custom_view", customViewId);
+                break;
+            }
+        }
+
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("view/" + customViewId, toJson(customViewData));
+        entries.put("user/" + userId, toJson(projects));
+        append(entries);
+        return customViewId;
+    }
+
+    @Override
+    public Map<String, Object> getCustomView(String customViewId) throws IOException {
+        return fromJson(read("view/" + customViewId), MAP_TYPE);
+    }
+
+    // Number of keys in the store
+    public int size() {
+        return index.size();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        log.close();
+    }
+
+    // Writes the entries as one frame at the end of the log and makes them visible once they are on disk
+    private synchronized void append(Map<String, byte[]> entries) throws IOException {
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        Map<String, ValueLocation> locations = new HashMap<>();
+        long frameStart = log.size();
+
+        out.writeInt(entries.size());
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            locations.put(entry.getKey(), new ValueLocation(frameStart + HEADER_SIZE + out.size(), entry.getValue().length));
+            out.write(entry.getValue());
+        }
+        out.flush();
+
+        byte[] payloadBytes = payload.toByteArray();
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payloadBytes.length);
+        frame.putInt(payloadBytes.length);
+        frame.putInt(checksum(payloadBytes));
+        frame.put(payloadBytes);
+        frame.flip();
+
+        long position = frameStart;
+        while (frame.hasRemaining()) {
+            position += log.write(frame, position);
+        }
+        log.force(false);
+        index.putAll(locations);
+    }
+
+    private byte[] read(String key) throws IOException {
+
+        ValueLocation location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+
+        ByteBuffer value = ByteBuffer.allocate(location.length());
+        long position = location.position();
+        while (value.hasRemaining()) {
+            int read = log.read(value, position);
+            if (read < 0) {
+                throw new EOFException("Log ends inside the value of " + key);
+            }
+            position += read;
+        }
+        return value.array();
+    }
+
+    // Rebuilds the index from the log and drops an incomplete frame at its end
+    private void replay() throws IOException {
+
+        long position = 0;
+        InputStream in = Channels.newInputStream(log.position(0));
+        DataInputStream frames = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        while (true) {
+            byte[] payloadBytes;
+            try {
+                int length = frames.readInt();
+                int checksum = frames.readInt();
+                if (length < 0 || position + HEADER_SIZE + length > log.size()) {
+                    break;
+                }
+                payloadBytes = new byte[length];
+                frames.readFully(payloadBytes);
+                if (checksum(payloadBytes) != checksum) {
+                    break;
+                }
+            } catch (EOFException e) {
+                break;
+            }
+
+            DataInputStream payload = new DataInputStream(new ByteArrayInputStream(payloadBytes));
+            int entryCount = payload.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                String key = payload.readUTF();
+                int length = payload.readInt();
+                index.put(key, new ValueLocation(position + HEADER_SIZE + (payloadBytes.length - payload.available()), length));
+                payload.skipNBytes(length);
+            }
+            position += HEADER_SIZE + payloadBytes.length;
+        }
+
+        if (position < log.size()) {
+            logger.warn("Dropping " + (log.size() - position) + " bytes of an incomplete write at the end of the store");
+            log.truncate(position);
+        }
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] toJson(Object value) {
+        return gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static <T> T fromJson(byte[] json, Type type) {
+        if (json == null) {
+            return null;
+        }
+        return gson.fromJson(new String(json, StandardCharsets.UTF_8), type);
+    }
+}
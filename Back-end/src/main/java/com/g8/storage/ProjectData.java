@@ -0,0 +1,16 @@
+package com.g8.storage;
+
+import java.util.List;
+import java.util.Map;
+
+// Sections of a stored project, a section is null when it was not requested or is not stored
+public record ProjectData(List<byte[]> internalDependencies,
+                          List<Map<String, Object>> externalDependencies,
+                          List<String> classList) {
+
+    public static final String INTERNAL_DEPENDENCIES = "intDep";
+    public static final String EXTERNAL_DEPENDENCIES = "extDep";
+    public static final String CLASS_LIST = "classList";
+
+    public static final List<String> SECTIONS = List.of(INTERNAL_DEPENDENCIES, EXTERNAL_DEPENDENCIES, CLASS_LIST);
+}
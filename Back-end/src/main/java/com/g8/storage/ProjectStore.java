@@ -0,0 +1,70 @@
+package com.g8.storage;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Persistence of analysed projects, the users' project lists and their custom views.
+// The implementation is picked with the storage.type property
+public interface ProjectStore {
+
+    // Stores the analysis result of a project and returns the id of the new project
+    String saveProject(byte[] internalDependencies, List<Map<String, String>> externalDependencies, List<String> classList) throws Exception;
+
+    // Loads the requested sections (see ProjectData) of a project with as few reads as possible
+    ProjectData getProject(String projectId, Set<String> sections) throws Exception;
+
+    // Receives the compact graph chunks of a project one at a time
+    @FunctionalInterface
+    interface ChunkConsumer {
+        void accept(byte[] chunk) throws Exception;
+    }
+
+    // Like getProject, but the internal dependency chunks are handed to the consumer in class order as they are read
+    // instead of being returned, so a store can keep only a few chunks in memory. The result has no internal dependencies
+    default ProjectData streamProject(String projectId, Set<String> sections, ChunkConsumer consumer) throws Exception {
+        ProjectData project = getProject(projectId, sections);
+        if (project.internalDependencies() != null) {
+            for (byte[] chunk : project.internalDependencies()) {
+                consumer.accept(chunk);
+            }
+        }
+        return new ProjectData(null, project.externalDependencies(), project.classList());
+    }
+
+    // Internal dependencies as compact graph chunks in class order, empty if the project has no classes
+    default List<byte[]> getInternalDependencies(String projectId) throws Exception {
+        List<byte[]> internalDependencies = getProject(projectId, Set.of(ProjectData.INTERNAL_DEPENDENCIES)).internalDependencies();
+        return internalDependencies != null ? internalDependencies : Collections.emptyList();
+    }
+
+    // Returns null if the project has no class list
+    default List<String> getClassList(String projectId) throws Exception {
+        return getProject(projectId, Set.of(ProjectData.CLASS_LIST)).classList();
+    }
+
+    // Returns null if the project has no external dependencies
+    default List<Map<String, Object>> getExternalDependencies(String projectId) throws Exception {
+        return getProject(projectId, Set.of(ProjectData.EXTERNAL_DEPENDENCIES)).externalDependencies();
+    }
+
+    // Stores a serialized graph of a saved project under its name (e.g. CallGraph.NAME), replacing an earlier one
+    void saveGraph(String projectId, String graphName, byte[] graph) throws Exception;
+
+    // Returns the serialized graph, null if the project has no graph with that name
+    byte[] getGraph(String projectId, String graphName) throws Exception;
+
+    // Adds the project to the projects of the user, creates the user entry if needed.
+    // Nothing changes if the user already has the project, its custom view is kept
+    void addProjectToUser(String projectId, String userId) throws Exception;
+
+    // Returns an empty list if the user has no projects
+    List<Map<String, Object>> getUserProjects(String userId) throws Exception;
+
+    // Stores the view and links it to the project of the user, returns an empty string if the user has no projects entry
+    String createCustomView(String userId, String projectId, Map<String, Object> data) throws Exception;
+
+    // Returns the stored view document, null if it does not exist
+    Map<String, Object> getCustomView(String customViewId) throws Exception;
+}
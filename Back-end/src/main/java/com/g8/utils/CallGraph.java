@@ -0,0 +1,226 @@
+package com.g8.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Method level call graph of a project in compressed sparse row form.
+ *
+ * Methods are interned to dense ids, method i calls the methods targets[offsets[i]] .. targets[offsets[i + 1] - 1].
+ * The names are kept as UTF-8 in a single array, so the graph takes about 4 bytes per call plus the bytes of
+ * the names, no matter how many calls a method makes.
+ *
+ * Serialized form: version byte, truncated flag, varint method count, the names (varint length + UTF-8 bytes),
+ * then for every method its varint call count followed by the varint ids it calls.
+ */
+public class CallGraph {
+
+    // Name the graph is stored under next to its project
+    public static final String NAME = "callGraph";
+
+    private static final int VERSION = 1;
+
+    private final byte[] names;
+    private final int[] nameOffsets;
+    private final int[] offsets;
+    private final int[] targets;
+
+    // True if calls were dropped because the graph reached its call budget
+    private final boolean truncated;
+
+    private CallGraph(byte[] names, int[] nameOffsets, int[] offsets, int[] targets, boolean truncated) {
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.truncated = truncated;
+    }
+
+    public int getMethodCount() {
+        return offsets.length - 1;
+    }
+
+    public int getCallCount() {
+        return targets.length;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    // "<class>.<method><descriptor>", e.g. "org.example.Service.run(Ljava/lang/String;)V"
+    public String getMethod(int method) {
+        return new String(names, nameOffsets[method], nameOffsets[method + 1] - nameOffsets[method], StandardCharsets.UTF_8);
+    }
+
+    // Ids of the methods called by the method, in the order the calls first appear in the jar
+    public int[] getCalls(int method) {
+        return Arrays.copyOfRange(targets, offsets[method], offsets[method + 1]);
+    }
+
+    // Approximate heap taken by the graph
+    public long getMemoryBytes() {
+        return names.length + 4L * (nameOffsets.length + offsets.length + targets.length);
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(names.length + 2 * targets.length + 16);
+        out.write(VERSION);
+        out.write(truncated ? 1 : 0);
+        writeVarint(out, getMethodCount());
+        for (int method = 0; method < getMethodCount(); method++) {
+            writeVarint(out, nameOffsets[method + 1] - nameOffsets[method]);
+            out.write(names, nameOffsets[method], nameOffsets[method + 1] - nameOffsets[method]);
+        }
+        for (int method = 0; method < getMethodCount(); method++) {
+            writeVarint(out, offsets[method + 1] - offsets[method]);
+            for (int i = offsets[method]; i < offsets[method + 1]; i++) {
+                writeVarint(out, targets[i]);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static CallGraph fromByteArray(byte[] data) {
+
+        int[] position = {0};
+        if (data.length < 2 || data[position[0]++] != VERSION) {
+            throw new IllegalArgumentException("Unsupported call graph data");
+        }
+        boolean truncated = data[position[0]++] != 0;
+
+        int methodCount = readVarint(data, position);
+        int[] nameOffsets = new int[methodCount + 1];
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        for (int method = 0; method < methodCount; method++) {
+            int length = readVarint(data, position);
+            names.write(data, position[0], length);
+            position[0] += length;
+            nameOffsets[method + 1] = nameOffsets[method] + length;
+        }
+
+        // The call count is not stored, the targets array grows while reading
+        int[] offsets = new int[methodCount + 1];
+        int[] targets = new int[Math.max(16, (data.length - position[0]) / 2)];
+        int callCount = 0;
+        for (int method = 0; method < methodCount; method++) {
+            int degree = readVarint(data, position);
+            if (callCount + degree > targets.length) {
+                targets = Arrays.copyOf(targets, Math.max(targets.length * 2, callCount + degree));
+            }
+            for (int i = 0; i < degree; i++) {
+                targets[callCount++] = readVarint(data, position);
+            }
+            offsets[method + 1] = callCount;
+        }
+
+        return new CallGraph(names.toByteArray(), nameOffsets, offsets, Arrays.copyOf(targets, callCount), truncated);
+    }
+
+    // Collects the calls of a project and turns them into a CallGraph, stops taking calls once maxCalls is reached
+    public static class Builder {
+
+        private final int maxCalls;
+        private final Map<String, Integer> methodIds = new HashMap<>();
+        private final List<String> methods = new ArrayList<>();
+
+        // Calls as two parallel arrays in the order they were added
+        private int[] callers = new int[1024];
+        private int[] callees = new int[1024];
+        private int callCount;
+        private boolean truncated;
+
+        public Builder(int maxCalls) {
+            this.maxCalls = maxCalls;
+        }
+
+        public int intern(String method) {
+            Integer id = methodIds.get(method);
+            if (id == null) {
+                id = methods.size();
+                methodIds.put(method, id);
+                methods.add(method);
+            }
+            return id;
+        }
+
+        // False once maxCalls calls were added, the graph is then marked as truncated. Lets callers skip
+        // interning the methods of calls that would be dropped
+        public boolean acceptsCall() {
+            if (callCount >= maxCalls) {
+                truncated = true;
+                return false;
+            }
+            return true;
+        }
+
+        public void addCall(int caller, int callee) {
+            if (!acceptsCall()) {
+                return;
+            }
+            if (callCount == callers.length) {
+                callers = Arrays.copyOf(callers, callCount * 2);
+                callees = Arrays.copyOf(callees, callCount * 2);
+            }
+            callers[callCount] = caller;
+            callees[callCount] = callee;
+            callCount++;
+        }
+
+        public int getCallCount() {
+            return callCount;
+        }
+
+        public CallGraph build() {
+
+            ByteArrayOutputStream names = new ByteArrayOutputStream();
+            int[] nameOffsets = new int[methods.size() + 1];
+            for (int method = 0; method < methods.size(); method++) {
+                byte[] name = methods.get(method).getBytes(StandardCharsets.UTF_8);
+                names.write(name, 0, name.length);
+                nameOffsets[method + 1] = nameOffsets[method] + name.length;
+            }
+
+            // Counting sort by caller, calls of the same caller keep the order they were added in
+            int[] offsets = new int[methods.size() + 1];
+            for (int i = 0; i < callCount; i++) {
+                offsets[callers[i] + 1]++;
+            }
+            for (int method = 0; method < methods.size(); method++) {
+                offsets[method + 1] += offsets[method];
+            }
+            int[] next = Arrays.copyOf(offsets, methods.size());
+            int[] targets = new int[callCount];
+            for (int i = 0; i < callCount; i++) {
+                targets[next[callers[i]]++] = callees[i];
+            }
+
+            return new CallGraph(names.toByteArray(), nameOffsets, offsets, targets, truncated);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -25,8 +25,19 @@ public class ClassVisitor extends org.objectweb.asm.ClassVisitor {
     // Stores the annotations information so that it can be added to the classInfo object once the class has been visited
     private final List<PrintAnnotationVisitor> annotations;
 
+    // Collects the calls made by the methods, null when calls are not needed
+    private final MethodCalls methodCalls;
+
+    // Name of the visited class as it appears in the bytecode, e.g. "org/example/Outer$Inner"
+    private String internalName;
+
     public ClassVisitor(Map<String, List<String>> map) {
+        this(map, null);
+    }
+
+    public ClassVisitor(Map<String, List<String>> map, MethodCalls methodCalls) {
         super(Opcodes.ASM9);
+        this.methodCalls = methodCalls;
         fieldInfoList = new ArrayList<>();
         methodInfoList = new ArrayList<>();
         classInfo = new ClassInfo();
@@ -37,6 +48,8 @@ public class ClassVisitor extends org.objectweb.asm.ClassVisitor {
     @Override
     public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
 
+        internalName = name;
+
         // split with /
         name = name.replace("/", ".");
         String[] nameArr = name.split("\\.");
@@ -92,9 +105,13 @@ public class ClassVisitor extends org.objectweb.asm.ClassVisitor {
     @Override
     public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
 
+        // Calls are recorded for every method body, constructors and lambdas included
+        MethodVisitor callVisitor = methodCalls != null
+                ? new MethodCallVisitor(methodCalls, methodCalls.method(internalName, name, descriptor)) : null;
+
         // Skip the 'init' method (constructor) by checking the method name
         if ("<init>".equals(name) || name.startsWith("lambda$")) {
-            return null;
+            return callVisitor;
         }
 
         MethodInfo currentMethod = new MethodInfo();
@@ -103,7 +120,7 @@ public class ClassVisitor extends org.objectweb.asm.ClassVisitor {
 
         // Add method to the methodList
         methodInfoList.add(currentMethod);
-        return new MethodAnnotationVisitor(currentMethod);
+        return new MethodAnnotationVisitor(currentMethod, callVisitor);
     }
 
     // Visiting variables in a class
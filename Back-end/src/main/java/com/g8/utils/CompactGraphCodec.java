@@ -0,0 +1,303 @@
+package com.g8.utils;
+
+import com.g8.model.ClassInfo;
+import com.g8.model.FieldInfo;
+import com.g8.model.MethodInfo;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Compact binary form of the internal dependencies of a project.
+ *
+ * Layout: version byte, string table (count, then length prefixed UTF-8 strings), class count, class records.
+ * Every string in a record is a varint index into the table (0 = null), every count is a varint,
+ * so a class that repeats package names and annotation names costs a few bytes per reference.
+ */
+public class CompactGraphCodec {
+
+    private static final int VERSION = 1;
+
+    private static final int FLAG_NESTED = 1;
+    private static final int FLAG_CONTROLLER = 2;
+    private static final int FLAG_STATIC = 1;
+    private static final int FLAG_ANNOTATED = 2;
+
+    private CompactGraphCodec() {
+    }
+
+    // Appends classes one at a time, the string table is written in front of the records when the data is finished
+    public static class Writer {
+
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<byte[]> strings = new ArrayList<>();
+        // Size of the string table entries, length prefixes included
+        private int stringTableSize;
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        private int classCount;
+
+        public void write(ClassInfo classInfo) {
+            writeString(classInfo.getName());
+            writeString(classInfo.getInherits());
+            writeString(classInfo.getClassType());
+            writeVarint(records, (classInfo.isNested() ? FLAG_NESTED : 0) | (classInfo.isControllerClass() ? FLAG_CONTROLLER : 0));
+
+            writeVarint(records, classInfo.getVariableList().size());
+            for (FieldInfo fieldInfo : classInfo.getVariableList()) {
+                writeString(fieldInfo.getIdentifier());
+                writeString(fieldInfo.getDatatype());
+                writeVarint(records, (fieldInfo.isStatic() ? FLAG_STATIC : 0) | (fieldInfo.isAnnotated() ? FLAG_ANNOTATED : 0));
+                writeStrings(fieldInfo.getAnnotationList());
+            }
+
+            writeVarint(records, classInfo.getMethodList().size());
+            for (MethodInfo methodInfo : classInfo.getMethodList()) {
+                writeString(methodInfo.getMethodName());
+                writeVarint(records, methodInfo.isStatic() ? FLAG_STATIC : 0);
+                writeStrings(methodInfo.getAnnotations());
+            }
+
+            writeStrings(classInfo.getNestedClassesList());
+            writeStrings(classInfo.getAnnotations());
+            writeStrings(classInfo.getImplementationList());
+            classCount++;
+        }
+
+        public int getClassCount() {
+            return classCount;
+        }
+
+        // Length of toByteArray() for the classes written so far
+        public int getSize() {
+            return 1 + varintSize(strings.size()) + stringTableSize + varintSize(classCount) + records.size();
+        }
+
+        public byte[] toByteArray() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(getSize());
+            out.write(VERSION);
+            writeVarint(out, strings.size());
+            for (byte[] bytes : strings) {
+                writeVarint(out, bytes.length);
+                out.writeBytes(bytes);
+            }
+            writeVarint(out, classCount);
+            try {
+                records.writeTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+
+        private void writeStrings(List<String> values) {
+            writeVarint(records, values.size());
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarint(records, 0);
+                return;
+            }
+            Integer id = stringIds.get(value);
+            if (id == null) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                strings.add(bytes);
+                stringTableSize += varintSize(bytes.length) + bytes.length;
+                id = strings.size();
+                stringIds.put(value, id);
+            }
+            writeVarint(records, id);
+        }
+    }
+
+    // Decodes classes one at a time so callers never need the whole list in memory
+    public static class Reader {
+
+        private final byte[] data;
+        private int position;
+        private final String[] strings;
+        private int remaining;
+
+        public Reader(byte[] data) {
+            this.data = data;
+            if (data.length == 0 || data[position++] != VERSION) {
+                throw new IllegalArgumentException("Unsupported compact graph data");
+            }
+            strings = new String[readVarint() + 1];
+            for (int i = 1; i < strings.length; i++) {
+                int length = readVarint();
+                strings[i] = new String(data, position, length, StandardCharsets.UTF_8);
+                position += length;
+            }
+            remaining = readVarint();
+        }
+
+        public int getRemaining() {
+            return remaining;
+        }
+
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        public ClassInfo next() {
+            ClassInfo classInfo = new ClassInfo();
+            classInfo.setName(readString());
+            classInfo.setInherits(readString());
+            classInfo.setClassType(readString());
+            int classFlags = readVarint();
+            classInfo.setNested((classFlags & FLAG_NESTED) != 0);
+            classInfo.setControllerClass((classFlags & FLAG_CONTROLLER) != 0);
+
+            int fieldCount = readVarint();
+            List<FieldInfo> fields = new ArrayList<>(fieldCount);
+            for (int i = 0; i < fieldCount; i++) {
+                FieldInfo fieldInfo = new FieldInfo();
+                fieldInfo.setIdentifier(readString());
+                fieldInfo.setDatatype(readString());
+                int fieldFlags = readVarint();
+                fieldInfo.setStatic((fieldFlags & FLAG_STATIC) != 0);
+                fieldInfo.setAnnotated((fieldFlags & FLAG_ANNOTATED) != 0);
+                fieldInfo.setAnnotationList(readStrings());
+                fields.add(fieldInfo);
+            }
+            classInfo.setVariableList(fields);
+
+            int methodCount = readVarint();
+            List<MethodInfo> methods = new ArrayList<>(methodCount);
+            for (int i = 0; i < methodCount; i++) {
+                MethodInfo methodInfo = new MethodInfo();
+                methodInfo.setMethodName(readString());
+                methodInfo.setStatic((readVarint() & FLAG_STATIC) != 0);
+                methodInfo.setAnnotations(readStrings());
+                methods.add(methodInfo);
+            }
+            classInfo.setMethodList(methods);
+
+            classInfo.setNestedClassesList(readStrings());
+            classInfo.setAnnotations(readStrings());
+            classInfo.setImplementationList(readStrings());
+            remaining--;
+            return classInfo;
+        }
+
+        private List<String> readStrings() {
+            int count = readVarint();
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        private String readString() {
+            return strings[readVarint()];
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+
+    public static byte[] encode(List<ClassInfo> classes) {
+        Writer writer = new Writer();
+        classes.forEach(writer::write);
+        return writer.toByteArray();
+    }
+
+    public static List<ClassInfo> decode(byte[] data) {
+        Reader reader = new Reader(data);
+        List<ClassInfo> classes = new ArrayList<>(reader.getRemaining());
+        while (reader.hasNext()) {
+            classes.add(reader.next());
+        }
+        return classes;
+    }
+
+    // Splits the data into independently decodable parts of at most classesPerChunk classes each,
+    // every part gets its own string table so it can be read without the others
+    public static List<byte[]> split(byte[] data, int classesPerChunk) {
+        return split(data, classesPerChunk, Integer.MAX_VALUE);
+    }
+
+    // Same as above, a part is also cut before it grows over maxBytes. A single class larger than that gets a part of its own
+    public static List<byte[]> split(byte[] data, int classesPerChunk, int maxBytes) {
+        if (classesPerChunk <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("classesPerChunk and maxBytes must be positive");
+        }
+        Reader reader = new Reader(data);
+        List<byte[]> chunks = new ArrayList<>();
+        // Classes of the current part, it is encoded again without the last class when that one does not fit
+        List<ClassInfo> chunkClasses = new ArrayList<>();
+        Writer writer = new Writer();
+        while (reader.hasNext()) {
+            ClassInfo classInfo = reader.next();
+            writer.write(classInfo);
+            if (!chunkClasses.isEmpty() && (writer.getClassCount() > classesPerChunk || writer.getSize() > maxBytes)) {
+                chunks.add(encode(chunkClasses));
+                chunkClasses.clear();
+                writer = new Writer();
+                writer.write(classInfo);
+            }
+            chunkClasses.add(classInfo);
+        }
+        if (!chunkClasses.isEmpty()) {
+            chunks.add(writer.toByteArray());
+        }
+        return chunks;
+    }
+
+    // Writes the classes as a JSON array, the same output as gson.toJson(List<ClassInfo>) when the writer comes from gson.newJsonWriter
+    public static void writeJson(byte[] data, Gson gson, JsonWriter jsonWriter) throws IOException {
+        writeJson(List.of(data), gson, jsonWriter);
+    }
+
+    // Same as above for a project split into chunks, the classes of all chunks end up in one array
+    public static void writeJson(List<byte[]> chunks, Gson gson, JsonWriter jsonWriter) throws IOException {
+        jsonWriter.beginArray();
+        for (byte[] chunk : chunks) {
+            Reader reader = new Reader(chunk);
+            while (reader.hasNext()) {
+                gson.toJson(reader.next(), ClassInfo.class, jsonWriter);
+            }
+        }
+        jsonWriter.endArray();
+        jsonWriter.flush();
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
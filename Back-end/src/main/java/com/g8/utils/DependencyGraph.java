@@ -0,0 +1,379 @@
+package com.g8.utils;
+
+import com.g8.model.ClassInfo;
+import com.g8.model.FieldInfo;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Class level dependency graph of a project with classes interned to dense int ids.
+ *
+ * Edges are kept in compressed sparse row form in both directions: the edges leaving node n are the indexes
+ * firstOut(n) .. endOut(n) - 1 of outTarget/outType, the edges reaching it are firstIn(n) .. endIn(n) - 1 of
+ * inSource/inType. Each row is sorted by node id, so traversals walk memory in order and a node costs
+ * 8 bytes and an edge 10 bytes (both directions) on top of the class names.
+ *
+ * Only classes of the project are nodes, edges to library types are left out.
+ *
+ * Serialized form: version byte, varint node count, the names (varint length + UTF-8 bytes), then for every
+ * node its varint out degree followed by its edges as varint deltas of (target << 2 | type). The reverse
+ * direction is rebuilt when reading.
+ */
+public class DependencyGraph {
+
+    // Name the graph is stored under next to its project
+    public static final String NAME = "dependencyGraph";
+
+    // Edge types
+    public static final int INHERITS = 0;
+    public static final int IMPLEMENTS = 1;
+    public static final int NESTS = 2;
+    public static final int FIELD_TYPE = 3;
+
+    // Names of the edge types in the API, indexed by type
+    public static final List<String> EDGE_TYPES = List.of("inherits", "implements", "nests", "fieldType");
+
+    // Every edge type, as a mask for queries that filter by type
+    public static final int ALL_EDGE_TYPES = 0b1111;
+
+    private static final int VERSION = 1;
+
+    private final String[] names;
+    private final Map<String, Integer> nodeIds;
+
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final byte[] outTypes;
+
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final byte[] inTypes;
+
+    private DependencyGraph(String[] names, int[] outOffsets, int[] outTargets, byte[] outTypes) {
+        this.names = names;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.outTypes = outTypes;
+
+        this.nodeIds = new HashMap<>(names.length * 2);
+        for (int node = 0; node < names.length; node++) {
+            nodeIds.put(names[node], node);
+        }
+
+        // Reverse rows by counting sort, walking the sources in order keeps every reverse row sorted
+        inOffsets = new int[names.length + 1];
+        for (int edge = 0; edge < outTargets.length; edge++) {
+            inOffsets[outTargets[edge] + 1]++;
+        }
+        for (int node = 0; node < names.length; node++) {
+            inOffsets[node + 1] += inOffsets[node];
+        }
+        inSources = new int[outTargets.length];
+        inTypes = new byte[outTargets.length];
+        int[] next = Arrays.copyOf(inOffsets, names.length);
+        for (int source = 0; source < names.length; source++) {
+            for (int edge = outOffsets[source]; edge < outOffsets[source + 1]; edge++) {
+                int position = next[outTargets[edge]]++;
+                inSources[position] = source;
+                inTypes[position] = outTypes[edge];
+            }
+        }
+    }
+
+    // Builds the graph of the classes of a project, nested classes must already be linked to their parents
+    public static DependencyGraph fromClasses(Iterable<ClassInfo> classes) {
+
+        Builder builder = new Builder();
+        for (ClassInfo classInfo : classes) {
+            builder.addNode(classInfo.getName());
+        }
+
+        // Nested classes are named without their parent (Outer$Inner becomes Inner), but references to
+        // them in the bytecode use the full binary name
+        for (ClassInfo classInfo : classes) {
+            if (classInfo.getNestedClassesList() != null) {
+                for (String nested : classInfo.getNestedClassesList()) {
+                    int node = builder.getNode(nested);
+                    if (node >= 0) {
+                        builder.addAlias(classInfo.getName() + "$" + nested.substring(nested.lastIndexOf('.') + 1), node);
+                    }
+                }
+            }
+        }
+
+        for (ClassInfo classInfo : classes) {
+            int node = builder.getNode(classInfo.getName());
+            builder.addEdge(node, classInfo.getInherits(), INHERITS);
+            if (classInfo.getImplementationList() != null) {
+                for (String implemented : classInfo.getImplementationList()) {
+                    builder.addEdge(node, implemented, IMPLEMENTS);
+                }
+            }
+            if (classInfo.getNestedClassesList() != null) {
+                for (String nested : classInfo.getNestedClassesList()) {
+                    builder.addEdge(node, nested, NESTS);
+                }
+            }
+            if (classInfo.getVariableList() != null) {
+                for (FieldInfo field : classInfo.getVariableList()) {
+                    String datatype = field.getDatatype();
+                    // Arrays depend on their element type
+                    while (datatype != null && datatype.endsWith("[]")) {
+                        datatype = datatype.substring(0, datatype.length() - 2);
+                    }
+                    builder.addEdge(node, datatype, FIELD_TYPE);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    // Mask of the named edge types, -1 if one of the names is not an edge type
+    public static int edgeTypeMask(Collection<String> edgeTypes) {
+        int mask = 0;
+        for (String edgeType : edgeTypes) {
+            int type = EDGE_TYPES.indexOf(edgeType);
+            if (type < 0) {
+                return -1;
+            }
+            mask |= 1 << type;
+        }
+        return mask;
+    }
+
+    public int getNodeCount() {
+        return names.length;
+    }
+
+    public int getEdgeCount() {
+        return outTargets.length;
+    }
+
+    public String getName(int node) {
+        return names[node];
+    }
+
+    // Returns -1 if the class is not part of the graph
+    public int getNode(String name) {
+        Integer node = nodeIds.get(name);
+        return node != null ? node : -1;
+    }
+
+    public int firstOut(int node) {
+        return outOffsets[node];
+    }
+
+    public int endOut(int node) {
+        return outOffsets[node + 1];
+    }
+
+    public int outTarget(int edge) {
+        return outTargets[edge];
+    }
+
+    public int outType(int edge) {
+        return outTypes[edge];
+    }
+
+    public int firstIn(int node) {
+        return inOffsets[node];
+    }
+
+    public int endIn(int node) {
+        return inOffsets[node + 1];
+    }
+
+    public int inSource(int edge) {
+        return inSources[edge];
+    }
+
+    public int inType(int edge) {
+        return inTypes[edge];
+    }
+
+    // Approximate heap taken by the graph, names counted with one byte per character
+    public long getMemoryBytes() {
+        long bytes = 10L * outTargets.length + 8L * (names.length + 1);
+        for (String name : names) {
+            // String object, its array and the entry in nodeIds
+            bytes += name.length() + 40 + 48;
+        }
+        return bytes;
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + 3 * outTargets.length);
+        out.write(VERSION);
+        writeVarint(out, names.length);
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        for (int node = 0; node < names.length; node++) {
+            writeVarint(out, endOut(node) - firstOut(node));
+            int previous = 0;
+            for (int edge = firstOut(node); edge < endOut(node); edge++) {
+                int key = outTargets[edge] << 2 | outTypes[edge];
+                writeVarint(out, key - previous);
+                previous = key;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static DependencyGraph fromByteArray(byte[] data) {
+
+        int[] position = {0};
+        if (data.length < 2 || data[position[0]++] != VERSION) {
+            throw new IllegalArgumentException("Unsupported dependency graph data");
+        }
+
+        String[] names = new String[readVarint(data, position)];
+        for (int node = 0; node < names.length; node++) {
+            int length = readVarint(data, position);
+            names[node] = new String(data, position[0], length, StandardCharsets.UTF_8);
+            position[0] += length;
+        }
+
+        int[] offsets = new int[names.length + 1];
+        int[] targets = new int[16];
+        byte[] types = new byte[16];
+        int edgeCount = 0;
+        for (int node = 0; node < names.length; node++) {
+            int degree = readVarint(data, position);
+            if (edgeCount + degree > targets.length) {
+                int capacity = Math.max(targets.length * 2, edgeCount + degree);
+                targets = Arrays.copyOf(targets, capacity);
+                types = Arrays.copyOf(types, capacity);
+            }
+            int key = 0;
+            for (int i = 0; i < degree; i++) {
+                key += readVarint(data, position);
+                targets[edgeCount] = key >>> 2;
+                types[edgeCount] = (byte) (key & 3);
+                edgeCount++;
+            }
+            offsets[node + 1] = edgeCount;
+        }
+
+        return new DependencyGraph(names, offsets, Arrays.copyOf(targets, edgeCount), Arrays.copyOf(types, edgeCount));
+    }
+
+    // Collects nodes and edges, edges may point to nodes added later. Duplicate edges and self loops are dropped
+    public static class Builder {
+
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> nodeIds = new HashMap<>();
+
+        // Edges as (source, target << 2 | type), in the order they were added
+        private int[] sources = new int[1024];
+        private int[] keys = new int[1024];
+        private int edgeCount;
+
+        // Returns the id of the node, an existing node keeps its id
+        public int addNode(String name) {
+            Integer node = nodeIds.get(name);
+            if (node == null) {
+                node = names.size();
+                names.add(name);
+                nodeIds.put(name, node);
+            }
+            return node;
+        }
+
+        // Makes another name resolve to the node
+        public void addAlias(String alias, int node) {
+            nodeIds.putIfAbsent(alias, node);
+        }
+
+        public int getNode(String name) {
+            Integer node = name != null ? nodeIds.get(name) : null;
+            return node != null ? node : -1;
+        }
+
+        // Adds an edge to the named class, ignored if the class is not a node
+        public void addEdge(int source, String target, int type) {
+            int targetNode = getNode(target);
+            if (targetNode >= 0) {
+                addEdge(source, targetNode, type);
+            }
+        }
+
+        public void addEdge(int source, int target, int type) {
+            if (source == target) {
+                return;
+            }
+            if (edgeCount == sources.length) {
+                sources = Arrays.copyOf(sources, edgeCount * 2);
+                keys = Arrays.copyOf(keys, edgeCount * 2);
+            }
+            sources[edgeCount] = source;
+            keys[edgeCount] = target << 2 | type;
+            edgeCount++;
+        }
+
+        public DependencyGraph build() {
+
+            int nodeCount = names.size();
+            int[] offsets = new int[nodeCount + 1];
+            for (int i = 0; i < edgeCount; i++) {
+                offsets[sources[i] + 1]++;
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                offsets[node + 1] += offsets[node];
+            }
+            int[] rowKeys = new int[edgeCount];
+            int[] next = Arrays.copyOf(offsets, nodeCount);
+            for (int i = 0; i < edgeCount; i++) {
+                rowKeys[next[sources[i]]++] = keys[i];
+            }
+
+            // Sorting every row by target and type puts duplicates next to each other
+            int[] targets = new int[edgeCount];
+            byte[] types = new byte[edgeCount];
+            int[] compactOffsets = new int[nodeCount + 1];
+            int kept = 0;
+            for (int node = 0; node < nodeCount; node++) {
+                Arrays.sort(rowKeys, offsets[node], offsets[node + 1]);
+                for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                    if (i == offsets[node] || rowKeys[i] != rowKeys[i - 1]) {
+                        targets[kept] = rowKeys[i] >>> 2;
+                        types[kept] = (byte) (rowKeys[i] & 3);
+                        kept++;
+                    }
+                }
+                compactOffsets[node + 1] = kept;
+            }
+
+            return new DependencyGraph(names.toArray(new String[0]), compactOffsets, Arrays.copyOf(targets, kept), Arrays.copyOf(types, kept));
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
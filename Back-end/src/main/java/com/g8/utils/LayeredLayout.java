@@ -0,0 +1,256 @@
+package com.g8.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/*
+ * Top to bottom layered layout of a class graph, with the node sizes and spacing the whiteboard uses for dagre.
+ *
+ * Cycles are collapsed to their strongly connected components, whose classes share a layer. Every other class
+ * goes one layer below the lowest class depending on it (longest path layering). The order inside the layers
+ * comes from a few barycenter sweeps, each class moving towards the average position of its neighbors in the
+ * layers above (down sweep) or below (up sweep). The whole layout is O(classes + edges) per sweep plus the
+ * sorting of the layers.
+ *
+ * Positions are the top left corners of the nodes. Nodes are kept by layer and position in the layer.
+ *
+ * Serialized form: version byte, varint node count, then for every node its graph node id, x and y as varints.
+ */
+public class LayeredLayout {
+
+    public static final int NODE_WIDTH = 172;
+    public static final int NODE_HEIGHT = 36;
+    public static final int NODE_SEPARATION = 200;
+    public static final int RANK_SEPARATION = 150;
+
+    private static final int VERSION = 1;
+    private static final int SWEEPS = 4;
+
+    private final int[] nodes;
+    private final int[] xs;
+    private final int[] ys;
+
+    private LayeredLayout(int[] nodes, int[] xs, int[] ys) {
+        this.nodes = nodes;
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    // Lays out the classes accepted by the filter and the edges between them whose type is in the edgeTypes mask
+    public static LayeredLayout compute(DependencyGraph graph, int edgeTypes, IntPredicate filter) {
+
+        // The view as a graph of its own, so that cycles and neighbors only take the view into account
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int[] viewNodes = new int[graph.getNodeCount()];
+        int[] viewIds = new int[graph.getNodeCount()];
+        Arrays.fill(viewIds, -1);
+        int nodeCount = 0;
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            if (filter.test(node)) {
+                viewIds[node] = builder.addNode(graph.getName(node));
+                viewNodes[nodeCount++] = node;
+            }
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            int node = viewNodes[i];
+            for (int edge = graph.firstOut(node); edge < graph.endOut(node); edge++) {
+                if ((edgeTypes & 1 << graph.outType(edge)) != 0 && viewIds[graph.outTarget(edge)] >= 0) {
+                    builder.addEdge(i, viewIds[graph.outTarget(edge)], graph.outType(edge));
+                }
+            }
+        }
+        DependencyGraph view = builder.build();
+        StronglyConnectedComponents components = StronglyConnectedComponents.compute(view, DependencyGraph.ALL_EDGE_TYPES);
+
+        // Edges go from higher to lower component ids, so going down the ids sees every class before its dependencies
+        int[] componentLayers = new int[components.getComponentCount()];
+        int layerCount = nodeCount > 0 ? 1 : 0;
+        for (int component = components.getComponentCount() - 1; component >= 0; component--) {
+            int first = components.firstNode(component);
+            for (int position = first; position < first + components.getSize(component); position++) {
+                int node = components.getNode(position);
+                for (int edge = view.firstOut(node); edge < view.endOut(node); edge++) {
+                    int target = components.getComponent(view.outTarget(edge));
+                    if (target != component && componentLayers[target] <= componentLayers[component]) {
+                        componentLayers[target] = componentLayers[component] + 1;
+                        layerCount = Math.max(layerCount, componentLayers[target] + 1);
+                    }
+                }
+            }
+        }
+        int[] layers = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            layers[node] = componentLayers[components.getComponent(node)];
+        }
+
+        // Nodes grouped by layer, starting in class order
+        int[] layerOffsets = new int[layerCount + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            layerOffsets[layers[node] + 1]++;
+        }
+        for (int layer = 0; layer < layerCount; layer++) {
+            layerOffsets[layer + 1] += layerOffsets[layer];
+        }
+        int[] order = new int[nodeCount];
+        int[] next = Arrays.copyOf(layerOffsets, layerCount);
+        for (int node = 0; node < nodeCount; node++) {
+            order[next[layers[node]]++] = node;
+        }
+
+        // Relative position of every node in its layer, from 0 to 1
+        double[] positions = new double[nodeCount];
+        updatePositions(order, layerOffsets, positions);
+        double[] barycenters = new double[nodeCount];
+        for (int sweep = 0; sweep < SWEEPS; sweep++) {
+            boolean down = sweep % 2 == 0;
+            for (int step = 1; step < layerCount; step++) {
+                int layer = down ? step : layerCount - 1 - step;
+                for (int i = layerOffsets[layer]; i < layerOffsets[layer + 1]; i++) {
+                    barycenters[order[i]] = barycenter(view, order[i], layers, positions, down);
+                }
+                sortLayer(order, layerOffsets[layer], layerOffsets[layer + 1], barycenters);
+                for (int i = layerOffsets[layer]; i < layerOffsets[layer + 1]; i++) {
+                    positions[order[i]] = relativePosition(i - layerOffsets[layer], layerOffsets[layer + 1] - layerOffsets[layer]);
+                }
+            }
+        }
+
+        // Layers are centered on the widest one
+        int widestLayer = 0;
+        for (int layer = 0; layer < layerCount; layer++) {
+            widestLayer = Math.max(widestLayer, layerOffsets[layer + 1] - layerOffsets[layer]);
+        }
+        int[] nodes = new int[nodeCount];
+        int[] xs = new int[nodeCount];
+        int[] ys = new int[nodeCount];
+        for (int layer = 0; layer < layerCount; layer++) {
+            int layerSize = layerOffsets[layer + 1] - layerOffsets[layer];
+            long indent = (long) (widestLayer - layerSize) * (NODE_WIDTH + NODE_SEPARATION) / 2;
+            for (int i = layerOffsets[layer]; i < layerOffsets[layer + 1]; i++) {
+                nodes[i] = viewNodes[order[i]];
+                xs[i] = (int) Math.min(Integer.MAX_VALUE, indent + (long) (i - layerOffsets[layer]) * (NODE_WIDTH + NODE_SEPARATION));
+                ys[i] = layer * (NODE_HEIGHT + RANK_SEPARATION);
+            }
+        }
+        return new LayeredLayout(nodes, xs, ys);
+    }
+
+    // Average relative position of the neighbors in the layers above (or below), or the node's own position if it has none
+    private static double barycenter(DependencyGraph view, int node, int[] layers, double[] positions, boolean above) {
+        double sum = 0;
+        int count = 0;
+        for (int edge = view.firstOut(node); edge < view.endOut(node); edge++) {
+            int other = view.outTarget(edge);
+            if (above ? layers[other] < layers[node] : layers[other] > layers[node]) {
+                sum += positions[other];
+                count++;
+            }
+        }
+        for (int edge = view.firstIn(node); edge < view.endIn(node); edge++) {
+            int other = view.inSource(edge);
+            if (above ? layers[other] < layers[node] : layers[other] > layers[node]) {
+                sum += positions[other];
+                count++;
+            }
+        }
+        return count > 0 ? sum / count : positions[node];
+    }
+
+    // Stable sort of order[from..to) by barycenter
+    private static void sortLayer(int[] order, int from, int to, double[] barycenters) {
+        Integer[] layer = new Integer[to - from];
+        for (int i = from; i < to; i++) {
+            layer[i - from] = order[i];
+        }
+        Arrays.sort(layer, (a, b) -> Double.compare(barycenters[a], barycenters[b]));
+        for (int i = from; i < to; i++) {
+            order[i] = layer[i - from];
+        }
+    }
+
+    private static void updatePositions(int[] order, int[] layerOffsets, double[] positions) {
+        for (int layer = 0; layer + 1 < layerOffsets.length; layer++) {
+            for (int i = layerOffsets[layer]; i < layerOffsets[layer + 1]; i++) {
+                positions[order[i]] = relativePosition(i - layerOffsets[layer], layerOffsets[layer + 1] - layerOffsets[layer]);
+            }
+        }
+    }
+
+    private static double relativePosition(int index, int layerSize) {
+        return layerSize > 1 ? (double) index / (layerSize - 1) : 0.5;
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    // Graph node id of the class at the index
+    public int getNode(int index) {
+        return nodes[index];
+    }
+
+    public int getX(int index) {
+        return xs[index];
+    }
+
+    public int getY(int index) {
+        return ys[index];
+    }
+
+    public long getMemoryBytes() {
+        return 12L * nodes.length;
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + 8 * nodes.length);
+        out.write(VERSION);
+        writeVarint(out, nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            writeVarint(out, nodes[i]);
+            writeVarint(out, xs[i]);
+            writeVarint(out, ys[i]);
+        }
+        return out.toByteArray();
+    }
+
+    // Layouts written by another version of the algorithm are rejected, so that they get computed again
+    public static LayeredLayout fromByteArray(byte[] data) {
+
+        int[] position = {0};
+        if (data.length < 2 || data[position[0]++] != VERSION) {
+            throw new IllegalArgumentException("Unsupported layout data");
+        }
+
+        int nodeCount = readVarint(data, position);
+        int[] nodes = new int[nodeCount];
+        int[] xs = new int[nodeCount];
+        int[] ys = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = readVarint(data, position);
+            xs[i] = readVarint(data, position);
+            ys[i] = readVarint(data, position);
+        }
+        return new LayeredLayout(nodes, xs, ys);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,127 @@
+package com.g8.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+// Thread safe cache that drops the least recently used entries once their total weight is over maxWeight,
+// by default every entry weighs 1 so maxWeight is the number of entries. Entries can also expire after a fixed time
+public class LruCache<K, V> {
+
+    private record Entry<V>(V value, long weight, long expiresAt) {
+    }
+
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    // 0 = entries never expire
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // A cache with maxEntries <= 0 never stores anything
+    public LruCache(int maxEntries) {
+        this(maxEntries, value -> 1, 0);
+    }
+
+    public LruCache(long maxWeight, ToLongFunction<V> weigher, long ttlMillis) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public V get(K key) {
+        V value = null;
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && isExpired(entry)) {
+                removeEntry(key);
+            } else if (entry != null) {
+                value = entry.value();
+            }
+        }
+        (value != null ? hits : misses).incrementAndGet();
+        return value;
+    }
+
+    // Values heavier than the whole cache are not stored
+    public void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        if (maxWeight <= 0 || weight > maxWeight) {
+            return;
+        }
+        long expiresAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE;
+        synchronized (entries) {
+            removeEntry(key);
+            entries.put(key, new Entry<>(value, weight, expiresAt));
+            totalWeight += weight;
+
+            Iterator<Entry<V>> eldest = entries.values().iterator();
+            while (totalWeight > maxWeight) {
+                totalWeight -= eldest.next().weight();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public void remove(K key) {
+        synchronized (entries) {
+            removeEntry(key);
+        }
+    }
+
+    public void removeIf(Predicate<K> keyFilter) {
+        synchronized (entries) {
+            Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<K, Entry<V>> entry = iterator.next();
+                if (keyFilter.test(entry.getKey())) {
+                    totalWeight -= entry.getValue().weight();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getWeight() {
+        synchronized (entries) {
+            return totalWeight;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return System.currentTimeMillis() >= entry.expiresAt();
+    }
+
+    private void removeEntry(K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            totalWeight -= removed.weight();
+        }
+    }
+}
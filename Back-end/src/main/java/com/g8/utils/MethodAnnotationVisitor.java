@@ -15,7 +15,12 @@ public class MethodAnnotationVisitor extends MethodVisitor {
 
 
     public MethodAnnotationVisitor(MethodInfo currentMethod) {
-        super(Opcodes.ASM9);
+        this(currentMethod, null);
+    }
+
+    // Everything but the annotations is passed on to methodVisitor, e.g. the code to a MethodCallVisitor
+    public MethodAnnotationVisitor(MethodInfo currentMethod, MethodVisitor methodVisitor) {
+        super(Opcodes.ASM9, methodVisitor);
         this.currentMethod = currentMethod;
     }
 
@@ -38,5 +43,6 @@ public class MethodAnnotationVisitor extends MethodVisitor {
         }
         // Reset list for the next visit
         annotations.clear();
+        super.visitEnd();
     }
 }
@@ -0,0 +1,39 @@
+package com.g8.utils;
+
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+// Records the call sites of one method body. Method bodies are only visited when the class is read with
+// AnalysisDepth.DEEP, a structural read never reaches these methods
+public class MethodCallVisitor extends MethodVisitor {
+
+    private final MethodCalls methodCalls;
+    private final int caller;
+
+    public MethodCallVisitor(MethodCalls methodCalls, int caller) {
+        super(Opcodes.ASM9);
+        this.methodCalls = methodCalls;
+        this.caller = caller;
+    }
+
+    @Override
+    public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+
+        // Calls on arrays (e.g. clone) have an array descriptor as owner
+        if (!owner.startsWith("[")) {
+            methodCalls.addCall(caller, methodCalls.method(owner, name, descriptor));
+        }
+    }
+
+    // Lambdas and method references call their implementation method through invokedynamic,
+    // the method handles in the bootstrap arguments point to it (handle tags above H_PUTSTATIC are methods)
+    @Override
+    public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+        for (Object argument : bootstrapMethodArguments) {
+            if (argument instanceof Handle handle && handle.getTag() > Opcodes.H_PUTSTATIC && !handle.getOwner().startsWith("[")) {
+                methodCalls.addCall(caller, methodCalls.method(handle.getOwner(), handle.getName(), handle.getDesc()));
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.g8.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Calls made by the methods of one class, collected while the class is visited. Methods are interned in a table
+// local to the class so classes can be visited in parallel, the session maps them to project wide ids
+public class MethodCalls {
+
+    @FunctionalInterface
+    public interface CallConsumer {
+        void accept(int caller, int callee);
+    }
+
+    // Internal names of the classes declaring the methods, e.g. "org/example/Service"
+    private final List<String> owners = new ArrayList<>();
+
+    // Method name followed by its descriptor, e.g. "run(Ljava/lang/String;)V"
+    private final List<String> methods = new ArrayList<>();
+
+    private final Map<String, Integer> methodIds = new HashMap<>();
+
+    // caller id in the high and callee id in the low 32 bits, repeated calls are only kept once
+    private final Set<Long> calls = new LinkedHashSet<>();
+
+    public int method(String owner, String name, String descriptor) {
+        String method = name + descriptor;
+        return methodIds.computeIfAbsent(owner + "." + method, key -> {
+            owners.add(owner);
+            methods.add(method);
+            return methods.size() - 1;
+        });
+    }
+
+    public void addCall(int caller, int callee) {
+        calls.add(((long) caller << 32) | callee);
+    }
+
+    public int getMethodCount() {
+        return methods.size();
+    }
+
+    public String getOwner(int method) {
+        return owners.get(method);
+    }
+
+    // Name of the method as it is shown in the call graph, see CallGraph.getMethod
+    public String getMethodName(int method) {
+        return owners.get(method).replace('/', '.') + "." + methods.get(method);
+    }
+
+    public int getCallCount() {
+        return calls.size();
+    }
+
+    public void forEachCall(CallConsumer consumer) {
+        for (long call : calls) {
+            consumer.accept((int) (call >>> 32), (int) call);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.g8.utils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/*
+ * Classes within a number of dependencies of a focus class, in either direction, found breadth first.
+ *
+ * Only the part of the graph around the focus is visited, so the cost follows the size of the neighborhood
+ * and not of the project. Nodes are numbered by the order they were reached, and an edge between two nodes
+ * belongs to the later of them. A page of nodes therefore comes with the edges that connect it to the pages
+ * before, and every edge is sent once.
+ */
+public class Neighborhood {
+
+    private final DependencyGraph graph;
+    private final int edgeTypes;
+    private final int maxNodes;
+    private int[] nodes = new int[16];
+    private int[] distances = new int[16];
+    private int size;
+    // Graph node -> position in nodes
+    private final Map<Integer, Integer> positions = new HashMap<>();
+    private boolean truncated;
+
+    private Neighborhood(DependencyGraph graph, int edgeTypes, int maxNodes) {
+        this.graph = graph;
+        this.edgeTypes = edgeTypes;
+        this.maxNodes = maxNodes;
+    }
+
+    // Follows the edges whose type is in the edgeTypes mask. Nodes rejected by the filter are left out and not
+    // walked through, the focus is always part of the neighborhood. Stops at maxNodes and marks the neighborhood
+    // as truncated
+    public static Neighborhood collect(DependencyGraph graph, int focus, int radius, int edgeTypes, IntPredicate filter, int maxNodes) {
+
+        Neighborhood neighborhood = new Neighborhood(graph, edgeTypes, maxNodes);
+        neighborhood.add(focus, 0);
+
+        int levelStart = 0;
+        for (int distance = 1; distance <= radius && levelStart < neighborhood.size && !neighborhood.truncated; distance++) {
+            int levelEnd = neighborhood.size;
+            for (int i = levelStart; i < levelEnd; i++) {
+                int node = neighborhood.nodes[i];
+                for (int edge = graph.firstOut(node); edge < graph.endOut(node); edge++) {
+                    neighborhood.visit(graph.outTarget(edge), graph.outType(edge), distance, filter);
+                }
+                for (int edge = graph.firstIn(node); edge < graph.endIn(node); edge++) {
+                    neighborhood.visit(graph.inSource(edge), graph.inType(edge), distance, filter);
+                }
+            }
+            levelStart = levelEnd;
+        }
+        return neighborhood;
+    }
+
+    private void visit(int node, int type, int distance, IntPredicate filter) {
+        if ((edgeTypes & 1 << type) == 0 || positions.containsKey(node) || !filter.test(node)) {
+            return;
+        }
+        if (size == maxNodes) {
+            truncated = true;
+            return;
+        }
+        add(node, distance);
+    }
+
+    private void add(int node, int distance) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            distances = Arrays.copyOf(distances, size * 2);
+        }
+        positions.put(node, size);
+        nodes[size] = node;
+        distances[size] = distance;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    // Approximate heap taken by the neighborhood
+    public long getMemoryBytes() {
+        return 8L * nodes.length + 64L * size;
+    }
+
+    public int getNode(int position) {
+        return nodes[position];
+    }
+
+    public int getDistance(int position) {
+        return distances[position];
+    }
+
+    // Calls the consumer for every edge between the node at the position and the nodes before it, in both directions
+    public void forEachEdge(int position, EdgeConsumer consumer) throws IOException {
+        int node = nodes[position];
+        for (int edge = graph.firstOut(node); edge < graph.endOut(node); edge++) {
+            Integer other = positions.get(graph.outTarget(edge));
+            if (other != null && other < position && (edgeTypes & 1 << graph.outType(edge)) != 0) {
+                consumer.accept(node, graph.outTarget(edge), graph.outType(edge));
+            }
+        }
+        for (int edge = graph.firstIn(node); edge < graph.endIn(node); edge++) {
+            Integer other = positions.get(graph.inSource(edge));
+            if (other != null && other < position && (edgeTypes & 1 << graph.inType(edge)) != 0) {
+                consumer.accept(graph.inSource(edge), node, graph.inType(edge));
+            }
+        }
+    }
+
+    public interface EdgeConsumer {
+        void accept(int source, int target, int type) throws IOException;
+    }
+}
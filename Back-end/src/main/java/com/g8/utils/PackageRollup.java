@@ -0,0 +1,321 @@
+package com.g8.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Package tree of a project with the number of dependencies between packages, so that clients can open a
+ * project at package level and drill down one package at a time.
+ *
+ * Every prefix of a package name is a package of the tree, the root is the unnamed package "" with id 0 and a
+ * parent always has a lower id than its children. Dependencies are counted between the packages the classes
+ * are declared in, a count between two packages higher up is the sum over their subpackages.
+ *
+ * Serialized form: version byte, varint package count, for every package its name (varint length + UTF-8
+ * bytes), parent id + 1 and class count, then the varint node count and the package of every class node of
+ * the dependency graph, then the varint edge count and every edge as source, target and count varints.
+ */
+public class PackageRollup {
+
+    // Name the rollup is stored under next to its project
+    public static final String NAME = "packageRollup";
+
+    private static final int VERSION = 1;
+
+    private final String[] packages;
+    private final int[] parents;
+    // Classes declared directly in the package, and in the package and all its subpackages
+    private final int[] classCounts;
+    private final int[] totalClassCounts;
+    private final Map<String, Integer> packageIds;
+
+    // Class node of the dependency graph -> package it is declared in
+    private final int[] classPackages;
+
+    // Dependencies between packages, sorted by source and target
+    private final int[] edgeSources;
+    private final int[] edgeTargets;
+    private final int[] edgeCounts;
+
+    // Subpackages and classes of every package, in CSR form
+    private final int[] childOffsets;
+    private final int[] children;
+    private final int[] classOffsets;
+    private final int[] classes;
+
+    private PackageRollup(String[] packages, int[] parents, int[] classPackages, int[] edgeSources, int[] edgeTargets, int[] edgeCounts) {
+        this.packages = packages;
+        this.parents = parents;
+        this.classPackages = classPackages;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+        this.edgeCounts = edgeCounts;
+
+        int packageCount = packages.length;
+        packageIds = new HashMap<>(packageCount * 2);
+        for (int id = 0; id < packageCount; id++) {
+            packageIds.put(packages[id], id);
+        }
+
+        childOffsets = new int[packageCount + 1];
+        for (int id = 1; id < packageCount; id++) {
+            childOffsets[parents[id] + 1]++;
+        }
+        for (int id = 0; id < packageCount; id++) {
+            childOffsets[id + 1] += childOffsets[id];
+        }
+        children = new int[Math.max(packageCount - 1, 0)];
+        int[] nextChild = Arrays.copyOf(childOffsets, packageCount);
+        for (int id = 1; id < packageCount; id++) {
+            children[nextChild[parents[id]]++] = id;
+        }
+
+        classOffsets = new int[packageCount + 1];
+        for (int classPackage : classPackages) {
+            classOffsets[classPackage + 1]++;
+        }
+        classCounts = new int[packageCount];
+        for (int id = 0; id < packageCount; id++) {
+            classCounts[id] = classOffsets[id + 1];
+            classOffsets[id + 1] += classOffsets[id];
+        }
+        classes = new int[classPackages.length];
+        int[] nextClass = Arrays.copyOf(classOffsets, packageCount);
+        for (int node = 0; node < classPackages.length; node++) {
+            classes[nextClass[classPackages[node]]++] = node;
+        }
+
+        // Children have higher ids than their parents, so going down the ids adds every subtree to its parent
+        totalClassCounts = Arrays.copyOf(classCounts, packageCount);
+        for (int id = packageCount - 1; id > 0; id--) {
+            totalClassCounts[parents[id]] += totalClassCounts[id];
+        }
+    }
+
+    // Builds the rollup in one pass over the classes and dependencies of the graph
+    public static PackageRollup fromGraph(DependencyGraph graph) {
+
+        List<String> packages = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        Map<String, Integer> packageIds = new HashMap<>();
+        packages.add("");
+        parents.add(-1);
+        packageIds.put("", 0);
+
+        int[] classPackages = new int[graph.getNodeCount()];
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            String name = graph.getName(node);
+            classPackages[node] = addPackage(name.substring(0, Math.max(name.lastIndexOf('.'), 0)), packages, parents, packageIds);
+        }
+
+        // Package pairs of all the edges as (source << 32 | target), sorting puts equal pairs next to each other
+        long[] pairs = new long[graph.getEdgeCount()];
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            for (int edge = graph.firstOut(node); edge < graph.endOut(node); edge++) {
+                pairs[edge] = (long) classPackages[node] << 32 | classPackages[graph.outTarget(edge)];
+            }
+        }
+        Arrays.sort(pairs);
+        int[] edgeSources = new int[pairs.length];
+        int[] edgeTargets = new int[pairs.length];
+        int[] edgeCounts = new int[pairs.length];
+        int edgeCount = 0;
+        for (int i = 0; i < pairs.length; i++) {
+            if (i > 0 && pairs[i] == pairs[i - 1]) {
+                edgeCounts[edgeCount - 1]++;
+            } else {
+                edgeSources[edgeCount] = (int) (pairs[i] >>> 32);
+                edgeTargets[edgeCount] = (int) pairs[i];
+                edgeCounts[edgeCount] = 1;
+                edgeCount++;
+            }
+        }
+
+        return new PackageRollup(packages.toArray(new String[0]), parents.stream().mapToInt(Integer::intValue).toArray(), classPackages,
+                Arrays.copyOf(edgeSources, edgeCount), Arrays.copyOf(edgeTargets, edgeCount), Arrays.copyOf(edgeCounts, edgeCount));
+    }
+
+    // Adds the package and the packages above it, parents get their ids first
+    private static int addPackage(String name, List<String> packages, List<Integer> parents, Map<String, Integer> packageIds) {
+        Integer id = packageIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        int parent = addPackage(name.substring(0, Math.max(name.lastIndexOf('.'), 0)), packages, parents, packageIds);
+        id = packages.size();
+        packages.add(name);
+        parents.add(parent);
+        packageIds.put(name, id);
+        return id;
+    }
+
+    public int getPackageCount() {
+        return packages.length;
+    }
+
+    // Returns -1 if there is no such package
+    public int getPackage(String name) {
+        Integer id = packageIds.get(name);
+        return id != null ? id : -1;
+    }
+
+    public String getName(int id) {
+        return packages[id];
+    }
+
+    // -1 for the root package
+    public int getParent(int id) {
+        return parents[id];
+    }
+
+    public int getClassCount(int id) {
+        return classCounts[id];
+    }
+
+    public int getTotalClassCount(int id) {
+        return totalClassCounts[id];
+    }
+
+    public int firstChild(int id) {
+        return childOffsets[id];
+    }
+
+    public int endChild(int id) {
+        return childOffsets[id + 1];
+    }
+
+    public int getChild(int position) {
+        return children[position];
+    }
+
+    public int firstClass(int id) {
+        return classOffsets[id];
+    }
+
+    public int endClass(int id) {
+        return classOffsets[id + 1];
+    }
+
+    // Class node of the dependency graph
+    public int getClass(int position) {
+        return classes[position];
+    }
+
+    public int getClassPackage(int node) {
+        return classPackages[node];
+    }
+
+    // The subpackage of ancestor that package id is in, -1 if it is the ancestor itself or not below it
+    public int getChildOf(int ancestor, int id) {
+        while (id > ancestor && parents[id] != ancestor) {
+            id = parents[id];
+        }
+        return id > ancestor && parents[id] == ancestor ? id : -1;
+    }
+
+    public int getEdgeCount() {
+        return edgeSources.length;
+    }
+
+    public int getEdgeSource(int edge) {
+        return edgeSources[edge];
+    }
+
+    public int getEdgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    // Number of class dependencies from the source package to the target package
+    public int getEdgeWeight(int edge) {
+        return edgeCounts[edge];
+    }
+
+    // Approximate heap taken by the rollup
+    public long getMemoryBytes() {
+        long bytes = 12L * edgeSources.length + 8L * classPackages.length + 28L * packages.length;
+        for (String name : packages) {
+            bytes += name.length() + 40 + 48;
+        }
+        return bytes;
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + 16 * packages.length + 2 * classPackages.length + 6 * edgeSources.length);
+        out.write(VERSION);
+        writeVarint(out, packages.length);
+        for (int id = 0; id < packages.length; id++) {
+            byte[] bytes = packages[id].getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+            writeVarint(out, parents[id] + 1);
+        }
+        writeVarint(out, classPackages.length);
+        for (int classPackage : classPackages) {
+            writeVarint(out, classPackage);
+        }
+        writeVarint(out, edgeSources.length);
+        for (int edge = 0; edge < edgeSources.length; edge++) {
+            writeVarint(out, edgeSources[edge]);
+            writeVarint(out, edgeTargets[edge]);
+            writeVarint(out, edgeCounts[edge]);
+        }
+        return out.toByteArray();
+    }
+
+    public static PackageRollup fromByteArray(byte[] data) {
+
+        int[] position = {0};
+        if (data.length < 2 || data[position[0]++] != VERSION) {
+            throw new IllegalArgumentException("Unsupported package rollup data");
+        }
+
+        String[] packages = new String[readVarint(data, position)];
+        int[] parents = new int[packages.length];
+        for (int id = 0; id < packages.length; id++) {
+            int length = readVarint(data, position);
+            packages[id] = new String(data, position[0], length, StandardCharsets.UTF_8);
+            position[0] += length;
+            parents[id] = readVarint(data, position) - 1;
+        }
+        int[] classPackages = new int[readVarint(data, position)];
+        for (int node = 0; node < classPackages.length; node++) {
+            classPackages[node] = readVarint(data, position);
+        }
+        int edgeCount = readVarint(data, position);
+        int[] edgeSources = new int[edgeCount];
+        int[] edgeTargets = new int[edgeCount];
+        int[] edgeCounts = new int[edgeCount];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            edgeSources[edge] = readVarint(data, position);
+            edgeTargets[edge] = readVarint(data, position);
+            edgeCounts[edge] = readVarint(data, position);
+        }
+
+        return new PackageRollup(packages, parents, classPackages, edgeSources, edgeTargets, edgeCounts);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,264 @@
+package com.g8.utils;
+
+import java.util.Arrays;
+
+/*
+ * Transitive dependencies and dependents of the classes of a dependency graph.
+ *
+ * The graph is condensed to its strongly connected components, which form a DAG whose edges go from higher
+ * to lower component ids. For every component the components it reaches in each direction are kept as a
+ * bitset, trimmed to the words between its lowest and highest bit. As components are in topological order,
+ * the bitset of a component is the union of the bitsets of its successors, so both are built in one pass over
+ * the DAG. A chain of n components needs n² / 8 bytes, so the bitsets of a direction are dropped once they
+ * go over maxBytes and queries in that direction walk the condensed DAG instead.
+ *
+ * Queries with a depth limit count the depth in class dependencies, so they walk the class graph breadth
+ * first and stop at the limit.
+ */
+public class ReachabilityIndex {
+
+    private final DependencyGraph graph;
+    private final StronglyConnectedComponents components;
+    private final int edgeTypes;
+
+    // Condensed DAG, forward edges to the components a component depends on and reverse edges
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inSources;
+
+    // Reachable components per direction (0 = dependencies, 1 = dependents), null if over the memory limit.
+    // Bit i of closures[d][c] stands for component 64 * closureStarts[d][c] + i
+    private final long[][][] closures = new long[2][][];
+    private final int[][] closureStarts = new int[2][];
+    private long memoryBytes;
+
+    private ReachabilityIndex(DependencyGraph graph, StronglyConnectedComponents components, int edgeTypes) {
+        this.graph = graph;
+        this.components = components;
+        this.edgeTypes = edgeTypes;
+
+        int componentCount = components.getComponentCount();
+        int[] offsets = new int[componentCount + 1];
+        int[] targets = new int[16];
+        int edgeCount = 0;
+        // Components are grouped by id, so the edges of a component are collected in one row
+        for (int component = 0; component < componentCount; component++) {
+            int rowStart = edgeCount;
+            int first = components.firstNode(component);
+            for (int position = first; position < first + components.getSize(component); position++) {
+                int node = components.getNode(position);
+                for (int edge = graph.firstOut(node); edge < graph.endOut(node); edge++) {
+                    int target = components.getComponent(graph.outTarget(edge));
+                    if ((edgeTypes & 1 << graph.outType(edge)) == 0 || target == component) {
+                        continue;
+                    }
+                    if (edgeCount == targets.length) {
+                        targets = Arrays.copyOf(targets, edgeCount * 2);
+                    }
+                    targets[edgeCount++] = target;
+                }
+            }
+            Arrays.sort(targets, rowStart, edgeCount);
+            int kept = rowStart;
+            for (int i = rowStart; i < edgeCount; i++) {
+                if (i == rowStart || targets[i] != targets[i - 1]) {
+                    targets[kept++] = targets[i];
+                }
+            }
+            edgeCount = kept;
+            offsets[component + 1] = edgeCount;
+        }
+        this.outOffsets = offsets;
+        this.outTargets = Arrays.copyOf(targets, edgeCount);
+
+        inOffsets = new int[componentCount + 1];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            inOffsets[outTargets[edge] + 1]++;
+        }
+        for (int component = 0; component < componentCount; component++) {
+            inOffsets[component + 1] += inOffsets[component];
+        }
+        inSources = new int[edgeCount];
+        int[] next = Arrays.copyOf(inOffsets, componentCount);
+        for (int source = 0; source < componentCount; source++) {
+            for (int edge = outOffsets[source]; edge < outOffsets[source + 1]; edge++) {
+                inSources[next[outTargets[edge]]++] = source;
+            }
+        }
+
+        memoryBytes = components.getMemoryBytes() + 4L * (2 * componentCount + 2 * edgeCount);
+    }
+
+    // Builds the index over the edges whose type is in the edgeTypes mask, with at most maxBytes of bitsets per direction
+    public static ReachabilityIndex build(DependencyGraph graph, int edgeTypes, long maxBytes) {
+        return build(graph, StronglyConnectedComponents.compute(graph, edgeTypes), edgeTypes, maxBytes);
+    }
+
+    public static ReachabilityIndex build(DependencyGraph graph, StronglyConnectedComponents components, int edgeTypes, long maxBytes) {
+        ReachabilityIndex index = new ReachabilityIndex(graph, components, edgeTypes);
+        index.buildClosure(false, maxBytes);
+        index.buildClosure(true, maxBytes);
+        return index;
+    }
+
+    public StronglyConnectedComponents getComponents() {
+        return components;
+    }
+
+    // True if the direction is answered from the bitsets rather than by walking the DAG
+    public boolean isIndexed(boolean dependents) {
+        return closures[dependents ? 1 : 0] != null;
+    }
+
+    // Classes the node depends on (or that depend on it) directly or transitively, without the node itself.
+    // Ordered by component
+    public int[] reachable(int node, boolean dependents) {
+
+        int component = components.getComponent(node);
+        long[] reached = closures[dependents ? 1 : 0] != null ? null : walk(component, dependents);
+
+        int count = components.getSize(component) - 1;
+        for (int other = 0; other < components.getComponentCount(); other++) {
+            if (isReached(reached, component, other, dependents)) {
+                count += components.getSize(other);
+            }
+        }
+
+        int[] nodes = new int[count];
+        int found = 0;
+        for (int other = 0; other < components.getComponentCount(); other++) {
+            if (other == component || isReached(reached, component, other, dependents)) {
+                int first = components.firstNode(other);
+                for (int position = first; position < first + components.getSize(other); position++) {
+                    if (components.getNode(position) != node) {
+                        nodes[found++] = components.getNode(position);
+                    }
+                }
+            }
+        }
+        return nodes;
+    }
+
+    // Classes reached within maxDepth dependencies, ordered by distance from the node
+    public int[] reachable(int node, boolean dependents, int maxDepth) {
+
+        long[] visited = new long[(graph.getNodeCount() + 63) >>> 6];
+        visited[node >>> 6] |= 1L << node;
+        int[] queue = new int[16];
+        int queueEnd = 0;
+        int levelStart = 0;
+        queue[queueEnd++] = node;
+
+        for (int depth = 0; depth < maxDepth && levelStart < queueEnd; depth++) {
+            int levelEnd = queueEnd;
+            for (int i = levelStart; i < levelEnd; i++) {
+                int current = queue[i];
+                int first = dependents ? graph.firstIn(current) : graph.firstOut(current);
+                int end = dependents ? graph.endIn(current) : graph.endOut(current);
+                for (int edge = first; edge < end; edge++) {
+                    int type = dependents ? graph.inType(edge) : graph.outType(edge);
+                    int other = dependents ? graph.inSource(edge) : graph.outTarget(edge);
+                    if ((edgeTypes & 1 << type) == 0 || (visited[other >>> 6] & 1L << other) != 0) {
+                        continue;
+                    }
+                    visited[other >>> 6] |= 1L << other;
+                    if (queueEnd == queue.length) {
+                        queue = Arrays.copyOf(queue, queueEnd * 2);
+                    }
+                    queue[queueEnd++] = other;
+                }
+            }
+            levelStart = levelEnd;
+        }
+        return Arrays.copyOfRange(queue, 1, queueEnd);
+    }
+
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    private boolean isReached(long[] reached, int component, int other, boolean dependents) {
+        if (reached != null) {
+            return (reached[other >>> 6] & 1L << other) != 0;
+        }
+        int direction = dependents ? 1 : 0;
+        long[] closure = closures[direction][component];
+        int word = (other >>> 6) - closureStarts[direction][component];
+        return word >= 0 && word < closure.length && (closure[word] & 1L << other) != 0;
+    }
+
+    // Components reached from the component in the DAG, for directions without bitsets
+    private long[] walk(int component, boolean dependents) {
+        long[] reached = new long[(components.getComponentCount() + 63) >>> 6];
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = component;
+        while (size > 0) {
+            int current = stack[--size];
+            int first = dependents ? inOffsets[current] : outOffsets[current];
+            int end = dependents ? inOffsets[current + 1] : outOffsets[current + 1];
+            for (int edge = first; edge < end; edge++) {
+                int other = dependents ? inSources[edge] : outTargets[edge];
+                if ((reached[other >>> 6] & 1L << other) == 0) {
+                    reached[other >>> 6] |= 1L << other;
+                    if (size == stack.length) {
+                        stack = Arrays.copyOf(stack, size * 2);
+                    }
+                    stack[size++] = other;
+                }
+            }
+        }
+        return reached;
+    }
+
+    // Dependencies point to lower component ids, so they are built from component 0 up,
+    // dependents point to higher ids and are built from the last component down
+    private void buildClosure(boolean dependents, long maxBytes) {
+
+        int componentCount = components.getComponentCount();
+        long[][] closure = new long[componentCount][];
+        int[] starts = new int[componentCount];
+        long[] scratch = new long[(componentCount + 63) >>> 6];
+        long bytes = 4L * componentCount;
+
+        for (int i = 0; i < componentCount; i++) {
+            int component = dependents ? componentCount - 1 - i : i;
+            int first = dependents ? inOffsets[component] : outOffsets[component];
+            int end = dependents ? inOffsets[component + 1] : outOffsets[component + 1];
+
+            int lowWord = Integer.MAX_VALUE;
+            int highWord = -1;
+            for (int edge = first; edge < end; edge++) {
+                int successor = dependents ? inSources[edge] : outTargets[edge];
+                scratch[successor >>> 6] |= 1L << successor;
+                lowWord = Math.min(lowWord, successor >>> 6);
+                highWord = Math.max(highWord, successor >>> 6);
+                long[] successorClosure = closure[successor];
+                for (int word = 0; word < successorClosure.length; word++) {
+                    scratch[starts[successor] + word] |= successorClosure[word];
+                }
+                if (successorClosure.length > 0) {
+                    lowWord = Math.min(lowWord, starts[successor]);
+                    highWord = Math.max(highWord, starts[successor] + successorClosure.length - 1);
+                }
+            }
+
+            if (highWord < 0) {
+                closure[component] = new long[0];
+            } else {
+                closure[component] = Arrays.copyOfRange(scratch, lowWord, highWord + 1);
+                starts[component] = lowWord;
+                Arrays.fill(scratch, lowWord, highWord + 1, 0);
+            }
+            bytes += 16 + 8L * closure[component].length;
+            if (bytes > maxBytes) {
+                return;
+            }
+        }
+
+        closures[dependents ? 1 : 0] = closure;
+        closureStarts[dependents ? 1 : 0] = starts;
+        memoryBytes += bytes;
+    }
+}
@@ -0,0 +1,130 @@
+package com.g8.utils;
+
+import java.util.Arrays;
+
+/*
+ * Strongly connected components of a dependency graph, found with Tarjan's algorithm in O(nodes + edges).
+ *
+ * The depth first search keeps its own stack of (node, next edge) frames instead of recursing, so long
+ * dependency chains do not overflow the thread stack. Components are numbered in the order Tarjan finishes
+ * them, which is a reverse topological order: every edge between two components goes from a higher to a
+ * lower component id.
+ */
+public class StronglyConnectedComponents {
+
+    private final int[] components;
+    // Nodes grouped by component: the nodes of component c are nodes[offsets[c]] .. nodes[offsets[c + 1] - 1]
+    private final int[] offsets;
+    private final int[] nodes;
+
+    private StronglyConnectedComponents(int[] components, int[] offsets, int[] nodes) {
+        this.components = components;
+        this.offsets = offsets;
+        this.nodes = nodes;
+    }
+
+    // Only follows edges whose type is in the edgeTypes mask (bit 1 << type)
+    public static StronglyConnectedComponents compute(DependencyGraph graph, int edgeTypes) {
+
+        int nodeCount = graph.getNodeCount();
+        int[] components = new int[nodeCount];
+        int[] index = new int[nodeCount];
+        int[] lowLink = new int[nodeCount];
+        Arrays.fill(index, -1);
+        Arrays.fill(components, -1);
+
+        // Nodes of the components that are not finished yet
+        int[] componentStack = new int[nodeCount];
+        int componentStackSize = 0;
+        // Search stack, a frame is a node and the next of its edges to follow
+        int[] frameNodes = new int[nodeCount];
+        int[] frameEdges = new int[nodeCount];
+
+        // Finished nodes in component order, the offsets are filled in as components finish
+        int[] nodes = new int[nodeCount];
+        int[] offsets = new int[nodeCount + 1];
+        int finished = 0;
+        int componentCount = 0;
+        int nextIndex = 0;
+
+        for (int root = 0; root < nodeCount; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+
+            int depth = 0;
+            frameNodes[0] = root;
+            frameEdges[0] = graph.firstOut(root);
+            index[root] = lowLink[root] = nextIndex++;
+            componentStack[componentStackSize++] = root;
+
+            while (depth >= 0) {
+                int node = frameNodes[depth];
+                int edge = frameEdges[depth];
+
+                if (edge < graph.endOut(node)) {
+                    frameEdges[depth]++;
+                    if ((edgeTypes & 1 << graph.outType(edge)) == 0) {
+                        continue;
+                    }
+                    int target = graph.outTarget(edge);
+                    if (index[target] < 0) {
+                        depth++;
+                        frameNodes[depth] = target;
+                        frameEdges[depth] = graph.firstOut(target);
+                        index[target] = lowLink[target] = nextIndex++;
+                        componentStack[componentStackSize++] = target;
+                    } else if (components[target] < 0) {
+                        // Visited but without a component yet, so it is still on the component stack
+                        lowLink[node] = Math.min(lowLink[node], index[target]);
+                    }
+                    continue;
+                }
+
+                // All edges of the node are done
+                if (lowLink[node] == index[node]) {
+                    int member;
+                    do {
+                        member = componentStack[--componentStackSize];
+                        components[member] = componentCount;
+                        nodes[finished++] = member;
+                    } while (member != node);
+                    componentCount++;
+                    offsets[componentCount] = finished;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = frameNodes[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+            }
+        }
+
+        return new StronglyConnectedComponents(components, Arrays.copyOf(offsets, componentCount + 1), nodes);
+    }
+
+    public int getComponentCount() {
+        return offsets.length - 1;
+    }
+
+    public int getComponent(int node) {
+        return components[node];
+    }
+
+    public int getSize(int component) {
+        return offsets[component + 1] - offsets[component];
+    }
+
+    // Index of the first node of the component, its nodes are getNode(first) .. getNode(first + size - 1)
+    public int firstNode(int component) {
+        return offsets[component];
+    }
+
+    public int getNode(int position) {
+        return nodes[position];
+    }
+
+    public long getMemoryBytes() {
+        return 4L * (components.length + offsets.length + nodes.length);
+    }
+}
@@ -0,0 +1,97 @@
+package com.g8;
+
+import com.g8.model.ClassInfo;
+import com.g8.utils.CompactGraphCodec;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRun_writesJsonLinesForEveryJarOfADirectory() throws Exception {
+        Path jars = Files.createDirectories(tempDir.resolve("jars/nested"));
+        createJar(tempDir.resolve("jars/first.jar"), 3);
+        createJar(jars.resolve("second.jar"), 5);
+        Path output = tempDir.resolve("out");
+
+        BatchAnalyzer batchAnalyzer = BatchAnalyzer.fromArguments(new String[]{
+                "--package", "org.example", "--output", output.toString(), "--jobs", "2", tempDir.resolve("jars").toString()});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertTrue(batchAnalyzer.run(new PrintStream(out), System.err));
+
+        List<String> lines = Files.readAllLines(output.resolve("first.jsonl"));
+        assertEquals(3, lines.size());
+        assertEquals("org.example.Generated0", new Gson().fromJson(lines.get(0), ClassInfo.class).getName());
+        assertEquals(5, Files.readAllLines(output.resolve("second.jsonl")).size());
+        assertEquals("[]", Files.readString(output.resolve("first.external.json")));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("5 classes"));
+    }
+
+    @Test
+    void testRun_compactFormatAndDuplicateNames() throws Exception {
+        createJar(Files.createDirectories(tempDir.resolve("a")).resolve("app.jar"), 2);
+        createJar(Files.createDirectories(tempDir.resolve("b")).resolve("app.jar"), 4);
+        Path output = tempDir.resolve("out");
+
+        BatchAnalyzer batchAnalyzer = BatchAnalyzer.fromArguments(new String[]{"--format", "compact", "--output", output.toString(),
+                tempDir.resolve("a/app.jar").toString(), tempDir.resolve("b/app.jar").toString()});
+
+        assertTrue(batchAnalyzer.run(new PrintStream(new ByteArrayOutputStream()), System.err));
+        assertEquals(2, CompactGraphCodec.decode(Files.readAllBytes(output.resolve("app.graph"))).size());
+        assertEquals(4, CompactGraphCodec.decode(Files.readAllBytes(output.resolve("app-2.graph"))).size());
+    }
+
+    @Test
+    void testRun_reportsMissingAndBrokenJars() throws Exception {
+        Files.writeString(tempDir.resolve("broken.jar"), "not a jar");
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        BatchAnalyzer batchAnalyzer = BatchAnalyzer.fromArguments(new String[]{"--output", tempDir.resolve("out").toString(),
+                tempDir.resolve("broken.jar").toString(), tempDir.resolve("missing.jar").toString()});
+
+        assertFalse(batchAnalyzer.run(new PrintStream(new ByteArrayOutputStream()), new PrintStream(err)));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("missing.jar: no such file or directory"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("broken.jar: "));
+    }
+
+    @Test
+    void testFromArguments_rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> BatchAnalyzer.fromArguments(new String[]{}));
+        assertThrows(IllegalArgumentException.class, () -> BatchAnalyzer.fromArguments(new String[]{"--format", "xml", "app.jar"}));
+        assertThrows(IllegalArgumentException.class, () -> BatchAnalyzer.fromArguments(new String[]{"--jobs", "0", "app.jar"}));
+        assertThrows(IllegalArgumentException.class, () -> BatchAnalyzer.fromArguments(new String[]{"app.jar", "--output"}));
+        assertThrows(IllegalArgumentException.class, () -> BatchAnalyzer.fromArguments(new String[]{"--verbose", "yes", "app.jar"}));
+    }
+
+    private void createJar(Path jarPath, int classCount) throws Exception {
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(jarPath.toFile()))) {
+            for (int i = 0; i < classCount; i++) {
+                ClassWriter writer = new ClassWriter(0);
+                writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "org/example/Generated" + i, null, "java/lang/Object", null);
+                writer.visitEnd();
+                jar.putNextEntry(new JarEntry("org/example/Generated" + i + ".class"));
+                jar.write(writer.toByteArray());
+                jar.closeEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.g8.configuration;
+
+import com.g8.service.AuthService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class FirebaseAuthFilterTest {
+
+    private AuthService authService;
+    private FirebaseAuthFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        authService = mock(AuthService.class);
+        filter = new FirebaseAuthFilter(authService);
+    }
+
+    @Test
+    void testValidToken_setsUserId() throws Exception {
+        when(authService.getUserId("validToken")).thenReturn("testUser");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "validToken");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertEquals("testUser", request.getAttribute(FirebaseAuthFilter.USER_ID));
+        assertSame(request, chain.getRequest());
+    }
+
+    @Test
+    void testInvalidToken_continuesWithoutUserId() throws Exception {
+        when(authService.getUserId("invalidToken")).thenThrow(new RuntimeException("Error while retrieving user Id for verification"));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "invalidToken");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertNull(request.getAttribute(FirebaseAuthFilter.USER_ID));
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void testMissingToken_doesNotVerify() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertNull(request.getAttribute(FirebaseAuthFilter.USER_ID));
+        verify(authService, never()).getUserId(any());
+    }
+}
@@ -0,0 +1,61 @@
+package com.g8.configuration;
+
+import com.g8.service.AnalysisCache;
+import com.g8.service.AnalysisJobService;
+import com.g8.service.AnalyzeProjectService;
+import com.g8.service.AuthService;
+import com.g8.service.GraphLayoutService;
+import com.g8.service.ProjectGraphCache;
+import com.g8.service.ProjectResponseCache;
+import com.g8.utils.LruCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class MetricsConfigTest {
+
+    private final MetricsConfig metricsConfig = new MetricsConfig();
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testCacheMetrics_followCacheStatistics() {
+        ProjectResponseCache responseCache = new ProjectResponseCache(1, 60);
+        AuthService authService = mock(AuthService.class);
+        doReturn(new LruCache<String, String>(10)).when(authService).getVerifiedTokens();
+
+        metricsConfig.cacheMetrics(new AnalysisCache(10, 10), responseCache, new ProjectGraphCache(1), authService).bindTo(registry);
+        responseCache.getResponses().put("project", "{}");
+        responseCache.getResponses().get("project");
+        responseCache.getResponses().get("other");
+
+        assertEquals(1, registry.get("cache.gets").tag("cache", "responses").tag("result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tag("cache", "responses").tag("result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("cache.size").tag("cache", "responses").gauge().value());
+        assertEquals(2, registry.get("cache.weight").tag("cache", "responses").gauge().value());
+        assertEquals(0, registry.get("cache.size").tag("cache", "tokens").gauge().value());
+    }
+
+    @Test
+    void testQueueMetrics_readQueueDepths() {
+        AnalysisJobService analysisJobService = mock(AnalysisJobService.class);
+        AnalyzeProjectService analyzeProjectService = mock(AnalyzeProjectService.class);
+        GraphLayoutService graphLayoutService = mock(GraphLayoutService.class);
+        when(analysisJobService.getQueueDepth()).thenReturn(3);
+        when(analyzeProjectService.getQueuedClassCount()).thenReturn(120L);
+        when(graphLayoutService.getPendingCount()).thenReturn(1);
+
+        metricsConfig.queueMetrics(analysisJobService, analyzeProjectService, graphLayoutService).bindTo(registry);
+
+        assertEquals(3, registry.get("analysis.jobs.queued").gauge().value());
+        assertEquals(120, registry.get("analysis.pool.queued").gauge().value());
+        assertEquals(1, registry.get("graph.layout.pending").gauge().value());
+    }
+}
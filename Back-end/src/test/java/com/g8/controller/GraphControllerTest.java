@@ -0,0 +1,247 @@
+package com.g8.controller;
+
+import com.g8.service.AuthService;
+import com.g8.service.GraphLayoutService;
+import com.g8.service.ProjectGraphService;
+import com.g8.utils.DependencyGraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(GraphController.class)
+public class GraphControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AuthService authService;
+
+    @MockBean
+    private ProjectGraphService projectGraphService;
+
+    @MockBean
+    private GraphLayoutService graphLayoutService;
+
+    private final String baseURL = "http://localhost:8080/graph";
+    private final String authorizationToken = "mock-token";
+    private final String projectId = "mock-id";
+
+    @BeforeEach
+    public void setup() {
+        Mockito.when(authService.getUserId(authorizationToken)).thenReturn("testUser");
+    }
+
+    @Test
+    void testGetCycles() throws Exception {
+        int mask = 1 << DependencyGraph.INHERITS | 1 << DependencyGraph.FIELD_TYPE;
+        Mockito.when(projectGraphService.getCycles(projectId, mask, 10, 20))
+                .thenReturn(CompletableFuture.completedFuture("{\"cycleCount\":1,\"cycles\":[]}"));
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/cycles");
+        builder.header("Authorization", authorizationToken);
+        builder.header("project_id", projectId);
+        builder.param("edgeTypes", "inherits,fieldType");
+        builder.param("offset", "10");
+        builder.param("limit", "20");
+
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"cycleCount\":1,\"cycles\":[]}"));
+    }
+
+    @Test
+    void testGetCycles_unknownProject() throws Exception {
+        Mockito.when(projectGraphService.getCycles(projectId, DependencyGraph.ALL_EDGE_TYPES, 0, 100))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/cycles");
+        builder.header("Authorization", authorizationToken);
+        builder.header("project_id", projectId);
+
+        mockMvc.perform(builder)
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetCycles_unknownEdgeType() throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/cycles");
+        builder.header("Authorization", authorizationToken);
+        builder.header("project_id", projectId);
+        builder.param("edgeTypes", "calls");
+
+        mockMvc.perform(builder)
+                .andExpect(status().isBadRequest());
+        Mockito.verify(projectGraphService, Mockito.never()).getCycles(any(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testGetCycles_unauthorized() throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/cycles");
+        builder.header("project_id", projectId);
+
+        mockMvc.perform(builder)
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void testGetComponent() throws Exception {
+        Mockito.when(projectGraphService.getComponent(projectId, "org.example.A", DependencyGraph.ALL_EDGE_TYPES))
+                .thenReturn(CompletableFuture.completedFuture("{\"size\":2}"));
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/component");
+        builder.header("Authorization", authorizationToken);
+        builder.header("project_id", projectId);
+        builder.param("className", "org.example.A");
+
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"size\":2}"));
+    }
+
+    @Test
+    void testGetComponent_unknownClass() throws Exception {
+        Mockito.when(projectGraphService.getComponent(projectId, "org.example.Missing", DependencyGraph.ALL_EDGE_TYPES))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/component");
+        builder.header("Authorization", authorizationToken);
+        builder.header("project_id", projectId);
+        builder.param("className", "org.example.Missing");
+
+        mockMvc.perform(builder)
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetImpact() throws Exception {
+        Mockito.when(projectGraphService.getImpact(projectId, "org.example.A", false, 2, DependencyGraph.ALL_EDGE_TYPES, 0, 1000))
+                .thenReturn(CompletableFuture.completedFuture("{\"count\":3}"));
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/impact");
+        builder.header("Authorization", authorizationToken);
+        builder.header("project_id", projectId);
+        builder.param("className", "org.example.A");
+        builder.param("direction", "dependencies");
+        builder.param("depth", "2");
+
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"count\":3}"));
+    }
+
+    @Test
+    void testGetImpact_invalidDirection() throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/impact");
+        builder.header("Authorization", authorizationToken);
+        builder.header("project_id", projectId);
+        builder.param("className", "org.example.A");
+        builder.param("direction", "both");
+
+        mockMvc.perform(builder)
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetNeighborhood() throws Exception {
+        Mockito.when(projectGraphService.getNeighborhood(projectId, "org.example.A", 2, 1 << DependencyGraph.INHERITS, "org.example", 500, 100))
+                .thenReturn(CompletableFuture.completedFuture("{\"nodeCount\":700}"));
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/neighborhood");
+        builder.header("Authorization", authorizationToken);
+        builder.header("project_id", projectId);
+        builder.param("className", "org.example.A");
+        builder.param("radius", "2");
+        builder.param("edgeTypes", "inherits");
+        builder.param("package", "org.example");
+        builder.param("cursor", "500");
+        builder.param("limit", "100");
+
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"nodeCount\":700}"));
+    }
+
+    @Test
+    void testGetNeighborhood_invalidCursor() throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/neighborhood");
+        builder.header("Authorization", authorizationToken);
+        builder.header("project_id", projectId);
+        builder.param("className", "org.example.A");
+        builder.param("cursor", "abc");
+
+        mockMvc.perform(builder)
+                .andExpect(status().isBadRequest());
+        Mockito.verify(projectGraphService, Mockito.never()).getNeighborhood(any(), any(), anyInt(), anyInt(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testGetPackageView() throws Exception {
+        Mockito.when(projectGraphService.getPackageView(projectId, ""))
+                .thenReturn(CompletableFuture.completedFuture("{\"package\":\"\"}"));
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/packages");
+        builder.header("Authorization", authorizationToken);
+        builder.header("project_id", projectId);
+
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"package\":\"\"}"));
+    }
+
+    @Test
+    void testGetPackageView_unknownPackage() throws Exception {
+        Mockito.when(projectGraphService.getPackageView(projectId, "org.missing"))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/packages");
+        builder.header("Authorization", authorizationToken);
+        builder.header("project_id", projectId);
+        builder.param("package", "org.missing");
+
+        mockMvc.perform(builder)
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetLayout_computing() throws Exception {
+        Mockito.when(graphLayoutService.getLayout(projectId, DependencyGraph.ALL_EDGE_TYPES, "org.example", 0, 1000))
+                .thenReturn(new ResponseEntity<>("{\"status\":\"computing\"}", HttpStatus.ACCEPTED));
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/layout");
+        builder.header("Authorization", authorizationToken);
+        builder.header("project_id", projectId);
+        builder.param("package", "org.example");
+
+        mockMvc.perform(builder)
+                .andExpect(status().isAccepted())
+                .andExpect(content().json("{\"status\":\"computing\"}"));
+    }
+
+    @Test
+    void testGetLayout_invalidLimit() throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/layout");
+        builder.header("Authorization", authorizationToken);
+        builder.header("project_id", projectId);
+        builder.param("limit", "0");
+
+        mockMvc.perform(builder)
+                .andExpect(status().isBadRequest());
+        Mockito.verify(graphLayoutService, Mockito.never()).getLayout(any(), anyInt(), any(), anyInt(), anyInt());
+    }
+}
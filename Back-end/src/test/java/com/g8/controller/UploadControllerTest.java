@@ -1,6 +1,9 @@
 package com.g8.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.g8.service.AnalysisJob;
+import com.g8.service.AnalysisJobService;
+import com.g8.service.AnalysisSession;
 import com.g8.service.AnalyzeProjectService;
 import com.g8.service.AuthService;
 import com.g8.service.DependencyRetrievalService;
@@ -16,17 +19,23 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.reset;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(UploadController.class)
@@ -44,13 +53,17 @@ public class UploadControllerTest {
     @MockBean
     private DependencyRetrievalService dependencyRetrievalService;
 
+    @MockBean
+    private AnalysisJobService analysisJobService;
+
     private String baseURL = "http://localhost:8080/initialize";
     private final String authorizationToken = "mock-token";
     private final String projectId = "mock-id";
 
     @BeforeEach
     public void setup() {
-        Mockito.when(authService.verifyToken(authorizationToken)).thenReturn(true);
+        // FirebaseAuthFilter resolves the user of the token before the controller runs
+        Mockito.when(authService.getUserId(authorizationToken)).thenReturn("testUser");
     }
 
     @Test
@@ -162,7 +175,7 @@ public class UploadControllerTest {
         builder.header("Authorization", authorizationToken);
         builder.contentType(MediaType.MULTIPART_FORM_DATA);
 
-        Mockito.when(authService.verifyToken(any())).thenReturn(false);
+        Mockito.when(authService.getUserId(any())).thenThrow(new RuntimeException("Error while retrieving user Id for verification"));
 
         mockMvc.perform(builder)
                 .andExpect(status().isUnauthorized())
@@ -175,7 +188,7 @@ public class UploadControllerTest {
         builder.header("project_id", projectId);
         builder.header("Authorization", "invalid-token");
 
-        Mockito.when(authService.verifyToken(any())).thenReturn(false);
+        Mockito.when(authService.getUserId(any())).thenThrow(new RuntimeException("Error while retrieving user Id for verification"));
 
         mockMvc.perform(builder)
                 .andExpect(status().isUnauthorized())
@@ -325,7 +338,6 @@ public class UploadControllerTest {
         String mockResponseJson = new Gson().toJson(mockProjects);
 
         // Mock the AuthService and DependencyRetrievalService behavior
-        Mockito.when(authService.verifyToken(mockAuthorizationToken)).thenReturn(true);
         Mockito.when(authService.getUserId(mockAuthorizationToken)).thenReturn(mockUserId);
         Mockito.when(dependencyRetrievalService.getUserProjects(mockUserId))
                 .thenReturn(CompletableFuture.completedFuture(mockProjects));
@@ -351,7 +363,6 @@ public class UploadControllerTest {
             builder.content(requestBody);
             builder.param("projectId", projectId);
 
-            Mockito.when(authService.verifyToken(mockAuthorizationToken)).thenReturn(true);
             Mockito.when(authService.getUserId(mockAuthorizationToken)).thenReturn(mockUserId);
             Mockito.when(dependencyRetrievalService.createCustomView(mockUserId, projectId, data))
                     .thenReturn(CompletableFuture.completedFuture(responseMessage));
@@ -374,7 +385,7 @@ public class UploadControllerTest {
             builder.content(requestBody);
             builder.param("projectId", projectId);
 
-            Mockito.when(authService.verifyToken(authorizationToken)).thenReturn(false);
+            Mockito.when(authService.getUserId(authorizationToken)).thenThrow(new RuntimeException("Error while retrieving user Id for verification"));
 
             mockMvc.perform(builder)
                     .andExpect(status().isUnauthorized())
@@ -393,7 +404,6 @@ public class UploadControllerTest {
             builder.content(requestBody);
             builder.param("projectId", projectId);
 
-            Mockito.when(authService.verifyToken(authorizationToken)).thenReturn(true);
             Mockito.when(authService.getUserId(authorizationToken)).thenReturn("testUser");
             Mockito.when(dependencyRetrievalService.createCustomView("testUser", projectId, data))
                             .thenThrow(new RuntimeException(""));
@@ -413,7 +423,6 @@ public class UploadControllerTest {
             builder.header("Authorization", authorizationToken);
             builder.param("customViewId", customViewId);
 
-            Mockito.when(authService.verifyToken(authorizationToken)).thenReturn(true);
             Mockito.when(dependencyRetrievalService.getCustomViewData(customViewId))
                     .thenReturn(CompletableFuture.completedFuture(data));
 
@@ -428,7 +437,7 @@ public class UploadControllerTest {
             builder.header("Authorization", authorizationToken);
             builder.param("customViewId", "customView123");
 
-            Mockito.when(authService.verifyToken(authorizationToken)).thenReturn(false);
+            Mockito.when(authService.getUserId(authorizationToken)).thenThrow(new RuntimeException("Error while retrieving user Id for verification"));
 
             mockMvc.perform(builder)
                     .andExpect(status().isUnauthorized())
@@ -443,7 +452,6 @@ public class UploadControllerTest {
             builder.header("Authorization", authorizationToken);
             builder.param("customViewId", "customView123");
 
-            Mockito.when(authService.verifyToken(authorizationToken)).thenReturn(true);
             Mockito.when(dependencyRetrievalService.getCustomViewData(customViewId))
                     .thenThrow(new RuntimeException("Service error"));
 
@@ -453,4 +461,228 @@ public class UploadControllerTest {
         }
 
 
-}
\ No newline at end of file
+
+        @Test
+        void testUploadProjectAsync_Accepted() throws Exception {
+            MockMultipartFile validFile = new MockMultipartFile("file", "project.jar", "application/java-archive", "some-content".getBytes());
+
+            Mockito.when(authService.getUserId(authorizationToken)).thenReturn("testUser");
+            Mockito.when(analysisJobService.submitUpload(any(MockMultipartFile.class), eq("com.example"), eq("testUser")))
+                    .thenReturn(new ResponseEntity<>("{\"jobId\":\"job-1\"}", HttpStatus.ACCEPTED));
+
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.multipart(baseURL + "/uploadAsync").file(validFile);
+            builder.param("classContainer", "com.example");
+            builder.header("Authorization", authorizationToken);
+
+            mockMvc.perform(builder)
+                    .andExpect(status().isAccepted())
+                    .andExpect(content().json("{\"jobId\":\"job-1\"}"));
+        }
+
+        @Test
+        void testUploadProjectAsync_QueueFull() throws Exception {
+            MockMultipartFile validFile = new MockMultipartFile("file", "project.jar", "application/java-archive", "some-content".getBytes());
+
+            Mockito.when(analysisJobService.submitUpload(any(MockMultipartFile.class), eq("com.example"), any()))
+                    .thenReturn(new ResponseEntity<>("Analysis queue is full. Please try again later.", HttpStatus.SERVICE_UNAVAILABLE));
+
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.multipart(baseURL + "/uploadAsync").file(validFile);
+            builder.param("classContainer", "com.example");
+            builder.header("Authorization", authorizationToken);
+
+            mockMvc.perform(builder)
+                    .andExpect(status().isServiceUnavailable());
+        }
+
+        @Test
+        void testGetJobStatus_Success() throws Exception {
+            AnalysisJob job = new AnalysisJob("job-1", "testUser", new AnalysisSession("com.example"));
+
+            Mockito.when(authService.getUserId(authorizationToken)).thenReturn("testUser");
+            Mockito.when(analysisJobService.getJob("job-1", "testUser")).thenReturn(job);
+
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/jobStatus");
+            builder.header("Authorization", authorizationToken);
+            builder.param("jobId", "job-1");
+
+            mockMvc.perform(builder)
+                    .andExpect(status().isOk())
+                    .andExpect(content().json("{\"jobId\":\"job-1\",\"status\":\"QUEUED\",\"phase\":\"queued\"}"));
+        }
+
+        @Test
+        void testGetJobStatus_NotFound() throws Exception {
+            Mockito.when(authService.getUserId(authorizationToken)).thenReturn("otherUser");
+
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/jobStatus");
+            builder.header("Authorization", authorizationToken);
+            builder.param("jobId", "job-1");
+
+            mockMvc.perform(builder)
+                    .andExpect(status().isNotFound());
+        }
+
+        @Test
+        void testGetProject_allSections() throws Exception {
+            Mockito.when(dependencyRetrievalService.getProject(projectId, Set.of("intDep", "extDep", "classList")))
+                    .thenReturn(CompletableFuture.completedFuture("{\"intDep\":[],\"classList\":[\"ClassA\"]}"));
+
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/project");
+            builder.header("Authorization", authorizationToken);
+            builder.header("project_id", projectId);
+
+            mockMvc.perform(builder)
+                    .andExpect(status().isOk())
+                    .andExpect(content().json("{\"intDep\":[],\"classList\":[\"ClassA\"]}"));
+        }
+
+        @Test
+        void testGetProject_selectedSections() throws Exception {
+            Mockito.when(dependencyRetrievalService.getProject(projectId, Set.of("extDep", "classList")))
+                    .thenReturn(CompletableFuture.completedFuture("{\"classList\":[\"ClassA\"]}"));
+
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/project");
+            builder.header("Authorization", authorizationToken);
+            builder.header("project_id", projectId);
+            builder.param("sections", "classList,extDep");
+
+            mockMvc.perform(builder)
+                    .andExpect(status().isOk())
+                    .andExpect(content().json("{\"classList\":[\"ClassA\"]}"));
+        }
+
+        @Test
+        void testGetProject_unknownSection() throws Exception {
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/project");
+            builder.header("Authorization", authorizationToken);
+            builder.header("project_id", projectId);
+            builder.param("sections", "intDep,layout");
+
+            mockMvc.perform(builder)
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void testGetProject_unauthorized() throws Exception {
+            Mockito.when(authService.getUserId("invalid-token")).thenThrow(new RuntimeException("Error while retrieving user Id for verification"));
+
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/project");
+            builder.header("Authorization", "invalid-token");
+            builder.header("project_id", projectId);
+
+            mockMvc.perform(builder)
+                    .andExpect(status().isUnauthorized());
+        }
+
+        @Test
+        void testStreamProject() throws Exception {
+            Mockito.doAnswer(invocation -> {
+                invocation.getArgument(2, OutputStream.class).write("{\"classList\":[\"ClassA\"]}".getBytes(StandardCharsets.UTF_8));
+                return null;
+            }).when(dependencyRetrievalService).writeProject(eq(projectId), eq(Set.of("classList")), any(OutputStream.class));
+
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/project");
+            builder.header("Authorization", authorizationToken);
+            builder.header("project_id", projectId);
+            builder.param("sections", "classList");
+            builder.param("stream", "true");
+
+            MvcResult result = mockMvc.perform(builder)
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(content().json("{\"classList\":[\"ClassA\"]}"));
+        }
+
+        @Test
+        void testStreamProject_unknownSection() throws Exception {
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/project");
+            builder.header("Authorization", authorizationToken);
+            builder.header("project_id", projectId);
+            builder.param("sections", "layout");
+            builder.param("stream", "true");
+
+            MvcResult result = mockMvc.perform(builder).andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(content().string("Unknown section: layout. Supported sections are intDep, extDep, classList."));
+        }
+
+        @Test
+        void testStreamInternalDependencies() throws Exception {
+            Mockito.doAnswer(invocation -> {
+                invocation.getArgument(1, OutputStream.class).write("[{\"name\":\"ClassA\"}]".getBytes(StandardCharsets.UTF_8));
+                return null;
+            }).when(dependencyRetrievalService).writeInternalDependencies(eq(projectId), any(OutputStream.class));
+
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/intDep");
+            builder.header("Authorization", authorizationToken);
+            builder.header("project_id", projectId);
+            builder.param("stream", "true");
+
+            MvcResult result = mockMvc.perform(builder)
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().json("[{\"name\":\"ClassA\"}]"));
+        }
+
+        @Test
+        void testStreamInternalDependencies_unauthorized() throws Exception {
+            Mockito.when(authService.getUserId("invalid-token")).thenThrow(new RuntimeException("Error while retrieving user Id for verification"));
+
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/intDep");
+            builder.header("Authorization", "invalid-token");
+            builder.header("project_id", projectId);
+            builder.param("stream", "true");
+
+            MvcResult result = mockMvc.perform(builder).andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isUnauthorized());
+            Mockito.verify(dependencyRetrievalService, Mockito.never()).writeInternalDependencies(any(), any());
+        }
+
+        @Test
+        void testGetCallGraph() throws Exception {
+            Mockito.when(dependencyRetrievalService.getCallGraph(projectId, 100, 50))
+                    .thenReturn(CompletableFuture.completedFuture("{\"methodCount\":120,\"methods\":[]}"));
+
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/callGraph");
+            builder.header("Authorization", authorizationToken);
+            builder.header("project_id", projectId);
+            builder.param("offset", "100");
+            builder.param("limit", "50");
+
+            mockMvc.perform(builder)
+                    .andExpect(status().isOk())
+                    .andExpect(content().json("{\"methodCount\":120,\"methods\":[]}"));
+        }
+
+        @Test
+        void testGetCallGraph_notAnalysedDeep() throws Exception {
+            Mockito.when(dependencyRetrievalService.getCallGraph(projectId, 0, 1000))
+                    .thenReturn(CompletableFuture.completedFuture(null));
+
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/callGraph");
+            builder.header("Authorization", authorizationToken);
+            builder.header("project_id", projectId);
+
+            mockMvc.perform(builder)
+                    .andExpect(status().isNotFound());
+        }
+
+        @Test
+        void testGetCallGraph_invalidLimit() throws Exception {
+            MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(baseURL + "/callGraph");
+            builder.header("Authorization", authorizationToken);
+            builder.header("project_id", projectId);
+            builder.param("limit", "100000");
+
+            mockMvc.perform(builder)
+                    .andExpect(status().isBadRequest());
+            Mockito.verify(dependencyRetrievalService, Mockito.never()).getCallGraph(any(), Mockito.anyInt(), Mockito.anyInt());
+        }
+}
@@ -1,21 +1,29 @@
 package com.g8.integration;
 
+import com.g8.service.AnalysisSession;
 import com.g8.service.AnalyzeProjectService;
+import com.google.firebase.auth.FirebaseAuth;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
-@SpringBootTest
+// Runs against the embedded store with a mocked FirebaseAuth, so no Firebase project is needed
+@SpringBootTest(properties = {"storage.type=local", "storage.local.directory=target/it-store"})
 @ExtendWith(SpringExtension.class)
 public class AnalyzeProjectServiceIT {
 
    private AnalyzeProjectService analyzeProjectService;
    private String filePath = "src/test/resources/blog-0.0.1-SNAPSHOT.jar";
    private String userId = "abc";
+   private AnalysisSession session;
+
+   @MockBean
+   private FirebaseAuth firebaseAuth;
 
     @Autowired
     public AnalyzeProjectServiceIT(AnalyzeProjectService analyzeProjectService) {
@@ -24,13 +32,14 @@ public class AnalyzeProjectServiceIT {
 
     @BeforeEach
     public void confiuguration() {
-       analyzeProjectService.setUSER_PACKAGE_PREFIX("com/blog");
+       session = new AnalysisSession("com/blog");
+       session.setFilePath(filePath);
    }
 
     @Test
     public void analyzeFileTest() throws Exception {
 
-       String projectId = analyzeProjectService.analyzeFile(filePath, userId);
+       String projectId = analyzeProjectService.analyzeFile(session, userId);
        Assertions.assertNotNull(projectId);
    }
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+package com.g8.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class AnalysisJobServiceTest {
+
+    private AnalyzeProjectService analyzeProjectService;
+    private AnalysisJobService analysisJobService;
+    private MockMultipartFile jarFile;
+
+    @BeforeEach
+    void setUp() {
+        analyzeProjectService = mock(AnalyzeProjectService.class);
+        analysisJobService = new AnalysisJobService(analyzeProjectService, 1, 1, 60);
+        jarFile = new MockMultipartFile("file", "project.jar", "application/java-archive", "some-content".getBytes());
+    }
+
+    @AfterEach
+    void tearDown() {
+        analysisJobService.shutdown();
+    }
+
+    @Test
+    void testSubmitUpload_completesJob() throws Exception {
+        when(analyzeProjectService.analyzeFile(any(), eq("testUser"))).thenReturn("project-1");
+
+        ResponseEntity<String> response = analysisJobService.submitUpload(jarFile, "com.example", "testUser");
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+
+        String jobId = response.getBody().replaceAll(".*\"jobId\":\"([^\"]+)\".*", "$1");
+        AnalysisJob job = analysisJobService.getJob(jobId, "testUser");
+        assertNotNull(job);
+
+        awaitFinished(job);
+        assertEquals(AnalysisJob.Status.COMPLETED, job.getStatus());
+        assertEquals("project-1", job.toStatus().get("projectId"));
+        assertEquals("completed", job.toStatus().get("phase"));
+        verify(analyzeProjectService).deleteFile(argThat(session -> session != null));
+        assertNull(job.getSession());
+    }
+
+    @Test
+    void testSubmitUpload_finishedJobKeepsProgressWithoutSession() throws Exception {
+        when(analyzeProjectService.analyzeFile(any(), any())).thenAnswer(invocation -> {
+            AnalysisSession session = invocation.getArgument(0);
+            session.setTotalEntries(2);
+            session.entryScanned();
+            session.entryScanned();
+            return "project-1";
+        });
+
+        ResponseEntity<String> response = analysisJobService.submitUpload(jarFile, "com.example", "testUser");
+        AnalysisJob job = analysisJobService.getJob(response.getBody().replaceAll(".*\"jobId\":\"([^\"]+)\".*", "$1"), "testUser");
+
+        awaitFinished(job);
+        assertNull(job.getSession());
+        assertEquals(2, job.toStatus().get("entriesScanned"));
+        assertEquals(2, job.toStatus().get("totalEntries"));
+    }
+
+    @Test
+    void testRemoveExpiredJobs_dropsFinishedJobs() throws Exception {
+        AnalysisJobService expiringService = new AnalysisJobService(analyzeProjectService, 1, 1, 0);
+        when(analyzeProjectService.analyzeFile(any(), any())).thenReturn("project-1");
+        try {
+            ResponseEntity<String> response = expiringService.submitUpload(jarFile, "com.example", "testUser");
+            String jobId = response.getBody().replaceAll(".*\"jobId\":\"([^\"]+)\".*", "$1");
+            awaitFinished(expiringService.getJob(jobId, "testUser"));
+            Thread.sleep(5);
+
+            expiringService.removeExpiredJobs();
+
+            assertNull(expiringService.getJob(jobId, "testUser"));
+        } finally {
+            expiringService.shutdown();
+        }
+    }
+
+    @Test
+    void testSubmitUpload_failedJobReportsError() throws Exception {
+        when(analyzeProjectService.analyzeFile(any(), any())).thenThrow(new RuntimeException("Error while processing POM: bad"));
+
+        ResponseEntity<String> response = analysisJobService.submitUpload(jarFile, "com.example", "testUser");
+        String jobId = response.getBody().replaceAll(".*\"jobId\":\"([^\"]+)\".*", "$1");
+        AnalysisJob job = analysisJobService.getJob(jobId, "testUser");
+
+        awaitFinished(job);
+        assertEquals(AnalysisJob.Status.FAILED, job.getStatus());
+        assertEquals("Error while analyzing the project", job.getError());
+    }
+
+    @Test
+    void testSubmitUpload_rejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(analyzeProjectService.analyzeFile(any(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return "project-1";
+        });
+
+        // One job running and one waiting fill the pool, the third one goes over the backlog
+        assertEquals(HttpStatus.ACCEPTED, analysisJobService.submitUpload(jarFile, "com.example", "testUser").getStatusCode());
+        awaitQueueDrained();
+        assertEquals(HttpStatus.ACCEPTED, analysisJobService.submitUpload(jarFile, "com.example", "testUser").getStatusCode());
+        ResponseEntity<String> rejected = analysisJobService.submitUpload(jarFile, "com.example", "testUser");
+
+        MultipartFile notCopied = mock(MultipartFile.class);
+        when(notCopied.getOriginalFilename()).thenReturn("project.jar");
+        ResponseEntity<String> rejectedBeforeCopy = analysisJobService.submitUpload(notCopied, "com.example", "testUser");
+
+        release.countDown();
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatusCode());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejectedBeforeCopy.getStatusCode());
+        verify(notCopied, never()).transferTo(any(Path.class));
+    }
+
+    @Test
+    void testSubmitUpload_failedCopyDeletesTempFile() throws Exception {
+        MultipartFile brokenUpload = mock(MultipartFile.class);
+        when(brokenUpload.getOriginalFilename()).thenReturn("project.jar");
+        Path[] copiedTo = new Path[1];
+        doAnswer(invocation -> {
+            copiedTo[0] = invocation.getArgument(0);
+            throw new IOException("Connection reset");
+        }).when(brokenUpload).transferTo(any(Path.class));
+
+        assertThrows(IOException.class, () -> analysisJobService.submitUpload(brokenUpload, "com.example", "testUser"));
+        assertNotNull(copiedTo[0]);
+        assertFalse(Files.exists(copiedTo[0]));
+    }
+
+    @Test
+    void testSubmitUpload_unsupportedFile() throws Exception {
+        MockMultipartFile textFile = new MockMultipartFile("file", "test.txt", "text/plain", "test data".getBytes());
+
+        assertEquals(HttpStatus.BAD_REQUEST, analysisJobService.submitUpload(textFile, "com.example", "testUser").getStatusCode());
+        MultipartFile unnamedFile = mock(MultipartFile.class);
+        assertEquals(HttpStatus.BAD_REQUEST, analysisJobService.submitUpload(unnamedFile, "com.example", "testUser").getStatusCode());
+    }
+
+    @Test
+    void testGetJob_otherUserCannotSeeJob() throws Exception {
+        when(analyzeProjectService.analyzeFile(any(), any())).thenReturn("project-1");
+
+        ResponseEntity<String> response = analysisJobService.submitUpload(jarFile, "com.example", "testUser");
+        String jobId = response.getBody().replaceAll(".*\"jobId\":\"([^\"]+)\".*", "$1");
+
+        assertNull(analysisJobService.getJob(jobId, "otherUser"));
+    }
+
+    private void awaitFinished(AnalysisJob job) throws InterruptedException {
+        for (int i = 0; i < 100 && !job.isFinished(); i++) {
+            Thread.sleep(50);
+        }
+    }
+
+    private void awaitQueueDrained() throws InterruptedException {
+        for (int i = 0; i < 100 && analysisJobService.getQueueDepth() > 0; i++) {
+            Thread.sleep(50);
+        }
+    }
+}
@@ -1,30 +1,60 @@
 package com.g8.service;
 
+import com.g8.utils.CallGraph;
+import com.g8.utils.CompactGraphCodec;
+import com.g8.utils.DependencyGraph;
+import com.g8.utils.MethodCalls;
+import com.g8.utils.PackageRollup;
 import com.google.cloud.firestore.Firestore;
 import com.google.firebase.cloud.FirestoreClient;
+import com.google.gson.Gson;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -46,18 +76,23 @@ public class AnalyzeProjectServiceTest {
 
     private InputStream pomInputStream;
 
+    @TempDir
+    Path tempDir;
+
+    private AnalysisSession session;
+
     @BeforeEach
     void setUp() {
         analyzeProjectService = new AnalyzeProjectService(dependencyRetrievalService);
-        analyzeProjectService.setUSER_PACKAGE_PREFIX(TEST_CLASS_CONTAINER);
+        session = new AnalysisSession(TEST_CLASS_CONTAINER);
     }
 
     @Test
     void testAnalyzePomDependencies_entryIsNull() throws Exception {
 
-        analyzeProjectService.analyzePomDependencies(null, jarFile);
+        analyzeProjectService.analyzePomDependencies(null, jarFile, session);
 
-        assertTrue(analyzeProjectService.getExternalForTest().isEmpty());
+        assertTrue(session.getExternalDependencies().isEmpty());
     }
 
     @Test
@@ -67,10 +102,10 @@ public class AnalyzeProjectServiceTest {
 
         when(jarFile.getInputStream(jarEntry)).thenReturn(pomInputStream);
 
-        analyzeProjectService.analyzePomDependencies(jarEntry, jarFile);
+        analyzeProjectService.analyzePomDependencies(jarEntry, jarFile, session);
 
         String expected = "[{groupId=org.springframework, scope=compile, artifactId=spring-core, version=5.3.10}]";
-        assertEquals(expected, analyzeProjectService.getExternalForTest().toString());
+        assertEquals(expected, session.getExternalDependencies().toString());
     }
 
     @Test
@@ -80,9 +115,9 @@ public class AnalyzeProjectServiceTest {
 
         when(jarFile.getInputStream(jarEntry)).thenReturn(pomInputStream);
 
-        analyzeProjectService.analyzePomDependencies(jarEntry, jarFile);
+        analyzeProjectService.analyzePomDependencies(jarEntry, jarFile, session);
 
-        assertTrue(analyzeProjectService.getExternalForTest().isEmpty());
+        assertTrue(session.getExternalDependencies().isEmpty());
     }
 
     @Test
@@ -92,10 +127,10 @@ public class AnalyzeProjectServiceTest {
 
         when(jarFile.getInputStream(jarEntry)).thenReturn(pomInputStream);
 
-        analyzeProjectService.analyzePomDependencies(jarEntry, jarFile);
+        analyzeProjectService.analyzePomDependencies(jarEntry, jarFile, session);
 
         String expected = "[{groupId=org.springframework, scope=, artifactId=spring-core, version=}]";
-        assertEquals(expected, analyzeProjectService.getExternalForTest().toString());
+        assertEquals(expected, session.getExternalDependencies().toString());
     }
 
     @Test
@@ -120,19 +155,21 @@ public class AnalyzeProjectServiceTest {
     @Test
     void testAnalyzeFile_withZeroClasses() throws Exception {
 
-        analyzeProjectService.setUSER_PACKAGE_PREFIX("org/example");
-        TEST_JAR_FILE_PATH = "src/test/resources/empty-1.0-SNAPSHOT.jar";
+        AnalysisSession emptySession = new AnalysisSession("org/example");
+        emptySession.setFilePath("src/test/resources/empty-1.0-SNAPSHOT.jar");
 
         try (MockedStatic<FirestoreClient> firestoreClient = mockStatic(FirestoreClient.class)) {
 
             firestoreClient.when(FirestoreClient::getFirestore).thenReturn(mock(Firestore.class));
             when(dependencyRetrievalService.saveData(any(), any(), any()))
                     .thenReturn(CompletableFuture.completedFuture("mocked response"));
+            when(dependencyRetrievalService.saveGraph(any(), any(), any()))
+                    .thenReturn(CompletableFuture.completedFuture(null));
 
             when(dependencyRetrievalService.saveProjectToUser(any(), any()))
                     .thenReturn(CompletableFuture.completedFuture(mock(Void.class)));
 
-            assertDoesNotThrow(() -> analyzeProjectService.analyzeFile(TEST_JAR_FILE_PATH, "mock_id"));
+            assertDoesNotThrow(() -> analyzeProjectService.analyzeFile(emptySession, "mock_id"));
         }
     }
 
@@ -152,6 +189,8 @@ public class AnalyzeProjectServiceTest {
             firestoreClient.when(FirestoreClient::getFirestore).thenReturn(mock(Firestore.class));
             when(dependencyRetrievalService.saveData(any(), any(), any()))
                     .thenReturn(CompletableFuture.completedFuture("mocked response"));
+            when(dependencyRetrievalService.saveGraph(any(), any(), any()))
+                    .thenReturn(CompletableFuture.completedFuture(null));
 
             when(dependencyRetrievalService.saveProjectToUser(any(), any()))
                     .thenReturn(CompletableFuture.completedFuture(mock(Void.class)));
@@ -167,6 +206,572 @@ public class AnalyzeProjectServiceTest {
         assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
     }
 
+    @Test
+    void testScanJar_parallelMatchesSequential() throws Exception {
+
+        String jarPath = createSyntheticJar(200).toString();
+
+        String sequential = scanWithParallelism(jarPath, 1);
+        String parallel = scanWithParallelism(jarPath, 8);
+
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void testScanJar_concurrentSessionsAreIsolated() throws Exception {
+
+        String jarPath = createSyntheticJar(200).toString();
+        String expected = scanWithParallelism(jarPath, 4);
+
+        // 50 uploads analyzed at the same time by one service instance
+        analyzeProjectService.setParallelism(4);
+        ExecutorService uploads = Executors.newFixedThreadPool(50);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                results.add(uploads.submit(() -> {
+                    AnalysisSession upload = new AnalysisSession("org.example");
+                    upload.setFilePath(jarPath);
+                    analyzeProjectService.scanJar(upload);
+                    return toJson(upload);
+                }));
+            }
+            for (Future<String> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            uploads.shutdown();
+            analyzeProjectService.shutdownAnalysisPool();
+        }
+    }
+
+    @Test
+    void testScanJar_recordsMetrics() throws Exception {
+
+        String jarPath = createSyntheticJar(20).toString();
+        AnalysisMetrics metrics = new AnalysisMetrics(new SimpleMeterRegistry());
+        AnalyzeProjectService service = new AnalyzeProjectService(dependencyRetrievalService, new AnalysisCache(0, 0), metrics);
+
+        AnalysisSession scanned = new AnalysisSession("org.example");
+        scanned.setFilePath(jarPath);
+        try {
+            service.scanJar(scanned);
+        } finally {
+            service.shutdownAnalysisPool();
+        }
+
+        // 20 classes and 4 nested classes, the jar has no other entries
+        assertEquals(24, metrics.getClassesParsed().count());
+        assertEquals(24, metrics.getClassVisits().count());
+        assertEquals(0, metrics.getEntriesSkipped().count());
+        assertTrue(metrics.getBytesRead().count() > 0);
+        assertEquals(1, metrics.phase("scanning").count());
+        assertEquals(1, metrics.phase("parsing").count());
+        assertEquals(0, metrics.getInFlight().get());
+    }
+
+    @Test
+    void testScanJar_boundsClassesWaitingForParsing() throws Exception {
+
+        Path jarPath = createSyntheticJar(200);
+        String expected = scanWithParallelism(jarPath.toString(), 1);
+        AtomicLong maxQueued = new AtomicLong();
+        AnalyzeProjectService slowService = new AnalyzeProjectService(dependencyRetrievalService) {
+            @Override
+            ParsedClass parseClass(byte[] classBytes) {
+                maxQueued.accumulateAndGet(getQueuedClassCount(), Math::max);
+                LockSupport.parkNanos(100_000);
+                return super.parseClass(classBytes);
+            }
+        };
+        slowService.setParallelism(1);
+
+        AnalysisSession scanned = new AnalysisSession("org.example");
+        scanned.setFilePath(jarPath.toString());
+        AnalysisSession streamed = new AnalysisSession("org.example");
+        try (InputStream inputStream = Files.newInputStream(jarPath)) {
+            slowService.scanJar(scanned);
+            slowService.scanStream(streamed, inputStream);
+        } finally {
+            slowService.shutdownAnalysisPool();
+        }
+
+        // Reading stops at four classes per worker, one of them is being parsed
+        assertTrue(maxQueued.get() <= 3, "queued " + maxQueued.get());
+        assertEquals(expected, toJson(scanned));
+        assertEquals(expected, toJson(streamed));
+    }
+
+    @Test
+    void testScanStream_matchesScanJar() throws Exception {
+
+        Path jarPath = createSyntheticJar(200);
+        String expected = scanWithParallelism(jarPath.toString(), 4);
+
+        AnalysisSession streamed = new AnalysisSession("org.example");
+        try (InputStream inputStream = Files.newInputStream(jarPath)) {
+            analyzeProjectService.scanStream(streamed, inputStream);
+        } finally {
+            analyzeProjectService.shutdownAnalysisPool();
+        }
+
+        assertEquals(expected, toJson(streamed));
+        assertNull(streamed.getFilePath());
+    }
+
+    @Test
+    void testAnalyzeUploadedProject_streamModeSavesProject() throws Exception {
+
+        Path jarPath = createSyntheticJar(20);
+        MockMultipartFile multipartFile = new MockMultipartFile("file", "synthetic.jar", "application/java-archive", Files.readAllBytes(jarPath));
+
+        when(dependencyRetrievalService.saveData(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("mocked response"));
+        when(dependencyRetrievalService.saveGraph(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(dependencyRetrievalService.saveProjectToUser(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        analyzeProjectService.setIngestionMode("stream");
+        ResponseEntity<String> response = analyzeProjectService.analyzeUploadedProject(multipartFile, "org.example", "mock_id");
+        analyzeProjectService.shutdownAnalysisPool();
+
+        assertEquals("mocked response", response.getBody());
+        verify(dependencyRetrievalService).saveData(argThat(data -> CompactGraphCodec.decode(data).size() == 24), any(), argThat(list -> list.size() == 24));
+    }
+
+    @Test
+    void testAnalyzeUploadedProject_streamModeRejectsNonJar() throws Exception {
+
+        MockMultipartFile multipartFile = new MockMultipartFile("file", "fake.jar", "application/java-archive", "not a jar".getBytes());
+
+        analyzeProjectService.setIngestionMode("stream");
+        assertThrows(ZipException.class, () -> analyzeProjectService.analyzeUploadedProject(multipartFile, "org.example", "mock_id"));
+        analyzeProjectService.shutdownAnalysisPool();
+
+        verify(dependencyRetrievalService, never()).saveData(any(), any(), any());
+    }
+
+    @Test
+    void testAnalyzeUploadedProject_streamModeReusesProject() throws Exception {
+
+        Path jarPath = createSyntheticJar(20);
+        MockMultipartFile multipartFile = new MockMultipartFile("file", "synthetic.jar", "application/java-archive", Files.readAllBytes(jarPath));
+        AnalysisCache analysisCache = new AnalysisCache(10, 1000);
+        AnalyzeProjectService cachingService = new AnalyzeProjectService(dependencyRetrievalService, analysisCache);
+        cachingService.setIngestionMode("stream");
+
+        when(dependencyRetrievalService.saveData(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("project-1"));
+        when(dependencyRetrievalService.saveGraph(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(dependencyRetrievalService.saveProjectToUser(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        assertEquals("project-1", cachingService.analyzeUploadedProject(multipartFile, "org.example", "user-a").getBody());
+        assertEquals("project-1", cachingService.analyzeUploadedProject(multipartFile, "org.example", "user-b").getBody());
+        cachingService.shutdownAnalysisPool();
+
+        // The hash taken while streaming covers the whole upload, the same as hashing the file
+        assertNotNull(analysisCache.getProject(AnalysisCache.sha256(Files.readAllBytes(jarPath)), "org/example", AnalysisDepth.STRUCTURAL));
+        verify(dependencyRetrievalService, times(1)).saveData(any(), any(), any());
+        verify(dependencyRetrievalService).saveProjectToUser("project-1", "user-b");
+    }
+
+    @Test
+    void testAnalyzeFile_identicalJarReusesProject() throws Exception {
+
+        String jarPath = createSyntheticJar(20).toString();
+        AnalyzeProjectService cachingService = new AnalyzeProjectService(dependencyRetrievalService, new AnalysisCache(10, 1000));
+
+        when(dependencyRetrievalService.saveData(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("project-1"));
+        when(dependencyRetrievalService.saveGraph(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(dependencyRetrievalService.saveProjectToUser(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        AnalysisSession first = new AnalysisSession("org.example");
+        first.setFilePath(jarPath);
+        AnalysisSession second = new AnalysisSession("org.example");
+        second.setFilePath(jarPath);
+
+        assertEquals("project-1", cachingService.analyzeFile(first, "user-a"));
+        assertEquals("project-1", cachingService.analyzeFile(second, "user-b"));
+        cachingService.shutdownAnalysisPool();
+
+        // Only the first upload was parsed and stored, the second one is only linked to its user
+        verify(dependencyRetrievalService, times(1)).saveData(any(), any(), any());
+        verify(dependencyRetrievalService).saveProjectToUser("project-1", "user-b");
+        assertTrue(second.getClassList().isEmpty());
+    }
+
+    @Test
+    void testAnalyzeFile_recordsFlightRecorderEvents() throws Exception {
+
+        Path jarPath = createSyntheticJar(20);
+        when(dependencyRetrievalService.saveData(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("project-1"));
+        when(dependencyRetrievalService.saveGraph(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(dependencyRetrievalService.saveProjectToUser(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        AnalysisSession analyzed = new AnalysisSession("org.example");
+        analyzed.setFilePath(jarPath.toString());
+        Path recordingPath = tempDir.resolve("analysis.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.g8.JarAnalysis");
+            // Every class instead of only the slow ones
+            recording.enable("com.g8.ClassParse").withThreshold(Duration.ZERO);
+            recording.start();
+            analyzeProjectService.analyzeFile(analyzed, "user-a");
+            analyzeProjectService.shutdownAnalysisPool();
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingPath);
+        List<RecordedEvent> analyses = events.stream().filter(event -> event.getEventType().getName().equals("com.g8.JarAnalysis")).toList();
+        assertEquals(1, analyses.size());
+        assertEquals("file", analyses.get(0).getString("ingestion"));
+        assertEquals(Files.size(jarPath), analyses.get(0).getLong("jarSize"));
+        assertEquals(24, analyses.get(0).getInt("classCount"));
+        assertEquals("project-1", analyses.get(0).getString("projectId"));
+        assertFalse(analyses.get(0).getBoolean("cached"));
+        assertEquals(24, events.stream().filter(event -> event.getEventType().getName().equals("com.g8.ClassParse")).count());
+    }
+
+    @Test
+    void testScanJar_unchangedClassesComeFromCache() throws Exception {
+
+        String jarPath = createSyntheticJar(20).toString();
+        AnalysisCache analysisCache = new AnalysisCache(10, 1000);
+        AnalyzeProjectService cachingService = new AnalyzeProjectService(dependencyRetrievalService, analysisCache);
+
+        AnalysisSession first = new AnalysisSession("org.example");
+        first.setFilePath(jarPath);
+        cachingService.scanJar(first);
+        AnalysisSession second = new AnalysisSession("org.example");
+        second.setFilePath(jarPath);
+        cachingService.scanJar(second);
+        cachingService.shutdownAnalysisPool();
+
+        assertEquals(24, analysisCache.getClasses().getHits());
+        assertEquals(toJson(first), toJson(second));
+        assertNotSame(first.getClassInfoMap().get("org.example.pkg0.Generated0"), second.getClassInfoMap().get("org.example.pkg0.Generated0"));
+    }
+
+    @Test
+    void testParseClass_structuralMatchesDeep() throws Exception {
+
+        // Compiled classes of this project, with method bodies, debug info, frames and annotations with values
+        AnalyzeProjectService structural = new AnalyzeProjectService(dependencyRetrievalService);
+        structural.setAnalysisDepth(AnalysisDepth.STRUCTURAL);
+        AnalyzeProjectService deep = new AnalyzeProjectService(dependencyRetrievalService);
+        deep.setAnalysisDepth(AnalysisDepth.DEEP);
+
+        for (String className : List.of("/com/g8/controller/UploadController.class", "/com/g8/utils/ClassVisitor.class", "/com/g8/utils/LruCache.class")) {
+            byte[] classBytes;
+            try (InputStream inputStream = getClass().getResourceAsStream(className)) {
+                classBytes = inputStream.readAllBytes();
+            }
+            AnalyzeProjectService.ParsedClass structuralResult = structural.parseClass(classBytes);
+            AnalyzeProjectService.ParsedClass deepResult = deep.parseClass(classBytes);
+
+            assertFalse(structuralResult.classInfo().getMethodList().isEmpty());
+            assertEquals(new Gson().toJson(List.of(deepResult.classInfo(), deepResult.nestedClasses())),
+                    new Gson().toJson(List.of(structuralResult.classInfo(), structuralResult.nestedClasses())));
+        }
+    }
+
+    @Test
+    void testAnalyzeFile_deepModeSavesCallGraph() throws Exception {
+
+        Path jarPath = tempDir.resolve("calls.jar");
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(jarPath.toFile()))) {
+            writeCallingClass(jar, "org/example/A", "org/example/B");
+            writeCallingClass(jar, "org/example/B", "org/example/A");
+        }
+
+        when(dependencyRetrievalService.saveData(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("project-1"));
+        when(dependencyRetrievalService.saveGraph(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(dependencyRetrievalService.saveProjectToUser(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        AnalyzeProjectService deep = new AnalyzeProjectService(dependencyRetrievalService);
+        deep.setAnalysisDepth(AnalysisDepth.DEEP);
+        AnalysisSession session = new AnalysisSession("org.example");
+        session.setFilePath(jarPath.toString());
+        deep.analyzeFile(session, "user-a");
+        deep.shutdownAnalysisPool();
+
+        // Each run() calls the run() of the other class and System.nanoTime(), only the calls between user classes are kept
+        ArgumentCaptor<byte[]> savedCallGraph = ArgumentCaptor.forClass(byte[].class);
+        verify(dependencyRetrievalService).saveGraph(eq("project-1"), eq(CallGraph.NAME), savedCallGraph.capture());
+        CallGraph callGraph = CallGraph.fromByteArray(savedCallGraph.getValue());
+        assertEquals(2, callGraph.getMethodCount());
+        assertEquals("org.example.A.run()V", callGraph.getMethod(0));
+        assertEquals("org.example.B.run()V", callGraph.getMethod(1));
+        assertArrayEquals(new int[]{1}, callGraph.getCalls(0));
+        assertArrayEquals(new int[]{0}, callGraph.getCalls(1));
+    }
+
+    @Test
+    void testAnalyzeFile_deepRunIgnoresStructuralCache() throws Exception {
+
+        Path jarPath = tempDir.resolve("calls.jar");
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(jarPath.toFile()))) {
+            writeCallingClass(jar, "org/example/A", "org/example/B");
+            writeCallingClass(jar, "org/example/B", "org/example/A");
+        }
+
+        when(dependencyRetrievalService.saveData(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("project-1"), CompletableFuture.completedFuture("project-2"));
+        when(dependencyRetrievalService.saveGraph(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(dependencyRetrievalService.saveProjectToUser(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        AnalyzeProjectService cachingService = new AnalyzeProjectService(dependencyRetrievalService, new AnalysisCache(10, 1000));
+        AnalysisSession structural = new AnalysisSession("org.example");
+        structural.setFilePath(jarPath.toString());
+        assertEquals("project-1", cachingService.analyzeFile(structural, "user-a"));
+
+        cachingService.setAnalysisDepth(AnalysisDepth.DEEP);
+        AnalysisSession deep = new AnalysisSession("org.example");
+        deep.setFilePath(jarPath.toString());
+        assertEquals("project-2", cachingService.analyzeFile(deep, "user-a"));
+        cachingService.shutdownAnalysisPool();
+
+        // The classes are parsed again with their method bodies, the call graph is complete
+        ArgumentCaptor<byte[]> savedCallGraph = ArgumentCaptor.forClass(byte[].class);
+        verify(dependencyRetrievalService).saveGraph(eq("project-2"), eq(CallGraph.NAME), savedCallGraph.capture());
+        assertEquals(2, CallGraph.fromByteArray(savedCallGraph.getValue()).getCallCount());
+    }
+
+    @Test
+    void testAddMethodCalls_methodsStopGrowingOnceTruncated() {
+
+        AnalysisSession session = new AnalysisSession("org.example");
+        session.startCallGraph(2);
+        for (int i = 0; i < 5; i++) {
+            MethodCalls methodCalls = new MethodCalls();
+            methodCalls.addCall(methodCalls.method("org/example/A" + i, "run", "()V"), methodCalls.method("org/example/B" + i, "run", "()V"));
+            session.addMethodCalls(methodCalls);
+        }
+
+        CallGraph callGraph = session.getCallGraph().build();
+        assertEquals(2, callGraph.getCallCount());
+        // Only the methods of the two kept calls
+        assertEquals(4, callGraph.getMethodCount());
+        assertTrue(callGraph.isTruncated());
+    }
+
+    @Test
+    void testAnalyzeFile_structuralModeHasNoCallGraph() throws Exception {
+
+        when(dependencyRetrievalService.saveData(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("project-1"));
+        when(dependencyRetrievalService.saveGraph(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(dependencyRetrievalService.saveProjectToUser(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        AnalysisSession session = new AnalysisSession("org.example");
+        session.setFilePath(createSyntheticJar(5).toString());
+        analyzeProjectService.analyzeFile(session, "user-a");
+        analyzeProjectService.shutdownAnalysisPool();
+
+        assertNull(session.getCallGraph());
+        ArgumentCaptor<byte[]> savedGraph = ArgumentCaptor.forClass(byte[].class);
+        verify(dependencyRetrievalService).saveGraph(eq("project-1"), eq(DependencyGraph.NAME), savedGraph.capture());
+        assertEquals(session.getClassList().size(), DependencyGraph.fromByteArray(savedGraph.getValue()).getNodeCount());
+        ArgumentCaptor<byte[]> savedRollup = ArgumentCaptor.forClass(byte[].class);
+        verify(dependencyRetrievalService).saveGraph(eq("project-1"), eq(PackageRollup.NAME), savedRollup.capture());
+        assertEquals(session.getClassList().size(), PackageRollup.fromByteArray(savedRollup.getValue()).getTotalClassCount(0));
+        verify(dependencyRetrievalService, never()).saveGraph(any(), eq(CallGraph.NAME), any());
+    }
+
+    @Test
+    void testScanJar_fatJarAnalysesSelectedNestedLibraries() throws Exception {
+
+        Path jarPath = createFatJar();
+        analyzeProjectService.setNestedLibraries(List.of("acme-*.jar"));
+
+        AnalysisSession scanned = new AnalysisSession("org");
+        scanned.setFilePath(jarPath.toString());
+        analyzeProjectService.scanJar(scanned);
+
+        AnalysisSession streamed = new AnalysisSession("org");
+        try (InputStream inputStream = Files.newInputStream(jarPath)) {
+            analyzeProjectService.scanStream(streamed, inputStream);
+        } finally {
+            analyzeProjectService.shutdownAnalysisPool();
+        }
+
+        // The launcher and the classes of the other library are left out, the POM of the nested library too
+        assertEquals(List.of("org.example.app.App", "org.example.core.Core", "org.example.core.Util"), scanned.getClassList());
+        assertEquals("[{groupId=org.acme, scope=, artifactId=acme-core, version=1.0}]", scanned.getExternalDependencies().toString());
+        assertEquals(toJson(scanned), toJson(streamed));
+        assertEquals(scanned.getExternalDependencies(), streamed.getExternalDependencies());
+    }
+
+    @Test
+    void testScanJar_fatJarSkipsNestedLibrariesByDefault() throws Exception {
+
+        AnalysisSession scanned = new AnalysisSession("org");
+        scanned.setFilePath(createFatJar().toString());
+        analyzeProjectService.scanJar(scanned);
+        analyzeProjectService.shutdownAnalysisPool();
+
+        assertEquals(List.of("org.example.app.App"), scanned.getClassList());
+    }
+
+    @Test
+    void testIsSelectedLibrary() {
+
+        analyzeProjectService.setNestedLibraries(List.of("acme-*.jar", "tools.jar"));
+
+        assertTrue(analyzeProjectService.isSelectedLibrary("BOOT-INF/lib/acme-core-1.0.jar"));
+        assertTrue(analyzeProjectService.isSelectedLibrary("WEB-INF/lib/tools.jar"));
+        assertFalse(analyzeProjectService.isSelectedLibrary("BOOT-INF/lib/other-1.0.jar"));
+        assertFalse(analyzeProjectService.isSelectedLibrary("BOOT-INF/lib/nested/acme-core-1.0.jar"));
+        assertFalse(analyzeProjectService.isSelectedLibrary("lib/acme-core-1.0.jar"));
+        assertFalse(analyzeProjectService.isSelectedLibrary("BOOT-INF/lib/acme-core-1.0.pom"));
+    }
+
+    // Scans the jar with a fresh service and returns the session content as JSON
+    private String scanWithParallelism(String jarPath, int parallelism) throws Exception {
+
+        AnalyzeProjectService service = new AnalyzeProjectService(dependencyRetrievalService);
+        service.setParallelism(parallelism);
+
+        AnalysisSession scanned = new AnalysisSession("org.example");
+        scanned.setFilePath(jarPath);
+        service.scanJar(scanned);
+        service.shutdownAnalysisPool();
+        return toJson(scanned);
+    }
+
+    private String toJson(AnalysisSession scanned) {
+        byte[] internalDependencies = scanned.getInternalDependencies().toByteArray();
+        return new Gson().toJson(List.of(CompactGraphCodec.decode(internalDependencies), scanned.getClassList(), scanned.getParentClassToNestedClassesMap()))
+                + Base64.getEncoder().encodeToString(internalDependencies);
+    }
+
+    // Builds a jar of generated classes where every fifth class has a nested class
+    private Path createSyntheticJar(int classCount) throws Exception {
+
+        Path jarPath = tempDir.resolve("synthetic.jar");
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(jarPath.toFile()))) {
+            for (int i = 0; i < classCount; i++) {
+                String name = "org/example/pkg" + (i % 7) + "/Generated" + i;
+                writeClass(jar, name, i > 0 ? "org/example/pkg" + ((i - 1) % 7) + "/Generated" + (i - 1) : "java/lang/Object");
+                if (i % 5 == 0) {
+                    writeClass(jar, name + "$Inner", "java/lang/Object");
+                }
+            }
+        }
+        return jarPath;
+    }
+
+    // Builds a Spring Boot fat jar: launcher, application classes and POM, and two nested libraries stored
+    // uncompressed the way Boot packages them
+    private Path createFatJar() throws Exception {
+
+        Path jarPath = tempDir.resolve("fat.jar");
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(jarPath.toFile()))) {
+            writeClass(jar, "org/springframework/boot/loader/launch/JarLauncher", "java/lang/Object");
+            writeClassEntry(jar, "BOOT-INF/classes/org/example/app/App", "org/example/app/App", "org/example/core/Core");
+            jar.putNextEntry(new JarEntry("META-INF/maven/org.example/app/pom.xml"));
+            jar.write("""
+                    <project><dependencies><dependency>
+                    <groupId>org.acme</groupId><artifactId>acme-core</artifactId><version>1.0</version>
+                    </dependency></dependencies></project>""".getBytes(StandardCharsets.UTF_8));
+            jar.closeEntry();
+            writeStoredEntry(jar, "BOOT-INF/lib/acme-core-1.0.jar", createLibrary("org/example/core/Core", "org/example/core/Util"));
+            writeStoredEntry(jar, "BOOT-INF/lib/other-1.0.jar", createLibrary("org/example/other/Other"));
+        }
+        return jarPath;
+    }
+
+    private byte[] createLibrary(String... classNames) throws Exception {
+
+        ByteArrayOutputStream library = new ByteArrayOutputStream();
+        try (JarOutputStream jar = new JarOutputStream(library)) {
+            for (String className : classNames) {
+                writeClass(jar, className, "java/lang/Object");
+            }
+            jar.putNextEntry(new JarEntry("META-INF/maven/org.acme/library/pom.xml"));
+            jar.write(createMockPomStream(true, true, true, true, true).readAllBytes());
+            jar.closeEntry();
+        }
+        return library.toByteArray();
+    }
+
+    private void writeStoredEntry(JarOutputStream jar, String name, byte[] content) throws Exception {
+
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        JarEntry entry = new JarEntry(name);
+        entry.setMethod(JarEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        entry.setCrc(crc.getValue());
+        jar.putNextEntry(entry);
+        jar.write(content);
+        jar.closeEntry();
+    }
+
+    // A class written under another entry name, as in BOOT-INF/classes
+    private void writeClassEntry(JarOutputStream jar, String entryName, String name, String superName) throws Exception {
+
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, superName, null);
+        writer.visitEnd();
+
+        jar.putNextEntry(new JarEntry(entryName + ".class"));
+        jar.write(writer.toByteArray());
+        jar.closeEntry();
+    }
+
+    private void writeClass(JarOutputStream jar, String name, String superName) throws Exception {
+
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, superName, new String[]{"java/io/Serializable"});
+        writer.visitAnnotation("Lorg/springframework/stereotype/Service;", true).visitEnd();
+        writer.visitField(Opcodes.ACC_PRIVATE, "value", "Ljava/lang/String;", null, null).visitEnd();
+        writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "run", "()V", null, null).visitEnd();
+        writer.visitEnd();
+
+        jar.putNextEntry(new JarEntry(name + ".class"));
+        jar.write(writer.toByteArray());
+        jar.closeEntry();
+    }
+
+    // A class whose static run() calls the run() of the target class and System.nanoTime()
+    private void writeCallingClass(JarOutputStream jar, String name, String target) throws Exception {
+
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+        MethodVisitor run = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "run", "()V", null, null);
+        run.visitCode();
+        run.visitMethodInsn(Opcodes.INVOKESTATIC, target, "run", "()V", false);
+        run.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+        run.visitInsn(Opcodes.POP2);
+        run.visitInsn(Opcodes.RETURN);
+        run.visitMaxs(0, 0);
+        run.visitEnd();
+        writer.visitEnd();
+
+        jar.putNextEntry(new JarEntry(name + ".class"));
+        jar.write(writer.toByteArray());
+        jar.closeEntry();
+    }
+
     private InputStream createMockPomStream(boolean exists, boolean groupId, boolean artifactId, boolean version, boolean scope) {
 
         String grp = "", artifact = "", ver = "", sc = "", depstart = "", depend = "";
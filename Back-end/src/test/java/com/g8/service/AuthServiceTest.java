@@ -13,6 +13,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -73,4 +75,44 @@ class AuthServiceTest {
 
         assertThrows(RuntimeException.class, () -> authService.verifyToken("invalidToken"));
     }
+
+    @Test
+    void testGetUserId_verifiesTokenOnce() throws FirebaseAuthException {
+        FirebaseToken mockToken = mock(FirebaseToken.class);
+        when(mockToken.getUid()).thenReturn("testUid");
+        when(mockToken.getClaims()).thenReturn(Map.of("exp", System.currentTimeMillis() / 1000 + 3600));
+        when(firebaseAuth.verifyIdToken("validToken")).thenReturn(mockToken);
+
+        assertTrue(authService.verifyToken("validToken"));
+        assertEquals("testUid", authService.getUserId("validToken"));
+        assertEquals("testUid", authService.getUserId("validToken"));
+
+        verify(firebaseAuth, times(1)).verifyIdToken("validToken");
+        assertEquals(2, authService.getVerifiedTokens().getHits());
+    }
+
+    @Test
+    void testGetUserId_expiredTokenIsVerifiedAgain() throws FirebaseAuthException {
+        FirebaseToken mockToken = mock(FirebaseToken.class);
+        when(mockToken.getUid()).thenReturn("testUid");
+        when(mockToken.getClaims()).thenReturn(Map.of("exp", System.currentTimeMillis() / 1000 - 1));
+        when(firebaseAuth.verifyIdToken("expiredToken")).thenReturn(mockToken);
+
+        authService.getUserId("expiredToken");
+        authService.getUserId("expiredToken");
+
+        verify(firebaseAuth, times(2)).verifyIdToken("expiredToken");
+    }
+
+    @Test
+    void testGetUserId_invalidTokenIsNotCached() throws FirebaseAuthException {
+        FirebaseException firebaseException = new FirebaseException(ErrorCode.PERMISSION_DENIED, "Failed", null);
+        when(firebaseAuth.verifyIdToken("invalidToken")).thenThrow(new FirebaseAuthException(firebaseException));
+
+        assertThrows(RuntimeException.class, () -> authService.getUserId("invalidToken"));
+        assertThrows(RuntimeException.class, () -> authService.getUserId("invalidToken"));
+
+        verify(firebaseAuth, times(2)).verifyIdToken("invalidToken");
+        assertEquals(0, authService.getVerifiedTokens().size());
+    }
 }
@@ -2,26 +2,46 @@ package com.g8.service;
 
 import com.g8.model.ClassInfo;
 import com.g8.model.ExternalDependencyInfo;
+import com.g8.model.FieldInfo;
+import com.g8.storage.FirestoreProjectStore;
+import com.g8.utils.CallGraph;
+import com.g8.utils.CompactGraphCodec;
 import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.*;
 import com.google.common.reflect.TypeToken;
 import com.google.firebase.cloud.FirestoreClient;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 
+import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
@@ -47,9 +67,20 @@ public class DependencyRetrievalServiceTest {
     @Mock
     private ApiFuture<WriteResult> mockWriteResult;
 
+    @Mock
+    private WriteBatch mockWriteBatch;
+
+    @Mock
+    private ApiFuture<List<WriteResult>> mockBatchResult;
+
+    @Mock
+    private CollectionReference chunkCollectionReference;
+
     @InjectMocks
     private DependencyRetrievalService dependencyRetrievalService;
 
+    private FirestoreProjectStore firestoreProjectStore;
+
     private final Gson gson = new Gson();
 
     @BeforeEach
@@ -79,7 +110,12 @@ public class DependencyRetrievalServiceTest {
         when(mockDocumentReference.update(anyString(), any(), any())).thenReturn(mockWriteResult);
         when(mockDocumentReference.set(any(), any(SetOptions.class))).thenReturn(mockWriteResult);
 
-        dependencyRetrievalService = new DependencyRetrievalService(mockFirestore);
+        when(mockFirestore.batch()).thenReturn(mockWriteBatch);
+        when(mockWriteBatch.commit()).thenReturn(mockBatchResult);
+        when(mockDocumentReference.collection("chunks")).thenReturn(chunkCollectionReference);
+
+        firestoreProjectStore = new FirestoreProjectStore(mockFirestore);
+        dependencyRetrievalService = new DependencyRetrievalService(firestoreProjectStore);
     }
 
     @Test
@@ -144,12 +180,37 @@ public class DependencyRetrievalServiceTest {
         }
     }
 
+    @Test
+    void testGetInternalDependencies_compactFormat() throws Exception {
+        ClassInfo classA = new ClassInfo();
+        classA.setName("ClassA");
+        classA.setInherits("");
+        classA.setClassType("normalClass");
+        classA.getAnnotations().add("@org.springframework.web.bind.annotation.RequestMapping(value = /api)");
+        ClassInfo classB = new ClassInfo();
+        classB.setName("ClassB");
+        classB.setInherits("ClassA");
+        classB.setClassType("normalClass");
+
+        when(mockDocumentSnapshot.getBlob("intDepCompact")).thenReturn(Blob.fromBytes(CompactGraphCodec.encode(List.of(classA, classB))));
+
+        CompletableFuture<String> result = dependencyRetrievalService.getInternalDependencies("testProject");
+
+        assertEquals(gson.toJson(List.of(classA, classB)), result.get());
+    }
+
+    @Test
+    void testGetInternalDependencies_compactFormatWithoutClasses() throws Exception {
+        when(mockDocumentSnapshot.getBlob("intDepCompact")).thenReturn(Blob.fromBytes(CompactGraphCodec.encode(List.of())));
+
+        CompletableFuture<String> result = dependencyRetrievalService.getInternalDependencies("testProject");
+
+        assertEquals(null, result.get());
+    }
+
     @Test
     void testSaveData() throws ExecutionException, InterruptedException {
-        List<Map<String, Object>> internalDependencies = List.of(
-                Map.of("name", "ClassA"),
-                Map.of("name", "ClassB")
-        );
+        byte[] internalDependencies = CompactGraphCodec.encode(List.of(new ClassInfo(), new ClassInfo()));
 
         List<Map<String, String>> externalDependencies = List.of(
                 Map.of("artifactId", "ExternalLibA"),
@@ -171,6 +232,420 @@ public class DependencyRetrievalServiceTest {
         }
     }
 
+    @Test
+    void testSaveData_splitsProjectIntoChunks() throws Exception {
+        List<ClassInfo> classes = createClasses(5);
+        List<String> classList = classes.stream().map(ClassInfo::getName).toList();
+
+        when(projectCollectionReference.document()).thenReturn(mockDocumentReference);
+        when(mockDocumentReference.getId()).thenReturn("mock-id");
+        Map<String, DocumentReference> chunkReferences = new HashMap<>();
+        when(chunkCollectionReference.document(anyString())).thenAnswer(invocation ->
+                chunkReferences.computeIfAbsent(invocation.getArgument(0), id -> mock(DocumentReference.class)));
+
+        firestoreProjectStore.setChunkSize(2);
+        firestoreProjectStore.setChunksPerBatch(2);
+        assertEquals("mock-id", dependencyRetrievalService.saveData(CompactGraphCodec.encode(classes), List.of(), classList).get());
+
+        // 5 classes in chunks of 2 give 3 chunk documents, written in 2 batches
+        ArgumentCaptor<Map<String, Object>> chunkData = ArgumentCaptor.forClass(Map.class);
+        verify(mockWriteBatch).set(eq(chunkReferences.get("0")), chunkData.capture());
+        verify(mockWriteBatch).set(eq(chunkReferences.get("1")), chunkData.capture());
+        verify(mockWriteBatch).set(eq(chunkReferences.get("2")), chunkData.capture());
+        verify(mockWriteBatch, times(2)).commit();
+
+        List<ClassInfo> storedClasses = new ArrayList<>();
+        List<String> storedClassList = new ArrayList<>();
+        for (Map<String, Object> chunk : chunkData.getAllValues()) {
+            storedClasses.addAll(CompactGraphCodec.decode(((Blob) chunk.get("intDepCompact")).toBytes()));
+            storedClassList.addAll((List<String>) chunk.get("classList"));
+        }
+        assertEquals(classes, storedClasses);
+        assertEquals(classList, storedClassList);
+
+        ArgumentCaptor<Map<String, Object>> projectData = ArgumentCaptor.forClass(Map.class);
+        verify(mockDocumentReference).set(projectData.capture());
+        assertEquals(3, projectData.getValue().get("chunkCount"));
+        assertFalse(projectData.getValue().containsKey("classList"));
+    }
+
+    @Test
+    void testSaveData_largeClassesStayUnderTheDocumentLimit() throws Exception {
+        // About 4 KB of unique annotation values per class, 2000 of them would fill 8 MiB
+        List<ClassInfo> classes = createClasses(600);
+        for (ClassInfo classInfo : classes) {
+            for (int i = 0; i < 40; i++) {
+                classInfo.getVariableList().add(new FieldInfo("field" + i, "java.lang.String",
+                        new ArrayList<>(List.of("@Value(" + classInfo.getName() + ".field" + i + ".value" + "x".repeat(64) + ")")), false, true));
+            }
+        }
+        List<String> classList = classes.stream().map(ClassInfo::getName).toList();
+
+        when(projectCollectionReference.document()).thenReturn(mockDocumentReference);
+        when(mockDocumentReference.getId()).thenReturn("mock-id");
+        when(chunkCollectionReference.document(anyString())).thenAnswer(invocation -> mock(DocumentReference.class));
+
+        dependencyRetrievalService.saveData(CompactGraphCodec.encode(classes), List.of(), classList).get();
+
+        ArgumentCaptor<Map<String, Object>> chunkData = ArgumentCaptor.forClass(Map.class);
+        verify(mockWriteBatch, atLeast(2)).set(any(DocumentReference.class), chunkData.capture());
+        List<ClassInfo> storedClasses = new ArrayList<>();
+        List<String> storedClassList = new ArrayList<>();
+        for (Map<String, Object> chunk : chunkData.getAllValues()) {
+            byte[] compact = ((Blob) chunk.get("intDepCompact")).toBytes();
+            List<String> names = (List<String>) chunk.get("classList");
+            int documentSize = compact.length + names.stream().mapToInt(name -> name.getBytes(StandardCharsets.UTF_8).length + 1).sum();
+            assertTrue(documentSize < 1_048_576, documentSize + " bytes");
+            List<ClassInfo> chunkClasses = CompactGraphCodec.decode(compact);
+            assertEquals(chunkClasses.stream().map(ClassInfo::getName).toList(), names);
+            storedClasses.addAll(chunkClasses);
+            storedClassList.addAll(names);
+        }
+        assertEquals(classes, storedClasses);
+        assertEquals(classList, storedClassList);
+    }
+
+    @Test
+    void testGetInternalDependencies_chunkedFormat() throws Exception {
+        List<ClassInfo> classes = createClasses(5);
+        mockChunks(classes, 2);
+
+        CompletableFuture<String> result = dependencyRetrievalService.getInternalDependencies("testProject");
+
+        assertEquals(gson.toJson(classes), result.get());
+    }
+
+    @Test
+    void testGetClassList_chunkedFormat() throws Exception {
+        List<ClassInfo> classes = createClasses(5);
+        mockChunks(classes, 2);
+
+        CompletableFuture<String> result = dependencyRetrievalService.getClassList("testProject");
+
+        assertEquals(gson.toJson(classes.stream().map(ClassInfo::getName).toList()), result.get());
+    }
+
+    @Test
+    void testGetInternalDependencies_chunkedFormatWithoutClasses() throws Exception {
+        mockChunks(List.of(), 2);
+
+        assertEquals(null, dependencyRetrievalService.getInternalDependencies("testProject").get());
+        assertEquals(null, dependencyRetrievalService.getClassList("testProject").get());
+    }
+
+    @Test
+    void testGetProject_readsAllSectionsOnce() throws Exception {
+        List<ClassInfo> classes = createClasses(5);
+        mockChunks(classes, 2);
+        when(mockDocumentSnapshot.get("extDep")).thenReturn(List.of(Map.of("artifactId", "ExternalLibA")));
+
+        String result = dependencyRetrievalService.getProject("testProject", Set.of("intDep", "extDep", "classList")).get();
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("intDep", classes);
+        expected.put("extDep", gson.fromJson(gson.toJson(List.of(Map.of("artifactId", "ExternalLibA"))), new TypeToken<List<ExternalDependencyInfo>>() {}.getType()));
+        expected.put("classList", classes.stream().map(ClassInfo::getName).toList());
+        assertEquals(gson.toJsonTree(expected), gson.fromJson(result, JsonElement.class));
+
+        // One read of the project document, one read per chunk shared by intDep and classList
+        verify(mockDocumentReference, times(1)).get();
+        verify(chunkCollectionReference, times(1)).document("0");
+    }
+
+    @Test
+    void testGetProject_onlyRequestedSections() throws Exception {
+        mockChunks(createClasses(5), 2);
+        when(mockDocumentSnapshot.get("extDep")).thenReturn(List.of(Map.of("artifactId", "ExternalLibA")));
+
+        String result = dependencyRetrievalService.getProject("testProject", Set.of("extDep")).get();
+
+        assertEquals("{\"extDep\":[{\"artifactId\":\"ExternalLibA\"}]}", result);
+        verify(chunkCollectionReference, never()).document(anyString());
+    }
+
+    @Test
+    void testGetProject_leavesOutEmptySections() throws Exception {
+        when(mockDocumentSnapshot.get("classList")).thenReturn(List.of());
+
+        assertEquals("{}", dependencyRetrievalService.getProject("testProject", Set.of("intDep", "extDep", "classList")).get());
+    }
+
+    @Test
+    void testGetProject_servesRepeatedReadsFromCache() throws Exception {
+        ProjectResponseCache responseCache = new ProjectResponseCache(1, 60);
+        DependencyRetrievalService cachingService = new DependencyRetrievalService(firestoreProjectStore, responseCache);
+        mockChunks(createClasses(5), 2);
+
+        String first = cachingService.getProject("testProject", Set.of("intDep", "classList")).get();
+        String second = cachingService.getProject("testProject", Set.of("classList", "intDep")).get();
+        cachingService.getClassList("testProject").get();
+        cachingService.getClassList("testProject").get();
+
+        assertEquals(first, second);
+        verify(mockDocumentReference, times(2)).get();
+        assertEquals(2, responseCache.getResponses().getHits());
+        assertEquals(2, responseCache.getResponses().getMisses());
+    }
+
+    @Test
+    void testGetProject_recordsStoreCalls() throws Exception {
+        AnalysisMetrics metrics = new AnalysisMetrics(new SimpleMeterRegistry());
+        DependencyRetrievalService meteredService = new DependencyRetrievalService(firestoreProjectStore, new ProjectResponseCache(0, 0), new ProjectGraphCache(0), metrics);
+        mockChunks(createClasses(5), 2);
+
+        meteredService.getProject("testProject", Set.of("intDep", "classList")).get();
+        meteredService.getClassList("testProject").get();
+
+        assertEquals(1, metrics.storage("getProject").count());
+        assertEquals(1, metrics.storage("getClassList").count());
+        assertEquals(0, metrics.storage("saveProject").count());
+    }
+
+    @Test
+    void testGetProject_recordsStorageCallEvents() throws Exception {
+        mockChunks(createClasses(5), 2);
+        Path recordingPath = Files.createTempFile("storage", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.g8.StorageCall");
+            recording.start();
+            dependencyRetrievalService.getProject("testProject", Set.of("intDep")).get();
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingPath);
+        Files.delete(recordingPath);
+        assertEquals(1, events.size());
+        assertEquals("getProject", events.get(0).getString("operation"));
+        assertEquals("testProject", events.get(0).getString("projectId"));
+        assertTrue(events.get(0).getLong("payloadSize") > 0);
+    }
+
+    @Test
+    void testCreateCustomView_invalidatesCachedProject() throws Exception {
+        ProjectResponseCache responseCache = new ProjectResponseCache(1, 60);
+        DependencyRetrievalService cachingService = new DependencyRetrievalService(firestoreProjectStore, responseCache);
+        mockChunks(createClasses(5), 2);
+        cachingService.getClassList("testProject").get();
+        assertEquals(1, responseCache.getResponses().size());
+
+        DocumentReference customViewDocRef = mock(DocumentReference.class);
+        when(customViewsCollectionReference.document()).thenReturn(customViewDocRef);
+        when(customViewDocRef.set(any())).thenReturn(mockWriteResult);
+        when(mockDocumentSnapshot.exists()).thenReturn(false);
+        when(userProjectCollectionReference.document("otherUser")).thenReturn(mockDocumentReference);
+        cachingService.createCustomView("otherUser", "testProject", Map.of("key", "value")).get();
+
+        assertEquals(0, responseCache.getResponses().size());
+    }
+
+    @Test
+    void testGetClassList_emptyResultIsNotCached() throws Exception {
+        ProjectResponseCache responseCache = new ProjectResponseCache(1, 60);
+        DependencyRetrievalService cachingService = new DependencyRetrievalService(firestoreProjectStore, responseCache);
+        when(mockDocumentSnapshot.get("classList")).thenReturn(null);
+
+        assertEquals(null, cachingService.getClassList("testProject").get());
+        assertEquals(0, responseCache.getResponses().size());
+    }
+
+    @Test
+    void testGetProject_missingProjectIsNotCached() throws Exception {
+        ProjectResponseCache responseCache = new ProjectResponseCache(1, 60);
+        DependencyRetrievalService cachingService = new DependencyRetrievalService(firestoreProjectStore, responseCache);
+        when(mockDocumentSnapshot.exists()).thenReturn(false);
+
+        assertEquals("{}", cachingService.getProject("testProject", Set.of("intDep", "extDep", "classList")).get());
+        assertEquals(0, responseCache.getResponses().size());
+    }
+
+    @Test
+    void testWriteProject_matchesGetProject() throws Exception {
+        mockChunks(createClasses(5), 2);
+        when(mockDocumentSnapshot.get("extDep")).thenReturn(List.of(Map.of("artifactId", "ExternalLibA")));
+        firestoreProjectStore.setChunkReadAhead(1);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        dependencyRetrievalService.writeProject("testProject", Set.of("intDep", "extDep", "classList"), output);
+
+        assertEquals(dependencyRetrievalService.getProject("testProject", Set.of("intDep", "extDep", "classList")).get(),
+                output.toString(StandardCharsets.UTF_8));
+        // Each chunk is read once by the streamed response and once by getProject
+        verify(chunkCollectionReference, times(2)).document("2");
+    }
+
+    @Test
+    void testWriteProject_onlyRequestedSections() throws Exception {
+        mockChunks(createClasses(5), 2);
+        when(mockDocumentSnapshot.get("extDep")).thenReturn(List.of(Map.of("artifactId", "ExternalLibA")));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        dependencyRetrievalService.writeProject("testProject", Set.of("extDep"), output);
+
+        assertEquals("{\"extDep\":[{\"artifactId\":\"ExternalLibA\"}]}", output.toString(StandardCharsets.UTF_8));
+        verify(chunkCollectionReference, never()).document(anyString());
+    }
+
+    @Test
+    void testWriteInternalDependencies_streamsChunks() throws Exception {
+        List<ClassInfo> classes = createClasses(5);
+        mockChunks(classes, 2);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        dependencyRetrievalService.writeInternalDependencies("testProject", output);
+
+        assertEquals(gson.toJson(classes), output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testWriteInternalDependencies_writesNothingWithoutClasses() throws Exception {
+        mockChunks(List.of(), 2);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        dependencyRetrievalService.writeInternalDependencies("testProject", output);
+
+        assertEquals(0, output.size());
+    }
+
+    @Test
+    void testWriteInternalDependencies_usesCachedResponse() throws Exception {
+        ProjectResponseCache responseCache = new ProjectResponseCache(1, 60);
+        DependencyRetrievalService cachingService = new DependencyRetrievalService(firestoreProjectStore, responseCache);
+        mockChunks(createClasses(5), 2);
+        String response = cachingService.getInternalDependencies("testProject").get();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        cachingService.writeInternalDependencies("testProject", output);
+
+        assertEquals(response, output.toString(StandardCharsets.UTF_8));
+        verify(mockDocumentReference, times(1)).get();
+    }
+
+    @Test
+    void testSaveGraph_splitsIntoParts() throws Exception {
+        CollectionReference partCollectionReference = mock(CollectionReference.class);
+        when(mockDocumentReference.collection("callGraph")).thenReturn(partCollectionReference);
+        Map<String, DocumentReference> partReferences = new HashMap<>();
+        when(partCollectionReference.document(anyString())).thenAnswer(invocation ->
+                partReferences.computeIfAbsent(invocation.getArgument(0), id -> mock(DocumentReference.class)));
+        when(mockDocumentReference.update(eq("callGraphParts"), any())).thenReturn(mockWriteResult);
+
+        byte[] callGraph = createCallGraph().toByteArray();
+        firestoreProjectStore.setGraphPartSize(10);
+        dependencyRetrievalService.saveGraph("testProject", CallGraph.NAME, callGraph).get();
+
+        int partCount = (callGraph.length + 9) / 10;
+        ArgumentCaptor<Map<String, Object>> partData = ArgumentCaptor.forClass(Map.class);
+        verify(mockWriteBatch, times(partCount)).set(any(DocumentReference.class), partData.capture());
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        for (int i = 0; i < partCount; i++) {
+            verify(mockWriteBatch).set(eq(partReferences.get(String.valueOf(i))), any(Map.class));
+            stored.writeBytes(((Blob) partData.getAllValues().get(i).get("data")).toBytes());
+        }
+        assertArrayEquals(callGraph, stored.toByteArray());
+        verify(mockDocumentReference).update("callGraphParts", partCount);
+    }
+
+    @Test
+    void testGetCallGraph_returnsPage() throws Exception {
+        mockCallGraph(createCallGraph().toByteArray());
+
+        String page = dependencyRetrievalService.getCallGraph("testProject", 1, 1).get();
+
+        assertEquals("{\"methodCount\":3,\"callCount\":3,\"truncated\":false,\"offset\":1,\"nextOffset\":2,"
+                + "\"methods\":[{\"id\":1,\"name\":\"org.example.B.help()V\",\"calls\":[2]}]}", page);
+    }
+
+    @Test
+    void testGetCallGraph_lastPageHasNoNextOffset() throws Exception {
+        mockCallGraph(createCallGraph().toByteArray());
+
+        JsonObject page = gson.fromJson(dependencyRetrievalService.getCallGraph("testProject", 2, 10).get(), JsonObject.class);
+
+        assertFalse(page.has("nextOffset"));
+        assertEquals(1, page.getAsJsonArray("methods").size());
+    }
+
+    @Test
+    void testGetCallGraph_decodesOncePerProject() throws Exception {
+        ProjectGraphCache graphCache = new ProjectGraphCache(1);
+        DependencyRetrievalService cachingService = new DependencyRetrievalService(firestoreProjectStore, new ProjectResponseCache(0, 0), graphCache);
+        mockCallGraph(createCallGraph().toByteArray());
+
+        cachingService.getCallGraph("testProject", 0, 1).get();
+        cachingService.getCallGraph("testProject", 1, 1).get();
+
+        verify(mockDocumentReference, times(1)).get();
+        assertEquals(1, graphCache.getGraphs().getHits());
+    }
+
+    @Test
+    void testGetCallGraph_projectWithoutCallGraph() throws Exception {
+        assertNull(dependencyRetrievalService.getCallGraph("testProject", 0, 10).get());
+    }
+
+    // Stubs a call graph stored in parts of 10 bytes
+    private void mockCallGraph(byte[] callGraph) throws Exception {
+        CollectionReference partCollectionReference = mock(CollectionReference.class);
+        when(mockDocumentReference.collection("callGraph")).thenReturn(partCollectionReference);
+        int partCount = (callGraph.length + 9) / 10;
+        when(mockDocumentSnapshot.contains("callGraphParts")).thenReturn(true);
+        when(mockDocumentSnapshot.getLong("callGraphParts")).thenReturn((long) partCount);
+        for (int i = 0; i < partCount; i++) {
+            DocumentReference partReference = mock(DocumentReference.class);
+            ApiFuture<DocumentSnapshot> partFuture = mock(ApiFuture.class);
+            DocumentSnapshot partSnapshot = mock(DocumentSnapshot.class);
+            when(partCollectionReference.document(String.valueOf(i))).thenReturn(partReference);
+            when(partReference.get()).thenReturn(partFuture);
+            when(partFuture.get()).thenReturn(partSnapshot);
+            when(partSnapshot.getBlob("data")).thenReturn(Blob.fromBytes(Arrays.copyOfRange(callGraph, i * 10, Math.min((i + 1) * 10, callGraph.length))));
+        }
+    }
+
+    // run calls help and check, help calls check
+    private CallGraph createCallGraph() {
+        CallGraph.Builder builder = new CallGraph.Builder(100);
+        int run = builder.intern("org.example.A.run()V");
+        int help = builder.intern("org.example.B.help()V");
+        int check = builder.intern("org.example.B.check()Z");
+        builder.addCall(run, help);
+        builder.addCall(run, check);
+        builder.addCall(help, check);
+        return builder.build();
+    }
+
+    // Stubs a project stored as chunk documents of chunkSize classes
+    private void mockChunks(List<ClassInfo> classes, int chunkSize) throws Exception {
+        List<byte[]> chunks = CompactGraphCodec.split(CompactGraphCodec.encode(classes), chunkSize);
+
+        when(mockDocumentSnapshot.contains("chunkCount")).thenReturn(true);
+        when(mockDocumentSnapshot.getLong("chunkCount")).thenReturn((long) chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            DocumentReference chunkReference = mock(DocumentReference.class);
+            ApiFuture<DocumentSnapshot> chunkFuture = mock(ApiFuture.class);
+            DocumentSnapshot chunkSnapshot = mock(DocumentSnapshot.class);
+            List<String> names = CompactGraphCodec.decode(chunks.get(i)).stream().map(ClassInfo::getName).toList();
+
+            when(chunkCollectionReference.document(String.valueOf(i))).thenReturn(chunkReference);
+            when(chunkReference.get()).thenReturn(chunkFuture);
+            when(chunkFuture.get()).thenReturn(chunkSnapshot);
+            when(chunkSnapshot.getBlob("intDepCompact")).thenReturn(Blob.fromBytes(chunks.get(i)));
+            when(chunkSnapshot.get("classList")).thenReturn(names);
+        }
+    }
+
+    private List<ClassInfo> createClasses(int count) {
+        List<ClassInfo> classes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ClassInfo classInfo = new ClassInfo();
+            classInfo.setName("Class" + i);
+            classInfo.setInherits(i == 0 ? "" : "Class" + (i - 1));
+            classInfo.setClassType("normalClass");
+            classes.add(classInfo);
+        }
+        return classes;
+    }
+
     @Test
     void testGetInternalDependenciesWithNullData() throws Exception {
         when(mockDocumentSnapshot.get("intDep")).thenReturn(null);
@@ -272,7 +747,7 @@ public class DependencyRetrievalServiceTest {
     void testSaveDataThrowsException() throws ExecutionException, InterruptedException {
         when(mockDocumentReference.set(any())).thenThrow(new RuntimeException("Firestore write error"));
 
-        List<Map<String, Object>> internalDependencies = List.of();
+        byte[] internalDependencies = CompactGraphCodec.encode(List.of());
         List<Map<String, String>> externalDependencies = List.of();
         List<String> classList = List.of();
 
@@ -358,6 +833,18 @@ public class DependencyRetrievalServiceTest {
         }
     }
 
+    @Test
+    void testSaveProjectToUser_projectWithCustomViewIsNotAddedAgain() throws Exception {
+
+        when(mockDocumentSnapshot.exists()).thenReturn(true);
+        when(mockDocumentSnapshot.get("projects")).thenReturn(List.of(Map.of("projectId", "testProject", "custom_view", "view-1")));
+
+        dependencyRetrievalService.saveProjectToUser("testProject", "testUser").join();
+
+        verify(mockDocumentReference, never()).update(eq("projects"), any(FieldValue.class));
+        verify(mockDocumentReference, never()).set(any(Map.class), any(SetOptions.class));
+    }
+
     @Test
     void testGetUserProjects_withExistingUserIdAndProjects() throws Exception {
         // Arrange
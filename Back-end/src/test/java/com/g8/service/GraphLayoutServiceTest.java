@@ -0,0 +1,142 @@
+package com.g8.service;
+
+import com.g8.storage.ProjectStore;
+import com.g8.utils.DependencyGraph;
+import com.g8.utils.LayeredLayout;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class GraphLayoutServiceTest {
+
+    private final String layoutName = GraphLayoutService.layoutName(DependencyGraph.ALL_EDGE_TYPES, null);
+
+    private ProjectStore projectStore;
+    private AnalysisMetrics metrics;
+    private GraphLayoutService graphLayoutService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        projectStore = mock(ProjectStore.class);
+        ProjectGraphCache graphCache = new ProjectGraphCache(16);
+        metrics = new AnalysisMetrics(new SimpleMeterRegistry());
+        DependencyRetrievalService dependencyRetrievalService = new DependencyRetrievalService(projectStore, new ProjectResponseCache(0, 0), graphCache, metrics);
+        graphLayoutService = new GraphLayoutService(dependencyRetrievalService, new ProjectGraphService(projectStore, graphCache), graphCache, 1);
+
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int controller = builder.addNode("org.example.web.Controller");
+        int service = builder.addNode("org.example.data.Service");
+        builder.addEdge(controller, service, DependencyGraph.FIELD_TYPE);
+        when(projectStore.getGraph("project-1", DependencyGraph.NAME)).thenReturn(builder.build().toByteArray());
+    }
+
+    @AfterEach
+    void tearDown() {
+        graphLayoutService.shutdown();
+    }
+
+    @Test
+    void testGetLayout_computedInTheBackgroundOnce() throws Exception {
+        ResponseEntity<String> first = graphLayoutService.getLayout("project-1", DependencyGraph.ALL_EDGE_TYPES, null, 0, 10);
+        assertEquals(HttpStatus.ACCEPTED, first.getStatusCode());
+
+        ResponseEntity<String> response = awaitLayout();
+        JsonObject layout = JsonParser.parseString(response.getBody()).getAsJsonObject();
+        assertEquals(2, layout.get("nodeCount").getAsInt());
+        JsonObject top = layout.getAsJsonArray("nodes").get(0).getAsJsonObject();
+        assertEquals("org.example.web.Controller", top.get("name").getAsString());
+        assertEquals(0, top.get("y").getAsInt());
+        assertEquals(1, layout.getAsJsonArray("edges").size());
+
+        verify(projectStore, times(1)).saveGraph(eq("project-1"), eq(layoutName), any());
+        // Layout reads and writes are timed like every other store call
+        assertTrue(metrics.storage("getGraph").count() > 0);
+        assertEquals(1, metrics.storage("saveGraph").count());
+    }
+
+    @Test
+    void testGetLayout_readsStoredLayout() throws Exception {
+        DependencyGraph graph = DependencyGraph.fromByteArray(projectStore.getGraph("project-1", DependencyGraph.NAME));
+        when(projectStore.getGraph("project-1", layoutName))
+                .thenReturn(LayeredLayout.compute(graph, DependencyGraph.ALL_EDGE_TYPES, node -> true).toByteArray());
+
+        ResponseEntity<String> response = graphLayoutService.getLayout("project-1", DependencyGraph.ALL_EDGE_TYPES, null, 1, 10);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonObject layout = JsonParser.parseString(response.getBody()).getAsJsonObject();
+        assertEquals(1, layout.getAsJsonArray("nodes").size());
+        // Edges leave the classes of the page
+        assertEquals(0, layout.getAsJsonArray("edges").size());
+        verify(projectStore, never()).saveGraph(any(), eq(layoutName), any());
+    }
+
+    @Test
+    void testGetLayout_recomputesOutdatedLayout() throws Exception {
+        when(projectStore.getGraph("project-1", layoutName)).thenReturn(new byte[]{0, 0});
+
+        assertEquals(HttpStatus.ACCEPTED, graphLayoutService.getLayout("project-1", DependencyGraph.ALL_EDGE_TYPES, null, 0, 10).getStatusCode());
+
+        ArgumentCaptor<byte[]> saved = ArgumentCaptor.forClass(byte[].class);
+        verify(projectStore, timeout(5000)).saveGraph(eq("project-1"), eq(layoutName), saved.capture());
+        assertEquals(2, LayeredLayout.fromByteArray(saved.getValue()).size());
+    }
+
+    @Test
+    void testGetLayout_recordsStorageCallEvents() throws Exception {
+        Path recordingPath = Files.createTempFile("layout", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.g8.StorageCall");
+            recording.start();
+            graphLayoutService.getLayout("project-1", DependencyGraph.ALL_EDGE_TYPES, null, 0, 10);
+            verify(projectStore, timeout(5000)).saveGraph(eq("project-1"), eq(layoutName), any());
+            // The worker records its event after the store returns
+            awaitLayout();
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingPath);
+        Files.delete(recordingPath);
+        assertTrue(events.stream().anyMatch(event -> event.getString("operation").equals("getGraph")));
+        RecordedEvent saved = events.stream().filter(event -> event.getString("operation").equals("saveGraph")).findFirst().orElseThrow();
+        assertEquals("project-1", saved.getString("projectId"));
+        assertTrue(saved.getLong("payloadSize") > 0);
+    }
+
+    @Test
+    void testGetLayout_unknownProjectOrPackage() throws Exception {
+        when(projectStore.getInternalDependencies("missing")).thenReturn(List.of());
+
+        assertEquals(HttpStatus.NOT_FOUND, graphLayoutService.getLayout("missing", DependencyGraph.ALL_EDGE_TYPES, null, 0, 10).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, graphLayoutService.getLayout("project-1", DependencyGraph.ALL_EDGE_TYPES, "org.missing", 0, 10).getStatusCode());
+    }
+
+    private ResponseEntity<String> awaitLayout() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        ResponseEntity<String> response;
+        do {
+            Thread.sleep(10);
+            response = graphLayoutService.getLayout("project-1", DependencyGraph.ALL_EDGE_TYPES, null, 0, 10);
+        } while (response.getStatusCode() == HttpStatus.ACCEPTED && System.currentTimeMillis() < deadline);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        return response;
+    }
+}
@@ -0,0 +1,214 @@
+package com.g8.service;
+
+import com.g8.model.ClassInfo;
+import com.g8.storage.ProjectStore;
+import com.g8.utils.CompactGraphCodec;
+import com.g8.utils.DependencyGraph;
+import com.g8.utils.PackageRollup;
+import com.g8.utils.ReachabilityIndex;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ProjectGraphServiceTest {
+
+    private ProjectStore projectStore;
+    private ProjectGraphCache graphCache;
+    private ProjectGraphService projectGraphService;
+
+    @BeforeEach
+    void setUp() {
+        projectStore = mock(ProjectStore.class);
+        graphCache = new ProjectGraphCache(16);
+        projectGraphService = new ProjectGraphService(projectStore, graphCache);
+    }
+
+    @Test
+    void testGetDependencyGraph_loadsStoredGraphOnce() throws Exception {
+        when(projectStore.getGraph("project-1", DependencyGraph.NAME)).thenReturn(createGraph().toByteArray());
+
+        DependencyGraph first = projectGraphService.getDependencyGraph("project-1");
+        DependencyGraph second = projectGraphService.getDependencyGraph("project-1");
+
+        assertSame(first, second);
+        assertEquals(1, first.getEdgeCount());
+        verify(projectStore, times(1)).getGraph("project-1", DependencyGraph.NAME);
+    }
+
+    @Test
+    void testGetDependencyGraph_buildsGraphOfOlderProjects() throws Exception {
+        ClassInfo classA = createClass("org.example.A", "org.example.B");
+        ClassInfo classB = createClass("org.example.B", "");
+        when(projectStore.getInternalDependencies("project-1")).thenReturn(List.of(CompactGraphCodec.encode(List.of(classA, classB))));
+
+        DependencyGraph graph = projectGraphService.getDependencyGraph("project-1");
+
+        int node = graph.getNode("org.example.A");
+        assertEquals(1, graph.endOut(node) - graph.firstOut(node));
+        assertEquals("org.example.B", graph.getName(graph.outTarget(graph.firstOut(node))));
+    }
+
+    @Test
+    void testGetDependencyGraph_unknownProject() throws Exception {
+        when(projectStore.getInternalDependencies("missing")).thenReturn(List.of());
+
+        assertNull(projectGraphService.getDependencyGraph("missing"));
+    }
+
+    @Test
+    void testGetCycles_largestCycleFirst() throws Exception {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        for (String name : List.of("A", "B", "C", "D", "E", "F")) {
+            builder.addNode("org.example." + name);
+        }
+        // A <-> B, C -> D -> E -> C, F alone
+        builder.addEdge(0, 1, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(1, 0, DependencyGraph.INHERITS);
+        builder.addEdge(2, 3, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(3, 4, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(4, 2, DependencyGraph.IMPLEMENTS);
+        when(projectStore.getGraph("project-1", DependencyGraph.NAME)).thenReturn(builder.build().toByteArray());
+
+        JsonObject firstPage = JsonParser.parseString(projectGraphService.getCycles("project-1", DependencyGraph.ALL_EDGE_TYPES, 0, 1).get()).getAsJsonObject();
+        JsonObject secondPage = JsonParser.parseString(projectGraphService.getCycles("project-1", DependencyGraph.ALL_EDGE_TYPES, 1, 1).get()).getAsJsonObject();
+
+        assertEquals(6, firstPage.get("classCount").getAsInt());
+        assertEquals(2, firstPage.get("cycleCount").getAsInt());
+        assertEquals(5, firstPage.get("classesInCycles").getAsInt());
+        assertEquals(1, firstPage.get("nextOffset").getAsInt());
+        JsonObject largest = firstPage.getAsJsonArray("cycles").get(0).getAsJsonObject();
+        assertEquals(3, largest.get("size").getAsInt());
+        assertTrue(largest.getAsJsonArray("classes").contains(new JsonPrimitive("org.example.C")));
+        assertFalse(secondPage.has("nextOffset"));
+        assertEquals(2, secondPage.getAsJsonArray("cycles").get(0).getAsJsonObject().get("size").getAsInt());
+
+        // Without field types there are no cycles left
+        int withoutFieldTypes = DependencyGraph.ALL_EDGE_TYPES & ~(1 << DependencyGraph.FIELD_TYPE);
+        JsonObject filtered = JsonParser.parseString(projectGraphService.getCycles("project-1", withoutFieldTypes, 0, 10).get()).getAsJsonObject();
+        assertEquals(0, filtered.get("cycleCount").getAsInt());
+    }
+
+    @Test
+    void testGetComponent_ofClass() throws Exception {
+        when(projectStore.getGraph("project-1", DependencyGraph.NAME)).thenReturn(createGraph().toByteArray());
+
+        JsonObject component = JsonParser.parseString(projectGraphService.getComponent("project-1", "org.example.A", DependencyGraph.ALL_EDGE_TYPES).get()).getAsJsonObject();
+
+        assertEquals(1, component.get("size").getAsInt());
+        assertEquals("org.example.A", component.getAsJsonArray("classes").get(0).getAsString());
+        assertNull(projectGraphService.getComponent("project-1", "org.example.Missing", DependencyGraph.ALL_EDGE_TYPES).get());
+    }
+
+    @Test
+    void testGetImpact_transitiveDependents() throws Exception {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        for (String name : List.of("A", "B", "C", "D")) {
+            builder.addNode("org.example." + name);
+        }
+        // A -> B -> C, D -> C
+        builder.addEdge(0, 1, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(1, 2, DependencyGraph.INHERITS);
+        builder.addEdge(3, 2, DependencyGraph.FIELD_TYPE);
+        when(projectStore.getGraph("project-1", DependencyGraph.NAME)).thenReturn(builder.build().toByteArray());
+
+        JsonObject all = JsonParser.parseString(projectGraphService.getImpact("project-1", "org.example.C", true, 0,
+                DependencyGraph.ALL_EDGE_TYPES, 0, 2).get()).getAsJsonObject();
+        JsonObject direct = JsonParser.parseString(projectGraphService.getImpact("project-1", "org.example.C", true, 1,
+                DependencyGraph.ALL_EDGE_TYPES, 0, 10).get()).getAsJsonObject();
+        JsonObject dependencies = JsonParser.parseString(projectGraphService.getImpact("project-1", "org.example.A", false, 0,
+                DependencyGraph.ALL_EDGE_TYPES, 0, 10).get()).getAsJsonObject();
+
+        assertEquals(3, all.get("count").getAsInt());
+        assertEquals(2, all.getAsJsonArray("classes").size());
+        assertEquals(2, all.get("nextOffset").getAsInt());
+        assertEquals(2, direct.get("count").getAsInt());
+        assertFalse(direct.getAsJsonArray("classes").contains(new JsonPrimitive("org.example.A")));
+        assertEquals("dependencies", dependencies.get("direction").getAsString());
+        assertEquals(2, dependencies.get("count").getAsInt());
+        assertNull(projectGraphService.getImpact("project-1", "org.example.Missing", true, 0, DependencyGraph.ALL_EDGE_TYPES, 0, 10).get());
+        // The index is built once for repeated queries
+        assertNotNull(graphCache.get("project-1", "reachability:" + DependencyGraph.ALL_EDGE_TYPES, ReachabilityIndex.class));
+    }
+
+    @Test
+    void testGetNeighborhood_pagesWithCursor() throws Exception {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int focus = builder.addNode("org.example.core.Focus");
+        for (int i = 0; i < 5; i++) {
+            builder.addEdge(builder.addNode("org.example.core.Class" + i), focus, DependencyGraph.FIELD_TYPE);
+        }
+        builder.addEdge(focus, builder.addNode("org.example.web.Controller"), DependencyGraph.FIELD_TYPE);
+        when(projectStore.getGraph("project-1", DependencyGraph.NAME)).thenReturn(builder.build().toByteArray());
+
+        JsonObject firstPage = JsonParser.parseString(projectGraphService.getNeighborhood("project-1", "org.example.core.Focus", 1,
+                DependencyGraph.ALL_EDGE_TYPES, null, 0, 4).get()).getAsJsonObject();
+        int cursor = Integer.parseInt(firstPage.get("nextCursor").getAsString());
+        JsonObject secondPage = JsonParser.parseString(projectGraphService.getNeighborhood("project-1", "org.example.core.Focus", 1,
+                DependencyGraph.ALL_EDGE_TYPES, null, cursor, 4).get()).getAsJsonObject();
+        JsonObject corePackage = JsonParser.parseString(projectGraphService.getNeighborhood("project-1", "org.example.core.Focus", 1,
+                DependencyGraph.ALL_EDGE_TYPES, "org.example.core", 0, 10).get()).getAsJsonObject();
+
+        assertEquals(7, firstPage.get("nodeCount").getAsInt());
+        assertEquals(4, firstPage.getAsJsonArray("nodes").size());
+        assertEquals(3, firstPage.getAsJsonArray("edges").size());
+        assertEquals(3, secondPage.getAsJsonArray("nodes").size());
+        assertEquals(3, secondPage.getAsJsonArray("edges").size());
+        assertFalse(secondPage.has("nextCursor"));
+        assertEquals(6, corePackage.get("nodeCount").getAsInt());
+        assertNull(projectGraphService.getNeighborhood("project-1", "org.example.Missing", 1, DependencyGraph.ALL_EDGE_TYPES, null, 0, 10).get());
+    }
+
+    @Test
+    void testGetPackageView_aggregatesDependencies() throws Exception {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int controller = builder.addNode("org.example.web.Controller");
+        int service = builder.addNode("org.example.data.Service");
+        int entity = builder.addNode("org.example.data.jpa.Entity");
+        int application = builder.addNode("org.example.Application");
+        builder.addEdge(controller, service, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(controller, entity, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(application, controller, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(entity, application, DependencyGraph.FIELD_TYPE);
+        DependencyGraph graph = builder.build();
+        when(projectStore.getGraph("project-1", DependencyGraph.NAME)).thenReturn(graph.toByteArray());
+        when(projectStore.getGraph("project-1", PackageRollup.NAME)).thenReturn(PackageRollup.fromGraph(graph).toByteArray());
+
+        JsonObject example = JsonParser.parseString(projectGraphService.getPackageView("project-1", "org.example").get()).getAsJsonObject();
+        JsonObject top = JsonParser.parseString(projectGraphService.getPackageView("project-1", "").get()).getAsJsonObject();
+
+        assertEquals(4, example.get("classCount").getAsInt());
+        assertEquals(2, example.getAsJsonArray("packages").size());
+        assertEquals("org.example.Application", example.getAsJsonArray("classes").get(0).getAsString());
+        assertEquals(JsonParser.parseString("[{\"source\":\"org.example.web\",\"target\":\"org.example.data\",\"count\":2},"
+                + "{\"source\":\"org.example.data\",\"target\":\"org.example.Application\",\"count\":1},"
+                + "{\"source\":\"org.example.Application\",\"target\":\"org.example.web\",\"count\":1}]"), example.getAsJsonArray("edges"));
+        assertEquals("org", top.getAsJsonArray("packages").get(0).getAsJsonObject().get("name").getAsString());
+        assertEquals(0, top.getAsJsonArray("edges").size());
+        assertNull(projectGraphService.getPackageView("project-1", "org.missing").get());
+    }
+
+    private DependencyGraph createGraph() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int a = builder.addNode("org.example.A");
+        int b = builder.addNode("org.example.B");
+        builder.addEdge(a, b, DependencyGraph.INHERITS);
+        return builder.build();
+    }
+
+    private ClassInfo createClass(String name, String inherits) {
+        ClassInfo classInfo = new ClassInfo();
+        classInfo.setName(name);
+        classInfo.setInherits(inherits);
+        classInfo.setClassType("normalClass");
+        classInfo.setImplementationList(new ArrayList<>());
+        return classInfo;
+    }
+}
@@ -0,0 +1,143 @@
+package com.g8.storage;
+
+import com.g8.model.ClassInfo;
+import com.g8.utils.CompactGraphCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalProjectStoreTest {
+
+    @TempDir
+    Path storeDirectory;
+
+    private LocalProjectStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = new LocalProjectStore(storeDirectory.toString());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.close();
+    }
+
+    @Test
+    void testSaveProject_readsBackAllSections() throws Exception {
+        ClassInfo classInfo = new ClassInfo();
+        classInfo.setName("com.example.ClassA");
+        classInfo.setClassType("normalClass");
+        byte[] internalDependencies = CompactGraphCodec.encode(List.of(classInfo));
+
+        String projectId = store.saveProject(internalDependencies, List.of(Map.of("artifactId", "gson")), List.of("com.example.ClassA"));
+
+        assertEquals(1, store.getInternalDependencies(projectId).size());
+        assertArrayEquals(internalDependencies, store.getInternalDependencies(projectId).get(0));
+        assertEquals(List.of("com.example.ClassA"), store.getClassList(projectId));
+        assertEquals("gson", store.getExternalDependencies(projectId).get(0).get("artifactId"));
+    }
+
+    @Test
+    void testGetProject_unknownProject() throws Exception {
+        assertTrue(store.getInternalDependencies("missing").isEmpty());
+        assertNull(store.getClassList("missing"));
+        assertNull(store.getExternalDependencies("missing"));
+        assertNull(store.getCustomView("missing"));
+        assertTrue(store.getUserProjects("missing").isEmpty());
+    }
+
+    @Test
+    void testAddProjectToUser_andCreateCustomView() throws Exception {
+        store.addProjectToUser("project-1", "user-a");
+        store.addProjectToUser("project-2", "user-a");
+        store.addProjectToUser("project-2", "user-a");
+
+        String customViewId = store.createCustomView("user-a", "project-2", Map.of("layout", "grid"));
+
+        List<Map<String, Object>> projects = store.getUserProjects("user-a");
+        assertEquals(2, projects.size());
+        assertEquals("", projects.get(0).get("custom_view"));
+        assertEquals(customViewId, projects.get(1).get("custom_view"));
+        assertEquals(Map.of("layout", "grid"), store.getCustomView(customViewId).get("data"));
+    }
+
+    @Test
+    void testAddProjectToUser_keepsCustomViewOfLinkedProject() throws Exception {
+        store.addProjectToUser("project-1", "user-a");
+        String customViewId = store.createCustomView("user-a", "project-1", Map.of("layout", "grid"));
+
+        store.addProjectToUser("project-1", "user-a");
+
+        List<Map<String, Object>> projects = store.getUserProjects("user-a");
+        assertEquals(1, projects.size());
+        assertEquals(customViewId, projects.get(0).get("custom_view"));
+    }
+
+    @Test
+    void testCreateCustomView_userWithoutProjects() throws Exception {
+        assertEquals("", store.createCustomView("user-a", "project-1", Map.of("layout", "grid")));
+    }
+
+    @Test
+    void testSaveGraph_readsBack() throws Exception {
+        String projectId = store.saveProject(CompactGraphCodec.encode(List.of()), List.of(), List.of());
+        assertNull(store.getGraph(projectId, "callGraph"));
+
+        store.saveGraph(projectId, "callGraph", new byte[]{1, 0, 0});
+        store.saveGraph(projectId, "dependencyGraph", new byte[]{1, 0});
+
+        assertArrayEquals(new byte[]{1, 0, 0}, store.getGraph(projectId, "callGraph"));
+        assertArrayEquals(new byte[]{1, 0}, store.getGraph(projectId, "dependencyGraph"));
+    }
+
+    @Test
+    void testReopen_replaysTheLog() throws Exception {
+        String projectId = store.saveProject(CompactGraphCodec.encode(List.of()), List.of(), List.of("com.example.ClassA"));
+        store.addProjectToUser(projectId, "user-a");
+        store.close();
+
+        store = new LocalProjectStore(storeDirectory.toString());
+
+        assertEquals(List.of("com.example.ClassA"), store.getClassList(projectId));
+        assertEquals(projectId, store.getUserProjects("user-a").get(0).get("projectId"));
+    }
+
+    @Test
+    void testReopen_dropsIncompleteWrite() throws Exception {
+        String projectId = store.saveProject(CompactGraphCodec.encode(List.of()), List.of(), List.of("com.example.ClassA"));
+        store.close();
+
+        // Simulates a crash in the middle of writing the next frame
+        Path logPath = storeDirectory.resolve("projects.log");
+        long validSize;
+        try (FileChannel log = FileChannel.open(logPath, StandardOpenOption.WRITE)) {
+            validSize = log.size();
+            log.write(ByteBuffer.wrap(new byte[]{0, 0, 1, 0, 12, 34}), validSize);
+        }
+
+        store = new LocalProjectStore(storeDirectory.toString());
+
+        assertEquals(List.of("com.example.ClassA"), store.getClassList(projectId));
+        assertEquals(3, store.size());
+        try (FileChannel log = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            assertEquals(validSize, log.size());
+        }
+
+        // New writes go after the last complete frame
+        store.addProjectToUser(projectId, "user-a");
+        store.close();
+        store = new LocalProjectStore(storeDirectory.toString());
+        assertEquals(1, store.getUserProjects("user-a").size());
+    }
+}
@@ -0,0 +1,86 @@
+package com.g8.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CallGraphTest {
+
+    @Test
+    public void testBuild_groupsCallsByCaller() {
+        CallGraph.Builder builder = new CallGraph.Builder(100);
+        int run = builder.intern("org.example.A.run()V");
+        int help = builder.intern("org.example.B.help()V");
+        int check = builder.intern("org.example.B.check(I)Z");
+        builder.addCall(help, check);
+        builder.addCall(run, help);
+        builder.addCall(run, check);
+
+        CallGraph callGraph = builder.build();
+
+        assertEquals(3, callGraph.getMethodCount());
+        assertEquals(3, callGraph.getCallCount());
+        assertEquals("org.example.B.check(I)Z", callGraph.getMethod(check));
+        assertArrayEquals(new int[]{help, check}, callGraph.getCalls(run));
+        assertArrayEquals(new int[]{check}, callGraph.getCalls(help));
+        assertArrayEquals(new int[0], callGraph.getCalls(check));
+        assertFalse(callGraph.isTruncated());
+    }
+
+    @Test
+    public void testBuild_stopsAtMaxCalls() {
+        CallGraph.Builder builder = new CallGraph.Builder(2);
+        int a = builder.intern("a()V");
+        int b = builder.intern("b()V");
+        builder.addCall(a, b);
+        builder.addCall(b, a);
+        builder.addCall(a, a);
+
+        CallGraph callGraph = builder.build();
+
+        assertEquals(2, callGraph.getCallCount());
+        assertTrue(callGraph.isTruncated());
+    }
+
+    @Test
+    public void testAcceptsCall_falseOnceFull() {
+        CallGraph.Builder builder = new CallGraph.Builder(1);
+        assertTrue(builder.acceptsCall());
+        builder.addCall(builder.intern("a()V"), builder.intern("b()V"));
+
+        assertFalse(builder.acceptsCall());
+        assertTrue(builder.build().isTruncated());
+    }
+
+    @Test
+    public void testFromByteArray_readsWrittenGraph() {
+        // 100k methods with 20 calls each, the size of a large monolith
+        CallGraph.Builder builder = new CallGraph.Builder(Integer.MAX_VALUE);
+        int methodCount = 100_000;
+        for (int i = 0; i < methodCount; i++) {
+            builder.intern("org.example.pkg" + (i % 50) + ".Class" + (i / 10) + ".method" + i + "()V");
+        }
+        for (int i = 0; i < methodCount; i++) {
+            for (int j = 1; j <= 20; j++) {
+                builder.addCall(i, (i + j * 7919) % methodCount);
+            }
+        }
+        CallGraph callGraph = builder.build();
+
+        CallGraph read = CallGraph.fromByteArray(callGraph.toByteArray());
+
+        assertEquals(2_000_000, read.getCallCount());
+        assertEquals(callGraph.getMethodCount(), read.getMethodCount());
+        for (int i = 0; i < methodCount; i += 997) {
+            assertEquals(callGraph.getMethod(i), read.getMethod(i));
+            assertArrayEquals(callGraph.getCalls(i), read.getCalls(i));
+        }
+        // 4 bytes per call plus the names, well below a List<String> per method
+        assertTrue(read.getMemoryBytes() < 16 * 1024 * 1024);
+    }
+
+    @Test
+    public void testFromByteArray_rejectsOtherData() {
+        assertThrows(IllegalArgumentException.class, () -> CallGraph.fromByteArray(new byte[]{9, 0, 0}));
+    }
+}
@@ -155,4 +155,28 @@ public class ClassVisitorTest {
         // Test for single-dimensional array types
         assertEquals("int[]", classVisitor.getFieldType("[I"));
     }
+
+    @Test
+    public void testVisitMethod_recordsCallsWhenCollectingThem() {
+        MethodCalls methodCalls = new MethodCalls();
+        ClassVisitor callCollectingVisitor = new ClassVisitor(map, methodCalls);
+        callCollectingVisitor.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, className, null, superName, null);
+
+        // Constructors are not in the method list but their calls still count
+        callCollectingVisitor.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null)
+                .visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        callCollectingVisitor.visitMethod(Opcodes.ACC_PUBLIC, "run", "()V", null, null)
+                .visitMethodInsn(Opcodes.INVOKESTATIC, "com/example/Helper", "help", "()V", false);
+
+        assertEquals(1, callCollectingVisitor.getClassInfo().getMethodList().size());
+        assertEquals(2, methodCalls.getCallCount());
+        assertEquals("com.example.OuterClass.run()V", methodCalls.getMethodName(2));
+    }
+
+    @Test
+    public void testVisitMethod_withoutCallCollection() {
+        classVisitor.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, className, null, superName, null);
+
+        assertNull(classVisitor.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null));
+    }
 }
@@ -0,0 +1,120 @@
+package com.g8.utils;
+
+import com.g8.model.ClassInfo;
+import com.g8.model.FieldInfo;
+import com.g8.model.MethodInfo;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactGraphCodecTest {
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void testDecode_returnsEncodedClasses() {
+        List<ClassInfo> classes = createClasses(50);
+
+        List<ClassInfo> decoded = CompactGraphCodec.decode(CompactGraphCodec.encode(classes));
+
+        assertEquals(classes, decoded);
+    }
+
+    @Test
+    public void testWriteJson_matchesGsonOutput() throws Exception {
+        List<ClassInfo> classes = createClasses(50);
+
+        StringWriter output = new StringWriter();
+        CompactGraphCodec.writeJson(CompactGraphCodec.encode(classes), gson, gson.newJsonWriter(output));
+
+        assertEquals(gson.toJson(classes), output.toString());
+    }
+
+    @Test
+    public void testEncode_isSmallerThanJson() {
+        List<ClassInfo> classes = createClasses(500);
+
+        int compactSize = CompactGraphCodec.encode(classes).length;
+        int jsonSize = gson.toJson(classes).getBytes(StandardCharsets.UTF_8).length;
+
+        assertTrue(compactSize * 4 < jsonSize, "compact " + compactSize + " bytes, json " + jsonSize + " bytes");
+    }
+
+    @Test
+    public void testSplit_chunksDecodeToOriginalClasses() throws Exception {
+        List<ClassInfo> classes = createClasses(25);
+
+        List<byte[]> chunks = CompactGraphCodec.split(CompactGraphCodec.encode(classes), 10);
+
+        assertEquals(3, chunks.size());
+        assertEquals(5, CompactGraphCodec.decode(chunks.get(2)).size());
+        StringWriter output = new StringWriter();
+        CompactGraphCodec.writeJson(chunks, gson, gson.newJsonWriter(output));
+        assertEquals(gson.toJson(classes), output.toString());
+    }
+
+    @Test
+    public void testSplit_cutsChunksAtMaxBytes() throws Exception {
+        List<ClassInfo> classes = createClasses(200);
+        byte[] data = CompactGraphCodec.encode(classes);
+
+        List<byte[]> chunks = CompactGraphCodec.split(data, 1000, data.length / 5);
+
+        assertTrue(chunks.size() >= 5, chunks.size() + " chunks");
+        List<ClassInfo> decoded = new ArrayList<>();
+        for (byte[] chunk : chunks) {
+            assertTrue(chunk.length <= data.length / 5, chunk.length + " bytes");
+            decoded.addAll(CompactGraphCodec.decode(chunk));
+        }
+        assertEquals(classes, decoded);
+    }
+
+    @Test
+    public void testWriter_sizeMatchesEncodedData() {
+        CompactGraphCodec.Writer writer = new CompactGraphCodec.Writer();
+        assertEquals(writer.toByteArray().length, writer.getSize());
+
+        createClasses(300).forEach(writer::write);
+
+        assertEquals(writer.toByteArray().length, writer.getSize());
+    }
+
+    @Test
+    public void testEncode_emptyProject() {
+        byte[] data = CompactGraphCodec.encode(List.of());
+
+        assertFalse(new CompactGraphCodec.Reader(data).hasNext());
+        assertTrue(CompactGraphCodec.decode(data).isEmpty());
+    }
+
+    @Test
+    public void testReader_rejectsUnknownData() {
+        assertThrows(IllegalArgumentException.class, () -> new CompactGraphCodec.Reader(new byte[]{42}));
+    }
+
+    private List<ClassInfo> createClasses(int count) {
+        List<ClassInfo> classes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ClassInfo classInfo = new ClassInfo();
+            classInfo.setName("com.example.service.Service" + i);
+            classInfo.setInherits(i == 0 ? "" : "com.example.service.Service" + (i - 1));
+            classInfo.setClassType(i % 3 == 0 ? "interfaceClass" : "normalClass");
+            classInfo.setNested(i % 7 == 0);
+            classInfo.setControllerClass(i % 5 == 0);
+            classInfo.getAnnotations().add("@org.springframework.stereotype.Service");
+            classInfo.getImplementationList().add("java.io.Serializable");
+            classInfo.getVariableList().add(new FieldInfo("repository", "com.example.repository.Repository", new ArrayList<>(List.of("@org.springframework.beans.factory.annotation.Autowired")), false, true));
+            classInfo.getVariableList().add(new FieldInfo("count" + i, "int", new ArrayList<>(), true, false));
+            classInfo.getMethodList().add(new MethodInfo("handle", new ArrayList<>(List.of("@org.springframework.web.bind.annotation.GetMapping(value = /items)")), false));
+            classInfo.getNestedClassesList().add("com.example.service.Inner" + i);
+            classes.add(classInfo);
+        }
+        return classes;
+    }
+}
@@ -0,0 +1,117 @@
+package com.g8.utils;
+
+import com.g8.model.ClassInfo;
+import com.g8.model.FieldInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DependencyGraphTest {
+
+    @Test
+    public void testFromClasses_resolvesAllEdgeTypes() {
+        ClassInfo service = createClass("org.example.Service", "org.example.Base", List.of("org.example.Api", "java.io.Serializable"));
+        service.getVariableList().add(new FieldInfo("repositories", "org.example.Repository[]", new ArrayList<>(), false, false));
+        service.getVariableList().add(new FieldInfo("fallback", "org.example.Repository", new ArrayList<>(), false, false));
+        service.getVariableList().add(new FieldInfo("name", "java.lang.String", new ArrayList<>(), false, false));
+        service.getVariableList().add(new FieldInfo("config", "org.example.Service$Config", new ArrayList<>(), false, false));
+        service.setNestedClassesList(List.of("org.example.Config"));
+        ClassInfo config = createClass("org.example.Config", "", List.of());
+        config.setNested(true);
+
+        DependencyGraph graph = DependencyGraph.fromClasses(List.of(service, createClass("org.example.Base", "", List.of()),
+                createClass("org.example.Api", "", List.of()), createClass("org.example.Repository", "", List.of()), config));
+
+        int node = graph.getNode("org.example.Service");
+        List<String> edges = new ArrayList<>();
+        for (int edge = graph.firstOut(node); edge < graph.endOut(node); edge++) {
+            edges.add(DependencyGraph.EDGE_TYPES.get(graph.outType(edge)) + " " + graph.getName(graph.outTarget(edge)));
+        }
+        // Rows are sorted by node id, the nested class is referenced through its binary name once
+        assertEquals(List.of("inherits org.example.Base", "implements org.example.Api", "fieldType org.example.Repository",
+                "nests org.example.Config", "fieldType org.example.Config"), edges);
+        assertEquals(5, graph.getEdgeCount());
+        assertEquals(-1, graph.getNode("java.lang.String"));
+    }
+
+    @Test
+    public void testReverseEdges_matchForwardEdges() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        for (int i = 0; i < 50; i++) {
+            builder.addNode("Class" + i);
+        }
+        for (int i = 0; i < 50; i++) {
+            builder.addEdge(i, (i * 7 + 3) % 50, DependencyGraph.FIELD_TYPE);
+            builder.addEdge(i, (i * 11 + 5) % 50, DependencyGraph.INHERITS);
+            builder.addEdge(i, (i * 7 + 3) % 50, DependencyGraph.FIELD_TYPE);
+        }
+        DependencyGraph graph = builder.build();
+
+        int reverseEdges = 0;
+        for (int target = 0; target < graph.getNodeCount(); target++) {
+            int previous = -1;
+            for (int edge = graph.firstIn(target); edge < graph.endIn(target); edge++) {
+                int source = graph.inSource(edge);
+                assertTrue(source >= previous);
+                assertTrue(hasEdge(graph, source, target, graph.inType(edge)));
+                previous = source;
+                reverseEdges++;
+            }
+        }
+        assertEquals(graph.getEdgeCount(), reverseEdges);
+        // Duplicates are stored once
+        assertEquals(100, graph.getEdgeCount());
+    }
+
+    @Test
+    public void testFromByteArray_readsWrittenGraph() {
+        // 100k classes with 10 dependencies each
+        int nodeCount = 100_000;
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        for (int i = 0; i < nodeCount; i++) {
+            builder.addNode("org.example.pkg" + (i % 100) + ".Class" + i);
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            for (int j = 1; j <= 10; j++) {
+                builder.addEdge(i, (i + j * 9973) % nodeCount, j % 4);
+            }
+        }
+        DependencyGraph graph = builder.build();
+
+        DependencyGraph read = DependencyGraph.fromByteArray(graph.toByteArray());
+
+        assertEquals(1_000_000, read.getEdgeCount());
+        for (int node = 0; node < nodeCount; node += 101) {
+            assertEquals(graph.getName(node), read.getName(node));
+            assertEquals(node, read.getNode(read.getName(node)));
+            assertEquals(graph.endOut(node) - graph.firstOut(node), read.endOut(node) - read.firstOut(node));
+            assertEquals(graph.endIn(node) - graph.firstIn(node), read.endIn(node) - read.firstIn(node));
+            for (int edge = graph.firstOut(node); edge < graph.endOut(node); edge++) {
+                assertEquals(graph.outTarget(edge), read.outTarget(edge));
+                assertEquals(graph.outType(edge), read.outType(edge));
+            }
+        }
+        assertTrue(read.getMemoryBytes() < 40L * 1024 * 1024);
+    }
+
+    private boolean hasEdge(DependencyGraph graph, int source, int target, int type) {
+        for (int edge = graph.firstOut(source); edge < graph.endOut(source); edge++) {
+            if (graph.outTarget(edge) == target && graph.outType(edge) == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ClassInfo createClass(String name, String inherits, List<String> implementations) {
+        ClassInfo classInfo = new ClassInfo();
+        classInfo.setName(name);
+        classInfo.setInherits(inherits);
+        classInfo.setClassType("normalClass");
+        classInfo.setImplementationList(new ArrayList<>(implementations));
+        return classInfo;
+    }
+}
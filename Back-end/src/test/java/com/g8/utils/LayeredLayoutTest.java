@@ -0,0 +1,89 @@
+package com.g8.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LayeredLayoutTest {
+
+    @Test
+    public void testCompute_placesClassesAboveTheirDependencies() {
+        // Controller -> Service -> Repository -> Entity, Controller -> Entity, Service <-> Helper
+        DependencyGraph graph = createGraph(new String[]{"Controller", "Service", "Repository", "Entity", "Helper"},
+                new int[][]{{0, 1}, {1, 2}, {2, 3}, {0, 3}, {1, 4}, {4, 1}});
+
+        Map<String, int[]> positions = positions(graph, LayeredLayout.compute(graph, DependencyGraph.ALL_EDGE_TYPES, node -> true));
+
+        assertEquals(0, positions.get("Controller")[1]);
+        int layerHeight = LayeredLayout.NODE_HEIGHT + LayeredLayout.RANK_SEPARATION;
+        assertEquals(layerHeight, positions.get("Service")[1]);
+        // Classes of a cycle share a layer
+        assertEquals(layerHeight, positions.get("Helper")[1]);
+        assertEquals(2 * layerHeight, positions.get("Repository")[1]);
+        assertEquals(3 * layerHeight, positions.get("Entity")[1]);
+        assertEquals(LayeredLayout.NODE_WIDTH + LayeredLayout.NODE_SEPARATION,
+                Math.abs(positions.get("Service")[0] - positions.get("Helper")[0]));
+    }
+
+    @Test
+    public void testCompute_onlyLaysOutTheView() {
+        DependencyGraph graph = createGraph(new String[]{"A", "B", "C"}, new int[][]{{0, 1}, {1, 2}});
+
+        LayeredLayout filtered = LayeredLayout.compute(graph, DependencyGraph.ALL_EDGE_TYPES, node -> node != 1);
+        LayeredLayout inheritance = LayeredLayout.compute(graph, 1 << DependencyGraph.INHERITS, node -> true);
+
+        assertEquals(2, filtered.size());
+        assertEquals(filtered.getY(0), filtered.getY(1));
+        assertEquals(3, inheritance.size());
+        assertEquals(0, inheritance.getY(2));
+    }
+
+    @Test
+    public void testCompute_barycenterOrdersLayersToAvoidCrossings() {
+        // A -> D and B -> C with D laid out before C at first, the sweeps swap them
+        DependencyGraph graph = createGraph(new String[]{"A", "B", "D", "C"}, new int[][]{{0, 3}, {1, 2}});
+
+        Map<String, int[]> positions = positions(graph, LayeredLayout.compute(graph, DependencyGraph.ALL_EDGE_TYPES, node -> true));
+
+        assertTrue(positions.get("A")[0] < positions.get("B")[0]);
+        assertTrue(positions.get("C")[0] < positions.get("D")[0]);
+    }
+
+    @Test
+    public void testFromByteArray_readsWrittenLayout() {
+        DependencyGraph graph = createGraph(new String[]{"A", "B", "C"}, new int[][]{{0, 1}, {0, 2}});
+        LayeredLayout layout = LayeredLayout.compute(graph, DependencyGraph.ALL_EDGE_TYPES, node -> true);
+
+        LayeredLayout read = LayeredLayout.fromByteArray(layout.toByteArray());
+
+        assertEquals(positions(graph, layout).keySet(), positions(graph, read).keySet());
+        for (int index = 0; index < layout.size(); index++) {
+            assertEquals(layout.getNode(index), read.getNode(index));
+            assertEquals(layout.getX(index), read.getX(index));
+            assertEquals(layout.getY(index), read.getY(index));
+        }
+        assertThrows(IllegalArgumentException.class, () -> LayeredLayout.fromByteArray(new byte[]{99, 0}));
+    }
+
+    private Map<String, int[]> positions(DependencyGraph graph, LayeredLayout layout) {
+        Map<String, int[]> positions = new HashMap<>();
+        for (int index = 0; index < layout.size(); index++) {
+            positions.put(graph.getName(layout.getNode(index)), new int[]{layout.getX(index), layout.getY(index)});
+        }
+        return positions;
+    }
+
+    private DependencyGraph createGraph(String[] names, int[][] edges) {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        for (String name : names) {
+            builder.addNode(name);
+        }
+        for (int[] edge : edges) {
+            builder.addEdge(edge[0], edge[1], DependencyGraph.FIELD_TYPE);
+        }
+        return builder.build();
+    }
+}
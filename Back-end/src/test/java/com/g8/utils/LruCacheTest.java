@@ -0,0 +1,96 @@
+package com.g8.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LruCacheTest {
+
+    @Test
+    public void testGet_countsHitsAndMisses() {
+        LruCache<String, String> cache = new LruCache<>(2);
+        cache.put("a", "1");
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testPut_evictsLeastRecentlyUsed() {
+        LruCache<String, String> cache = new LruCache<>(2);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        // Reading "a" makes "b" the least recently used entry
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+    }
+
+    @Test
+    public void testPut_disabledCacheStoresNothing() {
+        LruCache<String, String> cache = new LruCache<>(0);
+        cache.put("a", "1");
+
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testRemove() {
+        LruCache<String, String> cache = new LruCache<>(2);
+        cache.put("a", "1");
+        cache.remove("a");
+
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testPut_evictsByWeight() {
+        LruCache<String, String> cache = new LruCache<>(10, String::length, 0);
+        cache.put("a", "12345");
+        cache.put("b", "1234");
+        cache.put("c", "123");
+
+        // 5 + 4 + 3 is over the limit, so the eldest entry goes
+        assertNull(cache.get("a"));
+        assertEquals(7, cache.getWeight());
+        assertEquals(1, cache.getEvictions());
+
+        // Heavier than the whole cache, never stored
+        cache.put("d", "12345678901");
+        assertNull(cache.get("d"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testGet_expiredEntryIsAMiss() throws Exception {
+        LruCache<String, String> cache = new LruCache<>(10, value -> 1, 20);
+        cache.put("a", "1");
+        Thread.sleep(40);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testRemoveIf() {
+        LruCache<String, String> cache = new LruCache<>(10, String::length, 0);
+        cache.put("p1:a", "1");
+        cache.put("p1:b", "22");
+        cache.put("p2:a", "333");
+
+        cache.removeIf(key -> key.startsWith("p1:"));
+
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.getWeight());
+        assertEquals("333", cache.get("p2:a"));
+    }
+}
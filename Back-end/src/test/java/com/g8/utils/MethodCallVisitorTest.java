@@ -0,0 +1,48 @@
+package com.g8.utils;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MethodCallVisitorTest {
+
+    @Test
+    public void testVisitMethodInsn_recordsCallOnce() {
+        MethodCalls methodCalls = new MethodCalls();
+        int caller = methodCalls.method("org/example/A", "run", "()V");
+        MethodCallVisitor visitor = new MethodCallVisitor(methodCalls, caller);
+
+        visitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "org/example/B", "help", "()V", false);
+        visitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "org/example/B", "help", "()V", false);
+        visitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "[Ljava/lang/Object;", "clone", "()Ljava/lang/Object;", false);
+
+        List<String> calls = collectCalls(methodCalls);
+        assertEquals(List.of("org.example.A.run()V -> org.example.B.help()V"), calls);
+    }
+
+    @Test
+    public void testVisitInvokeDynamicInsn_recordsImplementationMethod() {
+        MethodCalls methodCalls = new MethodCalls();
+        int caller = methodCalls.method("org/example/A", "run", "()V");
+        MethodCallVisitor visitor = new MethodCallVisitor(methodCalls, caller);
+
+        Handle metafactory = new Handle(Opcodes.H_INVOKESTATIC, "java/lang/invoke/LambdaMetafactory", "metafactory",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;", false);
+        Handle implementation = new Handle(Opcodes.H_INVOKESTATIC, "org/example/A", "lambda$run$0", "()V", false);
+        visitor.visitInvokeDynamicInsn("run", "()Ljava/lang/Runnable;", metafactory, Type.getType("()V"), implementation, Type.getType("()V"));
+
+        assertEquals(List.of("org.example.A.run()V -> org.example.A.lambda$run$0()V"), collectCalls(methodCalls));
+    }
+
+    private List<String> collectCalls(MethodCalls methodCalls) {
+        List<String> calls = new ArrayList<>();
+        methodCalls.forEachCall((caller, callee) -> calls.add(methodCalls.getMethodName(caller) + " -> " + methodCalls.getMethodName(callee)));
+        return calls;
+    }
+}
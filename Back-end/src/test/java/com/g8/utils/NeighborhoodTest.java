@@ -0,0 +1,74 @@
+package com.g8.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NeighborhoodTest {
+
+    // 0 -> 1 -> 2 -> 3, 4 -> 1, 1 -> 5 (inherits)
+    private final DependencyGraph graph = createGraph();
+
+    @Test
+    public void testCollect_withinRadiusInBothDirections() {
+        Neighborhood neighborhood = Neighborhood.collect(graph, 1, 1, DependencyGraph.ALL_EDGE_TYPES, node -> true, 100);
+
+        assertEquals(5, neighborhood.size());
+        assertEquals(1, neighborhood.getNode(0));
+        assertEquals(0, neighborhood.getDistance(0));
+        Set<Integer> nodes = new HashSet<>();
+        for (int position = 1; position < neighborhood.size(); position++) {
+            nodes.add(neighborhood.getNode(position));
+            assertEquals(1, neighborhood.getDistance(position));
+        }
+        assertEquals(Set.of(0, 2, 4, 5), nodes);
+        assertFalse(neighborhood.isTruncated());
+
+        assertEquals(6, Neighborhood.collect(graph, 1, 2, DependencyGraph.ALL_EDGE_TYPES, node -> true, 100).size());
+    }
+
+    @Test
+    public void testCollect_appliesFilters() {
+        Neighborhood fieldTypes = Neighborhood.collect(graph, 1, 1, 1 << DependencyGraph.FIELD_TYPE, node -> true, 100);
+        Neighborhood filtered = Neighborhood.collect(graph, 1, 3, DependencyGraph.ALL_EDGE_TYPES, node -> node != 2, 100);
+        Neighborhood truncated = Neighborhood.collect(graph, 1, 3, DependencyGraph.ALL_EDGE_TYPES, node -> true, 3);
+
+        assertEquals(4, fieldTypes.size());
+        // Class 3 is only reachable through the filtered class 2
+        assertEquals(4, filtered.size());
+        assertEquals(3, truncated.size());
+        assertTrue(truncated.isTruncated());
+    }
+
+    @Test
+    public void testForEachEdge_everyEdgeOnce() throws Exception {
+        Neighborhood neighborhood = Neighborhood.collect(graph, 2, 5, DependencyGraph.ALL_EDGE_TYPES, node -> true, 100);
+
+        List<String> edges = new ArrayList<>();
+        for (int position = 0; position < neighborhood.size(); position++) {
+            neighborhood.forEachEdge(position, (source, target, type) -> edges.add(source + "->" + target + ":" + type));
+        }
+
+        assertEquals(graph.getEdgeCount(), edges.size());
+        assertEquals(edges.size(), new HashSet<>(edges).size());
+        assertTrue(edges.contains("1->5:" + DependencyGraph.INHERITS));
+    }
+
+    private static DependencyGraph createGraph() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        for (int node = 0; node < 6; node++) {
+            builder.addNode("org.example.Class" + node);
+        }
+        builder.addEdge(0, 1, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(1, 2, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(2, 3, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(4, 1, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(1, 5, DependencyGraph.INHERITS);
+        return builder.build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.g8.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackageRollupTest {
+
+    @Test
+    public void testFromGraph_buildsPackageTree() {
+        PackageRollup rollup = PackageRollup.fromGraph(createGraph());
+
+        int example = rollup.getPackage("org.example");
+        int web = rollup.getPackage("org.example.web");
+        assertEquals(List.of("", "org", "org.example", "org.example.web", "org.example.data", "org.example.data.jpa"), packageNames(rollup));
+        assertEquals(5, rollup.getTotalClassCount(0));
+        assertEquals(5, rollup.getTotalClassCount(example));
+        assertEquals(1, rollup.getClassCount(example));
+        assertEquals(3, rollup.getTotalClassCount(rollup.getPackage("org.example.data")));
+        assertEquals(2, rollup.endChild(example) - rollup.firstChild(example));
+        assertEquals(web, rollup.getChildOf(example, web));
+        assertEquals(rollup.getPackage("org.example.data"), rollup.getChildOf(example, rollup.getPackage("org.example.data.jpa")));
+        assertEquals(-1, rollup.getChildOf(example, example));
+        assertEquals(-1, rollup.getChildOf(web, rollup.getPackage("org.example.data")));
+        assertEquals(-1, rollup.getPackage("org.missing"));
+    }
+
+    @Test
+    public void testFromGraph_countsDependenciesBetweenPackages() {
+        PackageRollup rollup = PackageRollup.fromGraph(createGraph());
+
+        List<String> edges = new ArrayList<>();
+        for (int edge = 0; edge < rollup.getEdgeCount(); edge++) {
+            edges.add(rollup.getName(rollup.getEdgeSource(edge)) + " -> " + rollup.getName(rollup.getEdgeTarget(edge))
+                    + " " + rollup.getEdgeWeight(edge));
+        }
+
+        // Dependencies inside a package are counted as well
+        assertEquals(List.of("org.example.web -> org.example.data 2", "org.example.data -> org.example.data 1", "org.example.data -> org.example.data.jpa 1",
+                "org.example.data.jpa -> org.example 1"), edges);
+    }
+
+    @Test
+    public void testFromByteArray_readsWrittenRollup() {
+        PackageRollup rollup = PackageRollup.fromGraph(createGraph());
+
+        PackageRollup read = PackageRollup.fromByteArray(rollup.toByteArray());
+
+        assertEquals(packageNames(rollup), packageNames(read));
+        assertEquals(rollup.getEdgeCount(), read.getEdgeCount());
+        for (int id = 0; id < rollup.getPackageCount(); id++) {
+            assertEquals(rollup.getParent(id), read.getParent(id));
+            assertEquals(rollup.getTotalClassCount(id), read.getTotalClassCount(id));
+        }
+        for (int node = 0; node < 5; node++) {
+            assertEquals(rollup.getClassPackage(node), read.getClassPackage(node));
+        }
+    }
+
+    private List<String> packageNames(PackageRollup rollup) {
+        List<String> names = new ArrayList<>();
+        for (int id = 0; id < rollup.getPackageCount(); id++) {
+            names.add(rollup.getName(id));
+        }
+        return names;
+    }
+
+    private DependencyGraph createGraph() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        int controller = builder.addNode("org.example.web.Controller");
+        int service = builder.addNode("org.example.data.Service");
+        int repository = builder.addNode("org.example.data.Repository");
+        int entity = builder.addNode("org.example.data.jpa.Entity");
+        int base = builder.addNode("org.example.Base");
+        builder.addEdge(controller, service, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(controller, repository, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(service, repository, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(repository, entity, DependencyGraph.FIELD_TYPE);
+        builder.addEdge(entity, base, DependencyGraph.INHERITS);
+        return builder.build();
+    }
+}
@@ -0,0 +1,95 @@
+package com.g8.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReachabilityIndexTest {
+
+    @Test
+    public void testReachable_dependenciesAndDependents() {
+        // 0 -> 1 -> 2 <-> 3 -> 4, 5 -> 3
+        DependencyGraph graph = createGraph(6, new int[][]{{0, 1}, {1, 2}, {2, 3}, {3, 2}, {3, 4}, {5, 3}});
+
+        ReachabilityIndex index = ReachabilityIndex.build(graph, DependencyGraph.ALL_EDGE_TYPES, Long.MAX_VALUE);
+
+        assertTrue(index.isIndexed(false));
+        assertTrue(index.isIndexed(true));
+        assertArrayEquals(new int[]{1, 2, 3, 4}, sorted(index.reachable(0, false)));
+        assertArrayEquals(new int[]{2, 4}, sorted(index.reachable(3, false)));
+        assertArrayEquals(new int[]{0, 1, 2, 5}, sorted(index.reachable(3, true)));
+        assertArrayEquals(new int[]{}, index.reachable(4, false));
+    }
+
+    @Test
+    public void testReachable_withDepthLimit() {
+        DependencyGraph graph = createGraph(6, new int[][]{{0, 1}, {1, 2}, {2, 3}, {3, 2}, {3, 4}, {5, 3}});
+        ReachabilityIndex index = ReachabilityIndex.build(graph, DependencyGraph.ALL_EDGE_TYPES, Long.MAX_VALUE);
+
+        assertArrayEquals(new int[]{1}, index.reachable(0, false, 1));
+        assertArrayEquals(new int[]{1, 2, 3}, index.reachable(0, false, 3));
+        assertArrayEquals(new int[]{2, 5, 1}, index.reachable(3, true, 2));
+    }
+
+    @Test
+    public void testReachable_matchesGraphWalkOverMemoryLimit() {
+        // Random DAG with a few cycles, once with bitsets and once without
+        int nodeCount = 2000;
+        Random random = new Random(7);
+        int[][] edges = new int[8000][];
+        for (int i = 0; i < edges.length; i++) {
+            int source = random.nextInt(nodeCount);
+            int target = i % 100 == 0 ? random.nextInt(nodeCount) : random.nextInt(source + 1);
+            edges[i] = new int[]{source, target};
+        }
+        DependencyGraph graph = createGraph(nodeCount, edges);
+
+        ReachabilityIndex indexed = ReachabilityIndex.build(graph, DependencyGraph.ALL_EDGE_TYPES, Long.MAX_VALUE);
+        ReachabilityIndex walked = ReachabilityIndex.build(graph, DependencyGraph.ALL_EDGE_TYPES, 0);
+
+        assertFalse(walked.isIndexed(false));
+        assertFalse(walked.isIndexed(true));
+        for (int node = 0; node < nodeCount; node += 7) {
+            assertArrayEquals(sorted(indexed.reachable(node, false, Integer.MAX_VALUE)), sorted(indexed.reachable(node, false)));
+            assertArrayEquals(sorted(indexed.reachable(node, true, Integer.MAX_VALUE)), sorted(indexed.reachable(node, true)));
+            assertArrayEquals(indexed.reachable(node, false), walked.reachable(node, false));
+            assertArrayEquals(indexed.reachable(node, true), walked.reachable(node, true));
+        }
+    }
+
+    @Test
+    public void testReachable_followsOnlyGivenEdgeTypes() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        builder.addNode("A");
+        builder.addNode("B");
+        builder.addNode("C");
+        builder.addEdge(0, 1, DependencyGraph.INHERITS);
+        builder.addEdge(1, 2, DependencyGraph.FIELD_TYPE);
+        DependencyGraph graph = builder.build();
+
+        ReachabilityIndex index = ReachabilityIndex.build(graph, 1 << DependencyGraph.INHERITS, Long.MAX_VALUE);
+
+        assertArrayEquals(new int[]{1}, index.reachable(0, false));
+        assertArrayEquals(new int[]{1}, index.reachable(0, false, 5));
+    }
+
+    private int[] sorted(int[] nodes) {
+        int[] copy = nodes.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    private DependencyGraph createGraph(int nodeCount, int[][] edges) {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        for (int node = 0; node < nodeCount; node++) {
+            builder.addNode("Class" + node);
+        }
+        for (int[] edge : edges) {
+            builder.addEdge(edge[0], edge[1], DependencyGraph.FIELD_TYPE);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,106 @@
+package com.g8.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StronglyConnectedComponentsTest {
+
+    @Test
+    public void testCompute_findsCycles() {
+        // A -> B -> C -> A, C -> D, D -> E -> D, F alone
+        DependencyGraph graph = createGraph(6, new int[][]{{0, 1}, {1, 2}, {2, 0}, {2, 3}, {3, 4}, {4, 3}}, DependencyGraph.FIELD_TYPE);
+
+        StronglyConnectedComponents components = StronglyConnectedComponents.compute(graph, DependencyGraph.ALL_EDGE_TYPES);
+
+        assertEquals(3, components.getComponentCount());
+        assertEquals(components.getComponent(0), components.getComponent(1));
+        assertEquals(components.getComponent(0), components.getComponent(2));
+        assertEquals(components.getComponent(3), components.getComponent(4));
+        assertNotEquals(components.getComponent(0), components.getComponent(3));
+        assertEquals(3, components.getSize(components.getComponent(0)));
+        assertEquals(1, components.getSize(components.getComponent(5)));
+        // Edges go from higher to lower component ids
+        assertTrue(components.getComponent(2) > components.getComponent(3));
+
+        Set<Integer> members = new HashSet<>();
+        int component = components.getComponent(0);
+        for (int position = components.firstNode(component); position < components.firstNode(component) + components.getSize(component); position++) {
+            members.add(components.getNode(position));
+        }
+        assertEquals(Set.of(0, 1, 2), members);
+    }
+
+    @Test
+    public void testCompute_ignoresFilteredEdgeTypes() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        builder.addNode("A");
+        builder.addNode("B");
+        builder.addEdge(0, 1, DependencyGraph.INHERITS);
+        builder.addEdge(1, 0, DependencyGraph.FIELD_TYPE);
+        DependencyGraph graph = builder.build();
+
+        assertEquals(1, StronglyConnectedComponents.compute(graph, DependencyGraph.ALL_EDGE_TYPES).getComponentCount());
+        assertEquals(2, StronglyConnectedComponents.compute(graph, 1 << DependencyGraph.INHERITS).getComponentCount());
+    }
+
+    @Test
+    public void testCompute_longChainsDoNotOverflowTheStack() {
+        // One cycle through 200k classes, a recursive search would be 200k frames deep
+        int nodeCount = 200_000;
+        int[][] edges = new int[nodeCount][];
+        for (int node = 0; node < nodeCount; node++) {
+            edges[node] = new int[]{node, (node + 1) % nodeCount};
+        }
+        DependencyGraph graph = createGraph(nodeCount, edges, DependencyGraph.INHERITS);
+
+        StronglyConnectedComponents components = StronglyConnectedComponents.compute(graph, DependencyGraph.ALL_EDGE_TYPES);
+
+        assertEquals(1, components.getComponentCount());
+        assertEquals(nodeCount, components.getSize(0));
+    }
+
+    @Test
+    public void testCompute_componentOrderIsReverseTopological() {
+        // 100k classes with 10 dependencies each, mostly to classes with a lower id
+        int nodeCount = 100_000;
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        for (int node = 0; node < nodeCount; node++) {
+            builder.addNode("Class" + node);
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            for (int j = 1; j <= 10; j++) {
+                int target = j == 10 && node % 1000 == 0 ? (node + 500) % nodeCount : (node + nodeCount - j * 37) % nodeCount;
+                builder.addEdge(node, target, DependencyGraph.FIELD_TYPE);
+            }
+        }
+        DependencyGraph graph = builder.build();
+
+        StronglyConnectedComponents components = StronglyConnectedComponents.compute(graph, DependencyGraph.ALL_EDGE_TYPES);
+
+        int total = 0;
+        for (int component = 0; component < components.getComponentCount(); component++) {
+            total += components.getSize(component);
+        }
+        assertEquals(nodeCount, total);
+        for (int node = 0; node < nodeCount; node++) {
+            for (int edge = graph.firstOut(node); edge < graph.endOut(node); edge++) {
+                assertTrue(components.getComponent(node) >= components.getComponent(graph.outTarget(edge)));
+            }
+        }
+    }
+
+    private DependencyGraph createGraph(int nodeCount, int[][] edges, int type) {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder();
+        for (int node = 0; node < nodeCount; node++) {
+            builder.addNode("Class" + node);
+        }
+        for (int[] edge : edges) {
+            builder.addEdge(edge[0], edge[1], type);
+        }
+        return builder.build();
+    }
+}
@@ -95,6 +95,49 @@ const getLayoutedElements = (nodes: any, edges: any) => {
   return { nodes, edges };
 };
 
+// edge types of the server layout, the ones drawn on the whiteboard
+const layoutEdgeTypes = "inherits,implements,fieldType";
+const layoutPageSize = 10000;
+// the layout of a large project takes a while on the first request, dagre is used if it takes longer
+const layoutPollAttempts = 30;
+
+// positions of the classes computed and stored by the backend, polled while the layout is being computed.
+// null when there is no current project or the layout can't be retrieved
+const getServerLayout = async (): Promise<Map<string, Position> | null> => {
+  const projectId = localStorage.getItem("current-projectId");
+  if (!projectId) {
+    return null;
+  }
+  const positions = new Map<string, Position>();
+  let offset: number | undefined = 0;
+  try {
+    for (let attempt = 0; offset !== undefined; ) {
+      const response: any = await axios.get(`${server_url}/graph/layout`, {
+        headers: {
+          "Authorization": localStorage.getItem("soft-viz-tokenID"),
+          "project_id": projectId,
+        },
+        params: { edgeTypes: layoutEdgeTypes, offset: offset, limit: layoutPageSize },
+      });
+      if (response.status === 202) {
+        if (++attempt >= layoutPollAttempts) {
+          return null;
+        }
+        await new Promise((resolve) => setTimeout(resolve, 1000));
+        continue;
+      }
+      response.data.nodes.forEach((node: any) => {
+        positions.set(node.name, { x: node.x, y: node.y });
+      });
+      offset = response.data.nextOffset;
+    }
+  } catch (error) {
+    console.error("Failed to retrieve the layout:", error);
+    return null;
+  }
+  return positions;
+};
+
 const GraphWhiteBoard: React.FC<GraphWhiteBoardProps> = ({
   jsonData,
   alignment,
@@ -135,7 +178,7 @@ const GraphWhiteBoard: React.FC<GraphWhiteBoardProps> = ({
         id: classItem.name,
         type: "default",
         data: { label: classItem.name.split(".").pop()! },
-        position: { x: 0, y: 0 }, // temporary position, will be set by dagre layout
+        position: { x: 0, y: 0 }, // temporary position, will be set by the server layout or dagre
       });
 
       // creating inheritance edges
@@ -193,9 +236,26 @@ const GraphWhiteBoard: React.FC<GraphWhiteBoardProps> = ({
         }
       });
     });
-    const layoutedElements = getLayoutedElements(nodesList, edgesList);
-    setNodes([...layoutedElements.nodes]);
-    setEdges([...layoutedElements.edges]);
+
+    // positions come from the server, dagre only runs when they can't be retrieved or miss some classes
+    let cancelled = false;
+    getServerLayout().then((positions) => {
+      if (cancelled) {
+        return;
+      }
+      const layoutedElements =
+        positions && nodesList.every((node) => positions.has(node.id))
+          ? {
+              nodes: nodesList.map((node) => ({ ...node, position: positions.get(node.id)! })),
+              edges: edgesList,
+            }
+          : getLayoutedElements(nodesList, edgesList);
+      setNodes([...layoutedElements.nodes]);
+      setEdges([...layoutedElements.edges]);
+    });
+    return () => {
+      cancelled = true;
+    };
   }, [isCustomView, jsonData, setNodes, setEdges]);
 
   // filter change handler (updating node colors)
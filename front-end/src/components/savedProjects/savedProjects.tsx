@@ -77,31 +77,17 @@ const SavedProjects: React.FC<SavedProjectsProps> = ({ user }) => {
     try {
       const idToken = await user.getIdToken();
       localStorage.setItem('current-projectId', projectId);
-      const [internalDependencies, externalDependencies, classList] = await Promise.all([
-        axios.get(`${server_url}/initialize/intDep`, {
-          headers: {
-            'Authorization': idToken,
-            'project_id': projectId,
-          },
-        }),
-        axios.get(`${server_url}/initialize/extDep`, {
-          headers: {
-            'Authorization': idToken,
-            'project_id': projectId,
-          },
-        }),
-        axios.get(`${server_url}/initialize/classList`, {
-          headers: {
-            'Authorization': idToken,
-            'project_id': projectId,
-          },
-        }),
-      ]);
+      const project = await axios.get(`${server_url}/initialize/project`, {
+        headers: {
+          'Authorization': idToken,
+          'project_id': projectId,
+        },
+      });
 
       const response = {
-        internalDependencyList: internalDependencies.data || [],
-        externalDependencyList: externalDependencies.data || [],
-        classNames: classList.data || [],
+        internalDependencyList: project.data.intDep || [],
+        externalDependencyList: project.data.extDep || [],
+        classNames: project.data.classList || [],
       };
 
       navigate('/mainpage', { state: { response: response } });
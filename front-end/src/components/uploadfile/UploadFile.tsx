@@ -114,50 +114,50 @@ const UploadFile: React.FC<UploadFileProps> = ({ user }) => {
 
       const token = localStorage.getItem('soft-viz-tokenID');
       
-      const uploadResponse = await axios.post(`${server_url}/initialize/upload`, formData, {
+      const uploadResponse = await axios.post(`${server_url}/initialize/uploadAsync`, formData, {
         headers: {
           'Authorization': token,
           'Content-Type': 'multipart/form-data',
         },
       });
       
-      if (uploadResponse.status !== 200) {
+      if (uploadResponse.status !== 202) {
         console.log("Failed!!");
         throw new Error('Upload failed');
       }
 
-      let project_id = String(uploadResponse.data);
-      localStorage.setItem('current-projectId', project_id);
-      const internalDependencies = await axios.get(`${server_url}/initialize/intDep`, {
-        headers: {
-          'Authorization': token,
-          'project_id': project_id,
-          'Content-Type': 'multipart/form-data',
-        },
-      });
+      // The analysis runs in the background, poll until it has produced the project
+      const jobId = uploadResponse.data.jobId;
+      let jobStatus = { status: 'QUEUED', projectId: '', error: '' };
+      while (jobStatus.status === 'QUEUED' || jobStatus.status === 'RUNNING') {
+        await new Promise((resolve) => setTimeout(resolve, 1000));
+        const statusResponse = await axios.get(`${server_url}/initialize/jobStatus`, {
+          headers: { 'Authorization': token },
+          params: { jobId: jobId },
+        });
+        jobStatus = statusResponse.data;
+      }
 
-      const externalDependencies = await axios.get(`${server_url}/initialize/extDep`, {
-        headers: {
-          'Authorization': token,
-          'project_id': project_id,
-          'Content-Type': 'multipart/form-data',
-        },
-      });
+      if (jobStatus.status !== 'COMPLETED') {
+        throw new Error(jobStatus.error || 'Analysis failed');
+      }
 
-      const classList = await axios.get(`${server_url}/initialize/classList`, {
+      let project_id = String(jobStatus.projectId);
+      localStorage.setItem('current-projectId', project_id);
+      // All three sections of the project come from a single request
+      const project = await axios.get(`${server_url}/initialize/project`, {
         headers: {
           'Authorization': token,
           'project_id': project_id,
-          'Content-Type': 'multipart/form-data',
         },
       });
 
       console.log('Upload successful:', uploadResponse.data);
 
       const response = {
-        internalDependencyList: internalDependencies.data || [],
-        externalDependencyList: externalDependencies.data || [],
-        classNames: classList.data || [],
+        internalDependencyList: project.data.intDep || [],
+        externalDependencyList: project.data.extDep || [],
+        classNames: project.data.classList || [],
       };
 
       navigate('/mainpage',  { state: { response: response} });